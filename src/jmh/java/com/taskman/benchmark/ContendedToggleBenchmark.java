@@ -0,0 +1,116 @@
+package com.taskman.benchmark;
+
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import com.taskman.repository.ConcurrentUpdateException;
+import com.taskman.repository.TaskRepository;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Many threads toggling the same few tasks. The optimistic path reads a
+ * task and toggles it with compareAndToggle against the version it read,
+ * the way a page does; blind toggles flip whatever is stored. Besides
+ * throughput, the toggled and conflicts counters show how many optimistic
+ * attempts lost the race.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContendedToggleBenchmark {
+
+    @Param({"1", "64"})
+    public int hotTasks;
+
+    @Param({"pipeline", "synchronized"})
+    public String writes;
+
+    private TaskRepository repository;
+    // Id of the first hot task; the hot tasks have consecutive ids
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("taskman.persistence.enabled", "false");
+        System.setProperty("taskman.repository.writes", writes);
+        repository = new TaskRepository();
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < hotTasks; i++) {
+            Task task = repository.save(new Task(1L, "Tarea " + i, TaskPriority.values()[i % 3], today.plusDays(i), null));
+            if (i == 0) {
+                firstId = task.getId();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.shutdown();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long toggled;
+        public long conflicts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            toggled = 0;
+            conflicts = 0;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Task compareAndToggle1(Outcomes outcomes) {
+        return compareAndToggle(outcomes);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Task compareAndToggle8(Outcomes outcomes) {
+        return compareAndToggle(outcomes);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Task compareAndToggle32(Outcomes outcomes) {
+        return compareAndToggle(outcomes);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<Task> blindToggle8() {
+        return repository.toggleDone(hotTaskId());
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Optional<Task> blindToggle32() {
+        return repository.toggleDone(hotTaskId());
+    }
+
+    private Task compareAndToggle(Outcomes outcomes) {
+        long id = hotTaskId();
+        Task seen = repository.findById(id).orElseThrow();
+        try {
+            Task toggled = repository.compareAndToggle(id, seen.getVersion());
+            outcomes.toggled++;
+            return toggled;
+        } catch (ConcurrentUpdateException e) {
+            outcomes.conflicts++;
+            return seen;
+        }
+    }
+
+    private long hotTaskId() {
+        return firstId + ThreadLocalRandom.current().nextInt(hotTasks);
+    }
+}
@@ -0,0 +1,107 @@
+package com.taskman.benchmark;
+
+import com.taskman.model.Project;
+import com.taskman.model.ProjectStatus;
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import com.taskman.repository.ProjectRepository;
+import com.taskman.repository.TaskRepository;
+import com.taskman.service.DashboardStats;
+import com.taskman.service.DashboardStatsService;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The dashboard's figures over 1M tasks in 10k projects of 50 owners:
+ * stats reads the incrementally maintained counters, scan computes the
+ * same figures from every project and task. save is a task write with the
+ * stats service listening, to be set against WriteLatencyBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DashboardStatsBenchmark {
+
+    private static final int TOTAL_TASKS = 1_000_000;
+    private static final int PROJECTS = 10_000;
+    private static final int OWNERS = 50;
+
+    private ProjectRepository projectRepository;
+    private TaskRepository taskRepository;
+    private DashboardStatsService service;
+    private Task task;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("taskman.persistence.enabled", "false");
+        projectRepository = new ProjectRepository();
+        taskRepository = new TaskRepository();
+        for (int i = 0; i < PROJECTS; i++) {
+            Project project = new Project("Proyecto " + i, "Responsable " + (i % OWNERS), null);
+            project.setStatus(ProjectStatus.values()[i % 3]);
+            projectRepository.save(project);
+        }
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < TOTAL_TASKS; i++) {
+            Task created = new Task((long) (i % PROJECTS) + 1, "Tarea " + i, TaskPriority.values()[i % 3],
+                    today.plusDays((i % 60) - 30), null);
+            created.setDone(i % 7 == 0);
+            taskRepository.save(created);
+        }
+        service = new DashboardStatsService(taskRepository, projectRepository);
+        service.init();
+        task = taskRepository.findById(1L).orElseThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        taskRepository.shutdown();
+        projectRepository.shutdown();
+    }
+
+    @Benchmark
+    public DashboardStats stats() {
+        return service.getStats(5);
+    }
+
+    @Benchmark
+    public Object[] scan() {
+        List<Project> projects = projectRepository.findAll();
+        Map<ProjectStatus, Long> byStatus = projects.stream()
+                .collect(Collectors.groupingBy(Project::getStatus, () -> new EnumMap<>(ProjectStatus.class),
+                        Collectors.counting()));
+        Map<Long, String> owners = new HashMap<>();
+        projects.forEach(project -> owners.put(project.getId(), project.getOwner()));
+        Map<TaskPriority, Long> byPriority = new EnumMap<>(TaskPriority.class);
+        Map<String, long[]> workload = new HashMap<>();
+        long done = 0;
+        for (Task each : taskRepository.findAll()) {
+            byPriority.merge(each.getPriority(), 1L, Long::sum);
+            done += each.isDone() ? 1 : 0;
+            long[] counts = workload.computeIfAbsent(owners.get(each.getProjectId()), owner -> new long[2]);
+            counts[0]++;
+            counts[1] += each.isDone() ? 0 : 1;
+        }
+        List<Project> recent = projects.stream()
+                .sorted(Comparator.comparing(Project::getCreatedAt).reversed())
+                .limit(10)
+                .collect(Collectors.toList());
+        return new Object[]{byStatus, byPriority, workload, done, recent};
+    }
+
+    @Benchmark
+    public Task save() {
+        task.setDone(!task.isDone());
+        return taskRepository.save(task);
+    }
+}
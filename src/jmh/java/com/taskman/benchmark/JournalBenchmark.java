@@ -0,0 +1,151 @@
+package com.taskman.benchmark;
+
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import com.taskman.persistence.EntityCodec;
+import com.taskman.persistence.Journal;
+import com.taskman.repository.TaskRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Durable write throughput (group commit) and startup recovery time of the
+ * task journal.
+ */
+public class JournalBenchmark {
+
+    /**
+     * Saves through a journaled repository; every call waits for its fsync
+     */
+    @State(Scope.Benchmark)
+    public static class Writes {
+
+        Path directory;
+        TaskRepository repository;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("taskman-journal-writes");
+            System.setProperty("taskman.data.dir", directory.toString());
+            System.setProperty("taskman.snapshot.intervalSeconds", "0");
+            repository = new TaskRepository();
+            repository.init();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            repository.shutdown();
+            deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * A data directory holding a million tasks, either as a snapshot or as a raw log
+     */
+    @State(Scope.Benchmark)
+    public static class Recovery {
+
+        @Param({"1000000"})
+        public int tasks;
+
+        @Param({"log", "snapshot"})
+        public String source;
+
+        Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("taskman-journal-recovery");
+            System.setProperty("taskman.data.dir", directory.toString());
+            System.setProperty("taskman.snapshot.intervalSeconds", "0");
+            Journal<Task> journal = Journal.open(directory, "tasks", EntityCodec.TASKS);
+            journal.recover(new NoReplay());
+            LocalDate today = LocalDate.now();
+            long seq = 0;
+            for (int i = 1; i <= tasks; i++) {
+                Task task = new Task((long) (i % 10_000) + 1, "Tarea " + i, TaskPriority.values()[i % 3],
+                        today.plusDays(i % 90), i % 4 == 0 ? "Notas de la tarea " + i : null);
+                task.setId((long) i);
+                task.setDone(i % 2 == 0);
+                seq = journal.logSave(task);
+            }
+            journal.awaitDurable(seq);
+            journal.close();
+            if ("snapshot".equals(source)) {
+                TaskRepository repository = new TaskRepository();
+                repository.init();
+                repository.shutdown();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    @Threads(1)
+    public Task durableSave1Thread(Writes state) {
+        return state.repository.save(newTask());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    @Threads(32)
+    public Task durableSave32Threads(Writes state) {
+        return state.repository.save(newTask());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    @Fork(1)
+    public long recover(Recovery state) {
+        // Not shut down on purpose: shutdown() snapshots, which would change what the next shot recovers
+        TaskRepository repository = new TaskRepository();
+        repository.init();
+        return repository.count();
+    }
+
+    private static Task newTask() {
+        return new Task(1L, "Tarea", TaskPriority.MEDIUM, LocalDate.now().plusDays(3), null);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static final class NoReplay implements Journal.Replay<Task> {
+        @Override
+        public void save(Task entity) {
+        }
+
+        @Override
+        public void delete(long id) {
+        }
+
+        @Override
+        public void deleteByOwner(long ownerId) {
+        }
+    }
+}
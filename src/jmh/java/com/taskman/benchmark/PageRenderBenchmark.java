@@ -0,0 +1,113 @@
+package com.taskman.benchmark;
+
+import com.taskman.model.Project;
+import com.taskman.model.ProjectStatus;
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import com.taskman.repository.ProjectRepository;
+import com.taskman.repository.ReadScope;
+import com.taskman.repository.TaskRepository;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The repository reads of whole page renders, inside one read scope as the
+ * render listener opens it: the dashboard (counters plus the first page of
+ * the projects table), the projects page filtered by status, and a report
+ * that walks every task. Run with -prof gc to compare bytes allocated per
+ * render, which is where findAll() copies used to show up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class PageRenderBenchmark {
+
+    private static final int TASKS_PER_PROJECT = 10;
+    private static final int PAGE = 5;
+
+    @Param({"1000", "10000"})
+    public int projects;
+
+    private ProjectRepository projectRepository;
+    private TaskRepository taskRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("taskman.persistence.enabled", "false");
+        projectRepository = new ProjectRepository();
+        taskRepository = new TaskRepository();
+        LocalDate today = LocalDate.now();
+        ProjectStatus[] statuses = ProjectStatus.values();
+        for (int p = 0; p < projects; p++) {
+            Project project = new Project("Proyecto " + p, "Responsable " + (p % 50), "Descripción " + p);
+            project.setStatus(statuses[p % statuses.length]);
+            projectRepository.save(project);
+            for (int t = 0; t < TASKS_PER_PROJECT; t++) {
+                Task task = new Task(project.getId(), "Tarea " + t, TaskPriority.values()[t % 3],
+                        today.plusDays(t * 7 - 20), null);
+                task.setDone(t % 3 == 0);
+                taskRepository.save(task);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        taskRepository.shutdown();
+        projectRepository.shutdown();
+    }
+
+    @Benchmark
+    @SuppressWarnings("try") // the scope only has to be open while the body runs
+    public void dashboard(Blackhole blackhole) {
+        try (ReadScope scope = ReadScope.open()) {
+            blackhole.consume(projectRepository.count());
+            blackhole.consume(taskRepository.count());
+            blackhole.consume(taskRepository.countByDone(true));
+            blackhole.consume(taskRepository.countByDone(false));
+            blackhole.consume(taskRepository.countOverdue());
+            renderPage(projectRepository.findAll(), blackhole);
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("try")
+    public void projectsByStatus(Blackhole blackhole) {
+        try (ReadScope scope = ReadScope.open()) {
+            List<Project> active = projectRepository.findByStatus(ProjectStatus.ACTIVE);
+            blackhole.consume(projectRepository.count());
+            renderPage(active, blackhole);
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("try")
+    public long completionReport() {
+        try (ReadScope scope = ReadScope.open()) {
+            long done = 0;
+            for (Task task : taskRepository.findAll()) {
+                if (task.isDone()) {
+                    done++;
+                }
+            }
+            return done * 100 / Math.max(1, taskRepository.count());
+        }
+    }
+
+    private void renderPage(List<Project> rows, Blackhole blackhole) {
+        blackhole.consume(rows.size());
+        for (int i = 0; i < Math.min(PAGE, rows.size()); i++) {
+            Project project = rows.get(i);
+            blackhole.consume(project.getName());
+            blackhole.consume(project.getOwner());
+            blackhole.consume(project.getStatus());
+            blackhole.consume(taskRepository.countByProjectId(project.getId()));
+        }
+    }
+}
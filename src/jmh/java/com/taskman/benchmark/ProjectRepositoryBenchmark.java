@@ -0,0 +1,89 @@
+package com.taskman.benchmark;
+
+import com.taskman.model.Project;
+import com.taskman.model.ProjectStatus;
+import com.taskman.repository.ProjectRepository;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The project search box and the unique-name check as the number of
+ * projects grows. searchByName cycles through 4,096 different names, more
+ * than the search cache keeps, so most searches go to the trigram index;
+ * like a search typed in the box, a name also finds the names it prefixes.
+ * searchByOwner repeats the 50 owners and is mostly answered from the cache
+ * but still copies one in 50 projects into the result. Stops at 1M
+ * projects: with the search index a project takes far more heap than a
+ * task, and 10M do not fit in the fork's 4 GB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ProjectRepositoryBenchmark {
+
+    private static final int OWNERS = 50;
+    private static final int SEARCHED_NAMES = 4_096;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int projects;
+
+    private ProjectRepository repository;
+    private String[] names;
+    private String[] missingNames;
+    private String[] owners;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("taskman.persistence.enabled", "false");
+        repository = new ProjectRepository();
+        for (int i = 0; i < projects; i++) {
+            Project project = new Project("Proyecto " + i, "Responsable " + (i % OWNERS), null);
+            project.setStatus(ProjectStatus.values()[i % 3]);
+            repository.save(project);
+        }
+        names = new String[SEARCHED_NAMES];
+        missingNames = new String[SEARCHED_NAMES];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "Proyecto " + (long) i * projects / SEARCHED_NAMES;
+            missingNames[i] = "Otro " + names[i];
+        }
+        owners = new String[OWNERS];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = "Responsable " + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.shutdown();
+    }
+
+    @Benchmark
+    public List<Project> searchByName(Cursor cursor) {
+        return repository.findByNameOrOwnerContaining(names[cursor.next++ & (SEARCHED_NAMES - 1)]);
+    }
+
+    @Benchmark
+    public List<Project> searchByOwner(Cursor cursor) {
+        return repository.findByNameOrOwnerContaining(owners[cursor.next++ % OWNERS]);
+    }
+
+    @Benchmark
+    public boolean existsByName(Cursor cursor) {
+        return repository.existsByName(names[cursor.next++ & (SEARCHED_NAMES - 1)]);
+    }
+
+    @Benchmark
+    public boolean existsByNameMissing(Cursor cursor) {
+        return repository.existsByName(missingNames[cursor.next++ & (SEARCHED_NAMES - 1)]);
+    }
+}
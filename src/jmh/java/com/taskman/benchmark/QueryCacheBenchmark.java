@@ -0,0 +1,81 @@
+package com.taskman.benchmark;
+
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import com.taskman.repository.CacheStats;
+import com.taskman.repository.TaskQuery;
+import com.taskman.repository.TaskRepository;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The reload that follows every AJAX action on the task page: the first
+ * page of a project's task list, read again unchanged, after a write to
+ * another project, and after a write to the same project. Only the last
+ * one should have to run the query; the others are cache hits. cacheOff
+ * is the same read with the cache disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class QueryCacheBenchmark {
+
+    private static final int TOTAL_TASKS = 1_000_000;
+    private static final int PROJECTS = 10_000;
+
+    @Param({"on", "off"})
+    public String cache;
+
+    private TaskRepository repository;
+    private TaskQuery query;
+    private Task sameProject;
+    private Task otherProject;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("taskman.persistence.enabled", "false");
+        System.setProperty("taskman.queryCache.entries", "on".equals(cache) ? "1024" : "0");
+        repository = new TaskRepository();
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < TOTAL_TASKS; i++) {
+            Task task = new Task((long) (i % PROJECTS) + 1, "Tarea " + i, TaskPriority.values()[i % 3],
+                    today.plusDays((i % 60) - 30), null);
+            task.setDone(i % 7 == 0);
+            repository.save(task);
+        }
+        long projectId = PROJECTS / 2;
+        query = TaskQuery.forProject(projectId).withDone(false).sortedBy("title", true).withLimit(20);
+        sameProject = repository.find(TaskQuery.forProject(projectId).withLimit(1)).get(0);
+        otherProject = repository.find(TaskQuery.forProject(projectId + 1).withLimit(1)).get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        CacheStats stats = repository.cacheStats();
+        System.out.printf("%ncache: %d hits, %d misses (%d stale), %d evictions%n",
+                stats.hits(), stats.misses(), stats.stale(), stats.evictions());
+        repository.shutdown();
+    }
+
+    @Benchmark
+    public List<Task> unchanged() {
+        return repository.find(query);
+    }
+
+    @Benchmark
+    public List<Task> afterOtherProjectWrite() {
+        repository.toggleDone(otherProject.getId());
+        return repository.find(query);
+    }
+
+    @Benchmark
+    public List<Task> afterSameProjectWrite() {
+        repository.toggleDone(sameProject.getId());
+        return repository.find(query);
+    }
+}
@@ -0,0 +1,101 @@
+package com.taskman.benchmark;
+
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import com.taskman.persistence.EntityCodec;
+import com.taskman.persistence.Journal;
+import com.taskman.persistence.TaskColumns;
+import com.taskman.repository.TaskRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Startup time from a task snapshot: the memory-mapped columnar layout
+ * against decoding every task object from the row layout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SnapshotStartupBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int tasks;
+
+    @Param({"columnar", "rows"})
+    public String format;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("taskman-snapshot-startup");
+        System.setProperty("taskman.data.dir", directory.toString());
+        System.setProperty("taskman.snapshot.intervalSeconds", "0");
+        System.setProperty("taskman.snapshot.format", format);
+        Journal<Task> journal = Journal.open(directory, "tasks", EntityCodec.TASKS, new TaskColumns());
+        journal.recover(new NoReplay());
+        LocalDate today = LocalDate.now();
+        List<Task> all = new ArrayList<>(tasks);
+        for (int i = 1; i <= tasks; i++) {
+            Task task = new Task((long) (i % 10_000) + 1, "Tarea " + i, TaskPriority.values()[i % 3],
+                    today.plusDays(i % 90 - 30), i % 4 == 0 ? "Notas de la tarea " + i : null);
+            task.setId((long) i);
+            task.setDone(i % 2 == 0);
+            all.add(task);
+        }
+        journal.writeSnapshot(journal.checkpoint(tasks + 1L, all));
+        journal.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Until the first lookup can be served
+     */
+    @Benchmark
+    public Task startup() {
+        TaskRepository repository = new TaskRepository();
+        repository.init();
+        return repository.findById((long) tasks / 2).orElseThrow();
+    }
+
+    /**
+     * Until the first query that needs the secondary indexes
+     */
+    @Benchmark
+    public long startupAndFirstIndexedQuery() {
+        TaskRepository repository = new TaskRepository();
+        repository.init();
+        return repository.countOverdueByProjectId(42L);
+    }
+
+    private static final class NoReplay implements Journal.Replay<Task> {
+        @Override
+        public void save(Task entity) {
+        }
+
+        @Override
+        public void delete(long id) {
+        }
+
+        @Override
+        public void deleteByOwner(long ownerId) {
+        }
+    }
+}
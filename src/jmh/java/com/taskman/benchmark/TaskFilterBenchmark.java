@@ -0,0 +1,85 @@
+package com.taskman.benchmark;
+
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import com.taskman.repository.TaskQuery;
+import com.taskman.repository.TaskRepository;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Priority and done filters within one project of 1M tasks in 10k
+ * projects, answered from the per-project bitmaps. streamFilter is the
+ * same filter as a stream over the project's tasks, the way the task table
+ * filtered before the bitmaps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TaskFilterBenchmark {
+
+    private static final int TOTAL_TASKS = 1_000_000;
+    private static final int PROJECTS = 10_000;
+
+    // priority: HIGH; done: open; both: HIGH and open; any: HIGH or MEDIUM, open
+    @Param({"priority", "done", "both", "any"})
+    public String filter;
+
+    private TaskRepository repository;
+    private TaskQuery query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("taskman.persistence.enabled", "false");
+        // Measure the bitmaps, not the result cache
+        System.setProperty("taskman.queryCache.entries", "0");
+        repository = new TaskRepository();
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < TOTAL_TASKS; i++) {
+            Task task = new Task((long) (i % PROJECTS) + 1, "Tarea " + i,
+                    TaskPriority.values()[random.nextInt(3)], today.plusDays(random.nextInt(60) - 30), null);
+            task.setDone(random.nextBoolean());
+            repository.save(task);
+        }
+        TaskQuery project = TaskQuery.forProject((long) PROJECTS / 2);
+        query = switch (filter) {
+            case "priority" -> project.withPriority(TaskPriority.HIGH);
+            case "done" -> project.withDone(false);
+            case "both" -> project.withPriority(TaskPriority.HIGH).withDone(false);
+            case "any" -> project.withPriorities(EnumSet.of(TaskPriority.HIGH, TaskPriority.MEDIUM)).withDone(false);
+            default -> throw new IllegalArgumentException("Unknown filter " + filter);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.shutdown();
+    }
+
+    @Benchmark
+    public long count() {
+        return repository.count(query);
+    }
+
+    @Benchmark
+    public List<Task> find() {
+        return repository.find(query);
+    }
+
+    @Benchmark
+    public List<Task> streamFilter() {
+        return repository.findByProjectId(query.projectId()).stream()
+                .filter(task -> query.priorities().isEmpty() || query.priorities().contains(task.getPriority()))
+                .filter(task -> query.done() == null || task.isDone() == query.done())
+                .collect(Collectors.toList());
+    }
+}
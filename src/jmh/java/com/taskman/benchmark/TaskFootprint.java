@@ -0,0 +1,51 @@
+package com.taskman.benchmark;
+
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import com.taskman.repository.TaskRepository;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDate;
+
+/**
+ * Retained heap per task of a populated TaskRepository, secondary indexes
+ * included, for each storage engine. Not a JMH benchmark: run it directly.
+ *
+ * java -cp target/classes:$CP com.taskman.benchmark.TaskFootprint [tasks] [columnar|objects]
+ */
+public final class TaskFootprint {
+
+    private TaskFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String engine = args.length > 1 ? args[1] : "columnar";
+        System.setProperty("taskman.persistence.enabled", "false");
+        System.setProperty("taskman.tasks.storage", engine);
+
+        long before = usedHeap();
+        TaskRepository repository = new TaskRepository();
+        repository.init();
+        LocalDate today = LocalDate.now();
+        for (int i = 1; i <= tasks; i++) {
+            Task task = new Task((long) (i % 10_000) + 1, "Tarea " + i, TaskPriority.values()[i % 3],
+                    today.plusDays(i % 90 - 30), i % 4 == 0 ? "Notas de la tarea " + i : null);
+            task.setDone(i % 2 == 0);
+            repository.save(task);
+        }
+        repository.countOverdue();
+        long after = usedHeap();
+
+        System.out.printf("%s: %,d tasks, %,d bytes retained, %d bytes/task%n",
+                engine, repository.count(), after - before, (after - before) / tasks);
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
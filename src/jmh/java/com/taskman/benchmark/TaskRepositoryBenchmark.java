@@ -0,0 +1,82 @@
+package com.taskman.benchmark;
+
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import com.taskman.repository.TaskQuery;
+import com.taskman.repository.TaskRepository;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Per-project task lookups as the total task count grows.
+ * The target project always holds the same number of tasks, so the
+ * scores should stay flat across totalTasks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TaskRepositoryBenchmark {
+
+    private static final int TASKS_PER_PROJECT = 100;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int totalTasks;
+
+    private TaskRepository repository;
+    private Long targetProjectId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new TaskRepository();
+        int projects = Math.max(1, totalTasks / TASKS_PER_PROJECT);
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < totalTasks; i++) {
+            long projectId = (i % projects) + 1;
+            Task task = new Task(projectId, "Tarea " + i, TaskPriority.values()[i % 3],
+                    today.plusDays((i % 60) - 30), null);
+            task.setDone(i % 2 == 0);
+            repository.save(task);
+        }
+        targetProjectId = (long) (projects / 2 + 1);
+    }
+
+    @Benchmark
+    public List<Task> findByProjectId() {
+        return repository.findByProjectId(targetProjectId);
+    }
+
+    @Benchmark
+    public long countByProjectId() {
+        return repository.countByProjectId(targetProjectId);
+    }
+
+    @Benchmark
+    public long countByProjectIdAndDone() {
+        return repository.countByProjectIdAndDone(targetProjectId, false);
+    }
+
+    @Benchmark
+    public List<Task> findOverdueTasks() {
+        return repository.findOverdueTasks(targetProjectId);
+    }
+
+    // First page of the task table with both toolbar filters set
+    @Benchmark
+    public List<Task> findFilteredPage() {
+        return repository.find(TaskQuery.forProject(targetProjectId)
+                .withPriority(TaskPriority.HIGH).withDone(false).withLimit(20));
+    }
+
+    // Open tasks due this week across every project, soonest first
+    @Benchmark
+    public List<Task> findDueThisWeek() {
+        LocalDate today = LocalDate.now();
+        return repository.find(TaskQuery.all().withDone(false).withDueBetween(today, today.plusDays(7))
+                .sortedBy("dueDate", true).withLimit(20));
+    }
+}
@@ -0,0 +1,102 @@
+package com.taskman.benchmark;
+
+import com.taskman.model.Project;
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import com.taskman.repository.ProjectRepository;
+import com.taskman.repository.TaskQuery;
+import com.taskman.repository.TaskRepository;
+import com.taskman.service.TaskService;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Task writes through TaskService, validation included, as the number of
+ * tasks grows, and a mixed workload: three threads reading the first page
+ * of random projects while one toggles random tasks, invalidating what the
+ * readers have cached. Created tasks go to a project of their own, emptied
+ * after every iteration so the dataset keeps its size. Other thread counts
+ * with -t (-tg 6,2 for the mixed group).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TaskServiceBenchmark {
+
+    private static final int TASKS_PER_PROJECT = 100;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int totalTasks;
+
+    private ProjectRepository projectRepository;
+    private TaskRepository taskRepository;
+    private TaskService service;
+    private int projects;
+    private Long scratchProjectId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("taskman.persistence.enabled", "false");
+        projectRepository = new ProjectRepository();
+        taskRepository = new TaskRepository();
+        service = new TaskService(taskRepository, projectRepository);
+        projects = Math.max(1, totalTasks / TASKS_PER_PROJECT);
+        for (int i = 0; i < projects; i++) {
+            projectRepository.save(new Project("Proyecto " + i, "Responsable " + (i % 50), null));
+        }
+        scratchProjectId = projectRepository.save(new Project("Nuevas tareas", "Responsable 0", null)).getId();
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < totalTasks; i++) {
+            Task task = new Task((long) (i % projects) + 1, "Tarea " + i, TaskPriority.values()[i % 3],
+                    today.plusDays((i % 60) - 30), null);
+            task.setDone(i % 2 == 0);
+            taskRepository.save(task);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeCreatedTasks() {
+        taskRepository.deleteByProjectId(scratchProjectId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        taskRepository.shutdown();
+        projectRepository.shutdown();
+    }
+
+    @Benchmark
+    public Task createTask() {
+        return service.createTask(new Task(scratchProjectId, "Nueva tarea", TaskPriority.MEDIUM, null, null));
+    }
+
+    @Benchmark
+    public Task toggleTaskCompletion() {
+        return service.toggleTaskCompletion(randomTaskId());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public List<Task> mixedRead() {
+        long projectId = ThreadLocalRandom.current().nextLong(projects) + 1;
+        return service.findTasks(TaskQuery.forProject(projectId).withLimit(20));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Task mixedToggle() {
+        return service.toggleTaskCompletion(randomTaskId());
+    }
+
+    private long randomTaskId() {
+        return ThreadLocalRandom.current().nextLong(totalTasks) + 1;
+    }
+}
@@ -0,0 +1,111 @@
+package com.taskman.benchmark;
+
+import com.taskman.metrics.MetricsRegistry;
+import com.taskman.metrics.TimedInterceptor;
+import jakarta.interceptor.InvocationContext;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of @Timed on a call: the interceptor around a method that does
+ * nothing, against calling that method directly, on one thread and on
+ * four recording into the same histogram. Run with -prof gc to check that
+ * a timed call allocates nothing. The container's own interception, the
+ * same for any interceptor, is not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimedInterceptorBenchmark {
+
+    private static final Object RESULT = new Object();
+
+    private TimedInterceptor interceptor;
+    private InvocationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchMethodException {
+        interceptor = new TimedInterceptor(new MetricsRegistry());
+        context = new DirectInvocation(TimedInterceptorBenchmark.class.getDeclaredMethod("work"));
+    }
+
+    @Benchmark
+    public Object direct() {
+        return work();
+    }
+
+    @Benchmark
+    public Object timed() throws Exception {
+        return interceptor.time(context);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object timedFourThreads() throws Exception {
+        return interceptor.time(context);
+    }
+
+    @CompilerControl(CompilerControl.Mode.DONT_INLINE)
+    static Object work() {
+        return RESULT;
+    }
+
+    /**
+     * Proceeds straight to work(), as the container does once past its own interception
+     */
+    private static final class DirectInvocation implements InvocationContext {
+
+        private final Method method;
+        private final Map<String, Object> contextData = new HashMap<>();
+
+        DirectInvocation(Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public Object getTarget() {
+            return null;
+        }
+
+        @Override
+        public Object getTimer() {
+            return null;
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Constructor<?> getConstructor() {
+            return null;
+        }
+
+        @Override
+        public Object[] getParameters() {
+            return new Object[0];
+        }
+
+        @Override
+        public void setParameters(Object[] params) {
+        }
+
+        @Override
+        public Map<String, Object> getContextData() {
+            return contextData;
+        }
+
+        @Override
+        public Object proceed() {
+            return work();
+        }
+    }
+}
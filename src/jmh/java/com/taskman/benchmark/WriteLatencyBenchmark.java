@@ -0,0 +1,78 @@
+package com.taskman.benchmark;
+
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import com.taskman.repository.TaskRepository;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Latency distribution of task toggles as concurrent writers are added:
+ * the single-writer ring buffer against a synchronized write path. Sample
+ * mode reports p50/p90/p99/p99.9 per thread count. Persistence is off, so
+ * this measures the write path itself rather than fsync batching.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteLatencyBenchmark {
+
+    private static final int TASKS = 100_000;
+
+    @Param({"pipeline", "synchronized"})
+    public String writes;
+
+    private TaskRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("taskman.persistence.enabled", "false");
+        System.setProperty("taskman.repository.writes", writes);
+        repository = new TaskRepository();
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < TASKS; i++) {
+            Task task = new Task((long) (i % 1_000) + 1, "Tarea " + i, TaskPriority.values()[i % 3],
+                    today.plusDays(i % 60), null);
+            repository.save(task);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.shutdown();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Optional<Task> toggle1() {
+        return toggle();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<Task> toggle8() {
+        return toggle();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Optional<Task> toggle32() {
+        return toggle();
+    }
+
+    @Benchmark
+    @Threads(128)
+    public Optional<Task> toggle128() {
+        return toggle();
+    }
+
+    private Optional<Task> toggle() {
+        return repository.toggleDone(ThreadLocalRandom.current().nextLong(TASKS) + 1);
+    }
+}
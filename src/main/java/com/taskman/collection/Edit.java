@@ -0,0 +1,10 @@
+package com.taskman.collection;
+
+/**
+ * Ownership token for updating persistent structures in place. Nodes
+ * created under an Edit may be changed in place by later updates that pass
+ * the same Edit; once the writer moves on to a new Edit, every node built
+ * so far is frozen and can be shared with readers. Passing null always copies.
+ */
+public final class Edit {
+}
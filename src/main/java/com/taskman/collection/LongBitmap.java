@@ -0,0 +1,593 @@
+package com.taskman.collection;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+/**
+ * Persistent compressed bitmap of non-negative longs, roaring style. Values
+ * are grouped by their upper bits into chunks of 65536; a chunk holding up
+ * to 4096 values is a sorted array of their low 16 bits, a fuller one a
+ * plain bitmap of 1024 words. and, or and andNot combine the two sides
+ * chunk by chunk in whichever representations they have, and the
+ * cardinality is kept as values come and go, so counting is a popcount
+ * rather than a scan.
+ *
+ * Updates follow the Edit rules of the other persistent collections: a
+ * bitmap and chunks created under an Edit are changed in place by later
+ * updates passing the same Edit, anything else is copied first. The
+ * results of and, or and andNot may share chunks with their inputs and
+ * are meant for reading.
+ */
+public final class LongBitmap {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int LOW_MASK = (1 << CHUNK_BITS) - 1;
+    private static final int WORDS = 1 << (CHUNK_BITS - 6);
+    // Largest array chunk; beyond this a bitmap chunk takes less room
+    private static final int ARRAY_MAX = 4096;
+
+    private static final LongBitmap EMPTY = new LongBitmap(null, new long[0], new Chunk[0], 0, 0);
+
+    private final Edit edit;
+    // Upper bits of the values in each chunk, ascending
+    private long[] keys;
+    private Chunk[] chunks;
+    private int count;
+    private long cardinality;
+
+    private LongBitmap(Edit edit, long[] keys, Chunk[] chunks, int count, long cardinality) {
+        this.edit = edit;
+        this.keys = keys;
+        this.chunks = chunks;
+        this.count = count;
+        this.cardinality = cardinality;
+    }
+
+    public static LongBitmap empty() {
+        return EMPTY;
+    }
+
+    public static LongBitmap of(long... values) {
+        Edit edit = new Edit();
+        LongBitmap bitmap = EMPTY;
+        for (long value : values) {
+            bitmap = bitmap.with(value, edit);
+        }
+        return bitmap;
+    }
+
+    public long cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(long value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, count, value >>> CHUNK_BITS);
+        return index >= 0 && chunks[index].contains((int) value & LOW_MASK);
+    }
+
+    public LongBitmap with(long value, Edit edit) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Bitmap values cannot be negative: " + value);
+        }
+        long key = value >>> CHUNK_BITS;
+        int low = (int) value & LOW_MASK;
+        int index = Arrays.binarySearch(keys, 0, count, key);
+        if (index >= 0 && chunks[index].contains(low)) {
+            return this;
+        }
+        LongBitmap result = editable(edit, index >= 0 ? 0 : 1);
+        if (index >= 0) {
+            result.chunks[index] = result.chunks[index].with(low, edit);
+        } else {
+            result.insertChunk(-index - 1, key, new ArrayChunk(edit, new char[] {(char) low, 0, 0, 0}, 1));
+        }
+        result.cardinality++;
+        return result;
+    }
+
+    public LongBitmap without(long value, Edit edit) {
+        if (!contains(value)) {
+            return this;
+        }
+        if (cardinality == 1) {
+            return EMPTY;
+        }
+        int index = Arrays.binarySearch(keys, 0, count, value >>> CHUNK_BITS);
+        LongBitmap result = editable(edit, 0);
+        Chunk chunk = result.chunks[index].without((int) value & LOW_MASK, edit);
+        if (chunk == null) {
+            result.deleteChunk(index);
+        } else {
+            result.chunks[index] = chunk;
+        }
+        result.cardinality--;
+        return result;
+    }
+
+    /**
+     * Values in both bitmaps
+     */
+    public LongBitmap and(LongBitmap other) {
+        int capacity = Math.min(count, other.count);
+        LongBitmap result = new LongBitmap(null, new long[capacity], new Chunk[capacity], 0, 0);
+        for (int i = 0, j = 0; i < count && j < other.count; ) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.append(keys[i], Chunk.and(chunks[i++], other.chunks[j++]));
+            }
+        }
+        return result.cardinality == 0 ? EMPTY : result;
+    }
+
+    /**
+     * Values in either bitmap
+     */
+    public LongBitmap or(LongBitmap other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        int capacity = count + other.count;
+        LongBitmap result = new LongBitmap(null, new long[capacity], new Chunk[capacity], 0, 0);
+        int i = 0;
+        int j = 0;
+        while (i < count || j < other.count) {
+            if (j == other.count || i < count && keys[i] < other.keys[j]) {
+                result.append(keys[i], chunks[i++]);
+            } else if (i == count || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.chunks[j++]);
+            } else {
+                result.append(keys[i], Chunk.or(chunks[i++], other.chunks[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Values in this bitmap but not in the other
+     */
+    public LongBitmap andNot(LongBitmap other) {
+        if (isEmpty() || other.isEmpty()) {
+            return this;
+        }
+        LongBitmap result = new LongBitmap(null, new long[count], new Chunk[count], 0, 0);
+        for (int i = 0, j = 0; i < count; i++) {
+            while (j < other.count && other.keys[j] < keys[i]) {
+                j++;
+            }
+            result.append(keys[i], j < other.count && other.keys[j] == keys[i]
+                    ? Chunk.andNot(chunks[i], other.chunks[j]) : chunks[i]);
+        }
+        return result.cardinality == 0 ? EMPTY : result;
+    }
+
+    /**
+     * Size of the intersection, counted without building it
+     */
+    public long andCardinality(LongBitmap other) {
+        long total = 0;
+        for (int i = 0, j = 0; i < count && j < other.count; ) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                total += Chunk.andCardinality(chunks[i++], other.chunks[j++]);
+            }
+        }
+        return total;
+    }
+
+    public void forEach(LongConsumer action) {
+        for (int i = 0; i < count; i++) {
+            long base = keys[i] << CHUNK_BITS;
+            if (chunks[i] instanceof ArrayChunk array) {
+                for (int k = 0; k < array.cardinality; k++) {
+                    action.accept(base | array.values[k]);
+                }
+            } else {
+                long[] words = ((BitsChunk) chunks[i]).words;
+                for (int w = 0; w < WORDS; w++) {
+                    for (long bits = words[w]; bits != 0; bits &= bits - 1) {
+                        action.accept(base | ((long) w << 6) | Long.numberOfTrailingZeros(bits));
+                    }
+                }
+            }
+        }
+    }
+
+    public PrimitiveIterator.OfLong iterator() {
+        return new Cursor(this, 0);
+    }
+
+    /**
+     * Values at or above the given value, in ascending order
+     */
+    public PrimitiveIterator.OfLong iterator(long fromValue) {
+        return new Cursor(this, Math.max(0, fromValue));
+    }
+
+    private LongBitmap editable(Edit edit, int extraChunks) {
+        if (edit == null || this.edit != edit) {
+            int capacity = Math.max(4, count + extraChunks);
+            return new LongBitmap(edit, Arrays.copyOf(keys, capacity), Arrays.copyOf(chunks, capacity), count, cardinality);
+        }
+        if (count + extraChunks > keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        return this;
+    }
+
+    private void insertChunk(int index, long key, Chunk chunk) {
+        System.arraycopy(keys, index, keys, index + 1, count - index);
+        System.arraycopy(chunks, index, chunks, index + 1, count - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        count++;
+    }
+
+    private void deleteChunk(int index) {
+        System.arraycopy(keys, index + 1, keys, index, count - index - 1);
+        System.arraycopy(chunks, index + 1, chunks, index, count - index - 1);
+        chunks[--count] = null;
+    }
+
+    // Adds a chunk after the last one while building a result; null stands for an empty chunk
+    private void append(long key, Chunk chunk) {
+        if (chunk != null) {
+            keys[count] = key;
+            chunks[count++] = chunk;
+            cardinality += chunk.cardinality;
+        }
+    }
+
+    private abstract static sealed class Chunk permits ArrayChunk, BitsChunk {
+        final Edit edit;
+        int cardinality;
+
+        Chunk(Edit edit, int cardinality) {
+            this.edit = edit;
+            this.cardinality = cardinality;
+        }
+
+        boolean owned(Edit edit) {
+            return edit != null && this.edit == edit;
+        }
+
+        abstract boolean contains(int low);
+
+        /**
+         * Adds a value known to be absent
+         */
+        abstract Chunk with(int low, Edit edit);
+
+        /**
+         * Removes a value known to be present; null once the chunk is empty
+         */
+        abstract Chunk without(int low, Edit edit);
+
+        static Chunk and(Chunk a, Chunk b) {
+            if (a instanceof BitsChunk bitsA && b instanceof BitsChunk bitsB) {
+                long[] words = new long[WORDS];
+                int cardinality = 0;
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] = bitsA.words[w] & bitsB.words[w];
+                    cardinality += Long.bitCount(words[w]);
+                }
+                return fromWords(words, cardinality);
+            }
+            // At least one side is an array: keep its values the other side contains
+            ArrayChunk array = a instanceof ArrayChunk arrayA ? arrayA : (ArrayChunk) b;
+            Chunk other = array == a ? b : a;
+            char[] values = new char[array.cardinality];
+            int size = 0;
+            for (int k = 0; k < array.cardinality; k++) {
+                if (other.contains(array.values[k])) {
+                    values[size++] = array.values[k];
+                }
+            }
+            return size == 0 ? null : new ArrayChunk(null, values, size);
+        }
+
+        static Chunk or(Chunk a, Chunk b) {
+            if (a instanceof ArrayChunk arrayA && b instanceof ArrayChunk arrayB
+                    && arrayA.cardinality + arrayB.cardinality <= ARRAY_MAX) {
+                char[] values = new char[arrayA.cardinality + arrayB.cardinality];
+                int size = 0;
+                int i = 0;
+                int j = 0;
+                while (i < arrayA.cardinality || j < arrayB.cardinality) {
+                    if (j == arrayB.cardinality || i < arrayA.cardinality && arrayA.values[i] < arrayB.values[j]) {
+                        values[size++] = arrayA.values[i++];
+                    } else if (i == arrayA.cardinality || arrayA.values[i] > arrayB.values[j]) {
+                        values[size++] = arrayB.values[j++];
+                    } else {
+                        values[size++] = arrayA.values[i++];
+                        j++;
+                    }
+                }
+                return new ArrayChunk(null, values, size);
+            }
+            long[] words = a.toWords();
+            if (b instanceof BitsChunk bitsB) {
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] |= bitsB.words[w];
+                }
+            } else {
+                ArrayChunk arrayB = (ArrayChunk) b;
+                for (int k = 0; k < arrayB.cardinality; k++) {
+                    words[arrayB.values[k] >>> 6] |= 1L << arrayB.values[k];
+                }
+            }
+            int cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            return fromWords(words, cardinality);
+        }
+
+        static Chunk andNot(Chunk a, Chunk b) {
+            if (a instanceof ArrayChunk array) {
+                char[] values = new char[array.cardinality];
+                int size = 0;
+                for (int k = 0; k < array.cardinality; k++) {
+                    if (!b.contains(array.values[k])) {
+                        values[size++] = array.values[k];
+                    }
+                }
+                return size == 0 ? null : new ArrayChunk(null, values, size);
+            }
+            long[] words = a.toWords();
+            if (b instanceof BitsChunk bitsB) {
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] &= ~bitsB.words[w];
+                }
+            } else {
+                ArrayChunk arrayB = (ArrayChunk) b;
+                for (int k = 0; k < arrayB.cardinality; k++) {
+                    words[arrayB.values[k] >>> 6] &= ~(1L << arrayB.values[k]);
+                }
+            }
+            int cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            return fromWords(words, cardinality);
+        }
+
+        static int andCardinality(Chunk a, Chunk b) {
+            if (a instanceof BitsChunk bitsA && b instanceof BitsChunk bitsB) {
+                int cardinality = 0;
+                for (int w = 0; w < WORDS; w++) {
+                    cardinality += Long.bitCount(bitsA.words[w] & bitsB.words[w]);
+                }
+                return cardinality;
+            }
+            ArrayChunk array = a instanceof ArrayChunk arrayA ? arrayA : (ArrayChunk) b;
+            Chunk other = array == a ? b : a;
+            int cardinality = 0;
+            for (int k = 0; k < array.cardinality; k++) {
+                if (other.contains(array.values[k])) {
+                    cardinality++;
+                }
+            }
+            return cardinality;
+        }
+
+        /**
+         * A new bitmap of the chunk's values
+         */
+        abstract long[] toWords();
+
+        /**
+         * The smaller representation of the given bits, or null if there are none
+         */
+        static Chunk fromWords(long[] words, int cardinality) {
+            if (cardinality == 0) {
+                return null;
+            }
+            if (cardinality > ARRAY_MAX) {
+                return new BitsChunk(null, words, cardinality);
+            }
+            char[] values = new char[cardinality];
+            int size = 0;
+            for (int w = 0; w < WORDS; w++) {
+                for (long bits = words[w]; bits != 0; bits &= bits - 1) {
+                    values[size++] = (char) ((w << 6) | Long.numberOfTrailingZeros(bits));
+                }
+            }
+            return new ArrayChunk(null, values, size);
+        }
+    }
+
+    private static final class ArrayChunk extends Chunk {
+        char[] values;
+
+        ArrayChunk(Edit edit, char[] values, int cardinality) {
+            super(edit, cardinality);
+            this.values = values;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return Arrays.binarySearch(values, 0, cardinality, (char) low) >= 0;
+        }
+
+        @Override
+        Chunk with(int low, Edit edit) {
+            if (cardinality == ARRAY_MAX) {
+                long[] words = toWords();
+                words[low >>> 6] |= 1L << low;
+                return new BitsChunk(edit, words, cardinality + 1);
+            }
+            ArrayChunk result = owned(edit) ? this
+                    : new ArrayChunk(edit, Arrays.copyOf(values, Math.min(cardinality + 1, ARRAY_MAX)), cardinality);
+            if (result.cardinality == result.values.length) {
+                result.values = Arrays.copyOf(result.values, Math.min(result.cardinality * 2, ARRAY_MAX));
+            }
+            int index = -Arrays.binarySearch(result.values, 0, result.cardinality, (char) low) - 1;
+            System.arraycopy(result.values, index, result.values, index + 1, result.cardinality - index);
+            result.values[index] = (char) low;
+            result.cardinality++;
+            return result;
+        }
+
+        @Override
+        Chunk without(int low, Edit edit) {
+            if (cardinality == 1) {
+                return null;
+            }
+            ArrayChunk result = owned(edit) ? this : new ArrayChunk(edit, Arrays.copyOf(values, cardinality), cardinality);
+            int index = Arrays.binarySearch(result.values, 0, result.cardinality, (char) low);
+            System.arraycopy(result.values, index + 1, result.values, index, result.cardinality - index - 1);
+            result.cardinality--;
+            return result;
+        }
+
+        @Override
+        long[] toWords() {
+            long[] words = new long[WORDS];
+            for (int k = 0; k < cardinality; k++) {
+                words[values[k] >>> 6] |= 1L << values[k];
+            }
+            return words;
+        }
+    }
+
+    private static final class BitsChunk extends Chunk {
+        final long[] words;
+
+        BitsChunk(Edit edit, long[] words, int cardinality) {
+            super(edit, cardinality);
+            this.words = words;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Chunk with(int low, Edit edit) {
+            BitsChunk result = owned(edit) ? this : new BitsChunk(edit, words.clone(), cardinality);
+            result.words[low >>> 6] |= 1L << low;
+            result.cardinality++;
+            return result;
+        }
+
+        @Override
+        Chunk without(int low, Edit edit) {
+            if (cardinality - 1 <= ARRAY_MAX) {
+                long[] remaining = words.clone();
+                remaining[low >>> 6] &= ~(1L << low);
+                ArrayChunk array = (ArrayChunk) fromWords(remaining, cardinality - 1);
+                return new ArrayChunk(edit, array.values, array.cardinality);
+            }
+            BitsChunk result = owned(edit) ? this : new BitsChunk(edit, words.clone(), cardinality);
+            result.words[low >>> 6] &= ~(1L << low);
+            result.cardinality--;
+            return result;
+        }
+
+        @Override
+        long[] toWords() {
+            return words.clone();
+        }
+    }
+
+    /**
+     * Walks the chunks in key order: by index through an array chunk, word by word through a bitmap chunk
+     */
+    private static final class Cursor implements PrimitiveIterator.OfLong {
+        private final LongBitmap bitmap;
+        private int chunk;
+        // Next index in an array chunk, current word in a bitmap chunk
+        private int position;
+        private long word;
+        private long next = -1;
+
+        Cursor(LongBitmap bitmap, long from) {
+            this.bitmap = bitmap;
+            long key = from >>> CHUNK_BITS;
+            int index = Arrays.binarySearch(bitmap.keys, 0, bitmap.count, key);
+            chunk = index >= 0 ? index : -index - 1;
+            if (chunk < bitmap.count) {
+                seek(index >= 0 ? (int) from & LOW_MASK : 0);
+                advance();
+            }
+        }
+
+        private void seek(int low) {
+            if (bitmap.chunks[chunk] instanceof ArrayChunk array) {
+                int index = Arrays.binarySearch(array.values, 0, array.cardinality, (char) low);
+                position = index >= 0 ? index : -index - 1;
+            } else {
+                position = low >>> 6;
+                word = ((BitsChunk) bitmap.chunks[chunk]).words[position] & (-1L << low);
+            }
+        }
+
+        private void advance() {
+            while (chunk < bitmap.count) {
+                long base = bitmap.keys[chunk] << CHUNK_BITS;
+                if (bitmap.chunks[chunk] instanceof ArrayChunk array) {
+                    if (position < array.cardinality) {
+                        next = base | array.values[position++];
+                        return;
+                    }
+                } else {
+                    long[] words = ((BitsChunk) bitmap.chunks[chunk]).words;
+                    while (word == 0 && ++position < WORDS) {
+                        word = words[position];
+                    }
+                    if (word != 0) {
+                        next = base | ((long) position << 6) | Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                        return;
+                    }
+                }
+                if (++chunk < bitmap.count) {
+                    seek(0);
+                }
+            }
+            next = -1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public long nextLong() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            long value = next;
+            advance();
+            return value;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("[");
+        forEach(value -> text.append(text.length() > 1 ? ", " : "").append(value));
+        return text.append(']').toString();
+    }
+}
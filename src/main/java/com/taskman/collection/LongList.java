@@ -0,0 +1,162 @@
+package com.taskman.collection;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Growable list of primitive longs. The *Sorted methods keep it in ascending
+ * order without duplicates, which makes it a compact ordered id set.
+ *
+ * One writer at a time; readers without locking never fail, though a reader
+ * running during a write may see it half applied.
+ */
+public final class LongList {
+
+    private static final long[] EMPTY = new long[0];
+
+    private volatile long[] elements;
+    private volatile int size;
+
+    public LongList() {
+        elements = EMPTY;
+    }
+
+    public LongList(int capacity) {
+        elements = capacity == 0 ? EMPTY : new long[capacity];
+    }
+
+    public static LongList of(long... values) {
+        LongList list = new LongList(values.length);
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return elements[index];
+    }
+
+    public void add(long value) {
+        long[] a = ensureCapacity(size + 1);
+        a[size] = value;
+        size = size + 1;
+    }
+
+    public void addAll(LongList other) {
+        int count = other.size;
+        long[] source = other.elements;
+        long[] a = ensureCapacity(size + count);
+        System.arraycopy(source, 0, a, size, Math.min(count, source.length));
+        size = size + count;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void forEach(LongConsumer action) {
+        long[] a = elements;
+        int n = Math.min(size, a.length);
+        for (int i = 0; i < n; i++) {
+            action.accept(a[i]);
+        }
+    }
+
+    public long[] toArray() {
+        long[] a = elements;
+        return Arrays.copyOf(a, Math.min(size, a.length));
+    }
+
+    /**
+     * Sorts ascending and drops duplicates
+     */
+    public void sortUnique() {
+        long[] a = elements;
+        Arrays.sort(a, 0, size);
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || a[i] != a[unique - 1]) {
+                a[unique++] = a[i];
+            }
+        }
+        size = unique;
+    }
+
+    // Sorted set operations
+
+    /**
+     * Inserts the value in order; returns false if it was already present
+     */
+    public boolean addSorted(long value) {
+        int n = size;
+        if (n == 0 || elements[n - 1] < value) {
+            // Ids grow, so inserts are almost always appends
+            add(value);
+            return true;
+        }
+        int index = Arrays.binarySearch(elements, 0, n, value);
+        if (index >= 0) {
+            return false;
+        }
+        int at = -index - 1;
+        long[] a = ensureCapacity(n + 1);
+        System.arraycopy(a, at, a, at + 1, n - at);
+        a[at] = value;
+        size = n + 1;
+        return true;
+    }
+
+    /**
+     * Removes the value; returns false if it was not present
+     */
+    public boolean removeSorted(long value) {
+        int n = size;
+        int index = Arrays.binarySearch(elements, 0, n, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(elements, index + 1, elements, index, n - index - 1);
+        size = n - 1;
+        return true;
+    }
+
+    public boolean containsSorted(long value) {
+        long[] a = elements;
+        return Arrays.binarySearch(a, 0, Math.min(size, a.length), value) >= 0;
+    }
+
+    /**
+     * Index of the first element greater than the value
+     */
+    public int indexAfter(long value) {
+        long[] a = elements;
+        int index = Arrays.binarySearch(a, 0, Math.min(size, a.length), value);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private long[] ensureCapacity(int capacity) {
+        long[] a = elements;
+        if (capacity > a.length) {
+            a = Arrays.copyOf(a, Math.max(capacity, Math.max(8, a.length + (a.length >> 1))));
+            elements = a;
+        }
+        return a;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
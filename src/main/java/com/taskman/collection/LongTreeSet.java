@@ -0,0 +1,488 @@
+package com.taskman.collection;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+/**
+ * Persistent sorted set of longs: a B+tree with up to 64 keys per leaf and
+ * 32 children per inner node. Inner nodes know the size of every subtree,
+ * so rank and select are logarithmic as well as lookups. Updates copy the
+ * path to the changed leaf (or change it in place under the same Edit) and
+ * return a new set; a LongTreeSet that has been handed out never changes.
+ */
+public final class LongTreeSet {
+
+    private static final int LEAF_CAPACITY = 64;
+    private static final int INNER_CAPACITY = 32;
+
+    private static final LongTreeSet EMPTY = new LongTreeSet(null);
+
+    private final Node root;
+
+    private LongTreeSet(Node root) {
+        this.root = root;
+    }
+
+    public static LongTreeSet empty() {
+        return EMPTY;
+    }
+
+    public static LongTreeSet of(long... keys) {
+        Edit edit = new Edit();
+        LongTreeSet set = EMPTY;
+        for (long key : keys) {
+            set = set.with(key, edit);
+        }
+        return set;
+    }
+
+    public int size() {
+        return root == null ? 0 : root.size();
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public boolean contains(long key) {
+        if (root == null) {
+            return false;
+        }
+        Node node = root;
+        while (node instanceof Inner inner) {
+            node = inner.children[inner.childIndex(key)];
+        }
+        Leaf leaf = (Leaf) node;
+        return Arrays.binarySearch(leaf.keys, 0, leaf.count, key) >= 0;
+    }
+
+    public LongTreeSet with(long key, Edit edit) {
+        if (root == null) {
+            return new LongTreeSet(new Leaf(edit, new long[] {key, 0, 0, 0}, 1));
+        }
+        if (contains(key)) {
+            return this;
+        }
+        Node node = add(root, key, edit);
+        if (node.overflowing()) {
+            node = new Inner(edit, node, node.split(edit));
+        }
+        return new LongTreeSet(node);
+    }
+
+    public LongTreeSet without(long key, Edit edit) {
+        if (!contains(key)) {
+            return this;
+        }
+        Node node = remove(root, key, edit);
+        while (node instanceof Inner inner && inner.count == 1) {
+            node = inner.children[0];
+        }
+        return node.count == 0 ? EMPTY : new LongTreeSet(node);
+    }
+
+    /**
+     * Number of keys below the given key
+     */
+    public int rank(long key) {
+        if (root == null) {
+            return 0;
+        }
+        int rank = 0;
+        Node node = root;
+        while (node instanceof Inner inner) {
+            int index = inner.childIndex(key);
+            for (int i = 0; i < index; i++) {
+                rank += inner.children[i].size();
+            }
+            node = inner.children[index];
+        }
+        Leaf leaf = (Leaf) node;
+        return rank + lowerBound(leaf.keys, leaf.count, key);
+    }
+
+    /**
+     * The key at the given position in ascending order
+     */
+    public long select(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size());
+        }
+        Node node = root;
+        while (node instanceof Inner inner) {
+            int child = 0;
+            while (index >= inner.children[child].size()) {
+                index -= inner.children[child].size();
+                child++;
+            }
+            node = inner.children[child];
+        }
+        return ((Leaf) node).keys[index];
+    }
+
+    public void forEach(LongConsumer action) {
+        if (root != null) {
+            visit(root, action);
+        }
+    }
+
+    public PrimitiveIterator.OfLong iterator() {
+        return new Cursor(root, Long.MIN_VALUE);
+    }
+
+    /**
+     * Keys at or above the given key, in ascending order
+     */
+    public PrimitiveIterator.OfLong iterator(long fromKey) {
+        return new Cursor(root, fromKey);
+    }
+
+    public LongList toList() {
+        LongList list = new LongList(size());
+        forEach(list::add);
+        return list;
+    }
+
+    private static Node add(Node node, long key, Edit edit) {
+        if (node instanceof Leaf leaf) {
+            Leaf result = leaf.editable(edit);
+            result.insert(lowerBound(result.keys, result.count, key), key);
+            return result;
+        }
+        Inner inner = (Inner) node;
+        int index = inner.childIndex(key);
+        Node child = add(inner.children[index], key, edit);
+        Inner result = inner.editable(edit);
+        result.children[index] = child;
+        result.lows[index] = child.min();
+        result.size++;
+        if (child.overflowing()) {
+            result.insertChild(index + 1, child.split(edit));
+        }
+        return result;
+    }
+
+    /**
+     * Removes a key known to be present; the returned node may be empty
+     */
+    private static Node remove(Node node, long key, Edit edit) {
+        if (node instanceof Leaf leaf) {
+            Leaf result = leaf.editable(edit);
+            result.delete(Arrays.binarySearch(result.keys, 0, result.count, key));
+            return result;
+        }
+        Inner inner = (Inner) node;
+        int index = inner.childIndex(key);
+        Node child = remove(inner.children[index], key, edit);
+        Inner result = inner.editable(edit);
+        result.size--;
+        if (child.count == 0) {
+            result.deleteChild(index);
+            return result;
+        }
+        result.children[index] = child;
+        result.lows[index] = child.min();
+        if (child.count < child.capacity() / 4 && result.count > 1) {
+            int left = index + 1 < result.count ? index : index - 1;
+            Node first = result.children[left];
+            Node second = result.children[left + 1];
+            if (first.count + second.count <= first.capacity()) {
+                result.children[left] = first.editable(edit).absorb(second);
+                result.deleteChild(left + 1);
+            }
+        }
+        return result;
+    }
+
+    private static void visit(Node node, LongConsumer action) {
+        if (node instanceof Leaf leaf) {
+            for (int i = 0; i < leaf.count; i++) {
+                action.accept(leaf.keys[i]);
+            }
+            return;
+        }
+        Inner inner = (Inner) node;
+        for (int i = 0; i < inner.count; i++) {
+            visit(inner.children[i], action);
+        }
+    }
+
+    /**
+     * Index of the first key not below the given key
+     */
+    private static int lowerBound(long[] keys, int count, long key) {
+        int index = Arrays.binarySearch(keys, 0, count, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private abstract static sealed class Node permits Leaf, Inner {
+        final Edit edit;
+        int count;
+
+        Node(Edit edit, int count) {
+            this.edit = edit;
+            this.count = count;
+        }
+
+        boolean owned(Edit edit) {
+            return edit != null && this.edit == edit;
+        }
+
+        boolean overflowing() {
+            return count > capacity();
+        }
+
+        abstract int capacity();
+
+        abstract int size();
+
+        abstract long min();
+
+        abstract Node editable(Edit edit);
+
+        /**
+         * Moves the upper half into a new node; only called on an owned node
+         */
+        abstract Node split(Edit edit);
+
+        /**
+         * Appends the contents of the next sibling; only called on an owned node
+         */
+        abstract Node absorb(Node next);
+    }
+
+    private static final class Leaf extends Node {
+        long[] keys;
+
+        Leaf(Edit edit, long[] keys, int count) {
+            super(edit, count);
+            this.keys = keys;
+        }
+
+        @Override
+        int capacity() {
+            return LEAF_CAPACITY;
+        }
+
+        @Override
+        int size() {
+            return count;
+        }
+
+        @Override
+        long min() {
+            return keys[0];
+        }
+
+        @Override
+        Leaf editable(Edit edit) {
+            return owned(edit) ? this
+                    : new Leaf(edit, Arrays.copyOf(keys, Math.min(count + 1, LEAF_CAPACITY + 1)), count);
+        }
+
+        void insert(int index, long key) {
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, Math.min(count * 2, LEAF_CAPACITY + 1));
+            }
+            System.arraycopy(keys, index, keys, index + 1, count - index);
+            keys[index] = key;
+            count++;
+        }
+
+        void delete(int index) {
+            System.arraycopy(keys, index + 1, keys, index, count - index - 1);
+            count--;
+        }
+
+        @Override
+        Node split(Edit edit) {
+            int half = count / 2;
+            Leaf right = new Leaf(edit, Arrays.copyOfRange(keys, half, LEAF_CAPACITY + 1), count - half);
+            count = half;
+            return right;
+        }
+
+        @Override
+        Node absorb(Node next) {
+            Leaf other = (Leaf) next;
+            if (keys.length < count + other.count) {
+                keys = Arrays.copyOf(keys, LEAF_CAPACITY + 1);
+            }
+            System.arraycopy(other.keys, 0, keys, count, other.count);
+            count += other.count;
+            return this;
+        }
+    }
+
+    private static final class Inner extends Node {
+        final Node[] children;
+        // Smallest key of each child
+        final long[] lows;
+        int size;
+
+        Inner(Edit edit, Node[] children, long[] lows, int count, int size) {
+            super(edit, count);
+            this.children = children;
+            this.lows = lows;
+            this.size = size;
+        }
+
+        Inner(Edit edit, Node left, Node right) {
+            this(edit, new Node[INNER_CAPACITY + 1], new long[INNER_CAPACITY + 1], 2, left.size() + right.size());
+            children[0] = left;
+            children[1] = right;
+            lows[0] = left.min();
+            lows[1] = right.min();
+        }
+
+        @Override
+        int capacity() {
+            return INNER_CAPACITY;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        long min() {
+            return lows[0];
+        }
+
+        @Override
+        Inner editable(Edit edit) {
+            return owned(edit) ? this : new Inner(edit, children.clone(), lows.clone(), count, size);
+        }
+
+        /**
+         * The child whose range holds the key: the last one starting at or below it
+         */
+        int childIndex(long key) {
+            int index = Arrays.binarySearch(lows, 0, count, key);
+            return index >= 0 ? index : Math.max(0, -index - 2);
+        }
+
+        void insertChild(int index, Node child) {
+            System.arraycopy(children, index, children, index + 1, count - index);
+            System.arraycopy(lows, index, lows, index + 1, count - index);
+            children[index] = child;
+            lows[index] = child.min();
+            count++;
+        }
+
+        void deleteChild(int index) {
+            System.arraycopy(children, index + 1, children, index, count - index - 1);
+            System.arraycopy(lows, index + 1, lows, index, count - index - 1);
+            children[--count] = null;
+        }
+
+        @Override
+        Node split(Edit edit) {
+            int half = count / 2;
+            Inner right = new Inner(edit, new Node[INNER_CAPACITY + 1], new long[INNER_CAPACITY + 1], 0, 0);
+            for (int i = half; i < count; i++) {
+                right.children[i - half] = children[i];
+                right.lows[i - half] = lows[i];
+                right.size += children[i].size();
+                children[i] = null;
+            }
+            right.count = count - half;
+            size -= right.size;
+            count = half;
+            return right;
+        }
+
+        @Override
+        Node absorb(Node next) {
+            Inner other = (Inner) next;
+            System.arraycopy(other.children, 0, children, count, other.count);
+            System.arraycopy(other.lows, 0, lows, count, other.count);
+            count += other.count;
+            size += other.size;
+            return this;
+        }
+    }
+
+    /**
+     * Walks the leaves left to right, keeping the path of inner nodes above the current leaf
+     */
+    private static final class Cursor implements PrimitiveIterator.OfLong {
+        private final Inner[] path;
+        private final int[] positions;
+        private int depth;
+        private Leaf leaf;
+        private int index;
+
+        Cursor(Node root, long from) {
+            int height = 0;
+            for (Node node = root; node instanceof Inner inner; node = inner.children[0]) {
+                height++;
+            }
+            path = new Inner[height];
+            positions = new int[height];
+            if (root == null) {
+                return;
+            }
+            Node node = root;
+            while (node instanceof Inner inner) {
+                int child = inner.childIndex(from);
+                path[depth] = inner;
+                positions[depth++] = child;
+                node = inner.children[child];
+            }
+            leaf = (Leaf) node;
+            index = lowerBound(leaf.keys, leaf.count, from);
+            if (index == leaf.count) {
+                nextLeaf();
+            }
+        }
+
+        private void nextLeaf() {
+            while (depth > 0) {
+                Inner parent = path[depth - 1];
+                int child = positions[depth - 1] + 1;
+                if (child < parent.count) {
+                    positions[depth - 1] = child;
+                    Node node = parent.children[child];
+                    while (node instanceof Inner inner) {
+                        path[depth] = inner;
+                        positions[depth++] = 0;
+                        node = inner.children[0];
+                    }
+                    leaf = (Leaf) node;
+                    index = 0;
+                    return;
+                }
+                depth--;
+            }
+            leaf = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null;
+        }
+
+        @Override
+        public long nextLong() {
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            long key = leaf.keys[index++];
+            if (index == leaf.count) {
+                nextLeaf();
+            }
+            return key;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("[");
+        forEach(key -> text.append(text.length() > 1 ? ", " : "").append(key));
+        return text.append(']').toString();
+    }
+}
@@ -0,0 +1,355 @@
+package com.taskman.collection;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Persistent map from non-negative long keys to objects: a 32-way radix trie
+ * over the key bits, with bitmap-compressed nodes so sparse keys cost no
+ * empty slots. Iteration is in key order. Updates copy the path to the
+ * changed leaf (or change it in place under the same Edit) and return a new
+ * map; a LongTrie that has been handed out never changes.
+ */
+public final class LongTrie<V> implements Iterable<V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int MAX_SHIFT = 60;
+    private static final Object[] NO_SLOTS = new Object[0];
+
+    private static final LongTrie<?> EMPTY = new LongTrie<>(null, 0);
+
+    private final Node root;
+    // Bit offset of the root's digit; the root covers keys below 2^(shift + BITS)
+    private final int shift;
+
+    private LongTrie(Node root, int shift) {
+        this.root = root;
+        this.shift = shift;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> LongTrie<V> empty() {
+        return (LongTrie<V>) EMPTY;
+    }
+
+    public int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (root == null || key < 0 || !fits(key, shift)) {
+            return null;
+        }
+        Node node = root;
+        for (int level = shift; ; level -= BITS) {
+            int bit = 1 << ((key >>> level) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[node.index(bit)];
+            if (level == 0) {
+                return (V) slot;
+            }
+            node = (Node) slot;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the key to a non-null value
+     */
+    public LongTrie<V> put(long key, V value, Edit edit) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative key " + key);
+        }
+        Objects.requireNonNull(value, "value");
+        int delta = containsKey(key) ? 0 : 1;
+        Node node = root;
+        int level = shift;
+        if (node == null) {
+            node = new Node(edit, 0, NO_SLOTS, 0);
+            level = 0;
+        }
+        while (!fits(key, level)) {
+            // Grow upwards: the current root becomes child 0 of a wider root
+            node = new Node(edit, 1, new Object[] {node}, node.size);
+            level += BITS;
+        }
+        return new LongTrie<>(put(node, level, key, value, edit, delta), level);
+    }
+
+    public LongTrie<V> remove(long key, Edit edit) {
+        if (!containsKey(key)) {
+            return this;
+        }
+        Node node = remove(root, shift, key, edit);
+        return node == null ? empty() : new LongTrie<>(node, shift);
+    }
+
+    /**
+     * The value at the given position in key order
+     */
+    @SuppressWarnings("unchecked")
+    public V select(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size());
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            int child = 0;
+            while (true) {
+                Node next = (Node) node.slots[child];
+                if (index < next.size) {
+                    node = next;
+                    break;
+                }
+                index -= next.size;
+                child++;
+            }
+        }
+        return (V) node.slots[index];
+    }
+
+    public void forEachEntry(Visitor<? super V> visitor) {
+        if (root != null) {
+            visit(root, shift, 0, visitor);
+        }
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * Values of the keys at or above the given key, in key order
+     */
+    public Iterator<V> iterator(long fromKey) {
+        return new Cursor<>(this, fromKey);
+    }
+
+    /**
+     * Read-only list of the values in key order; index access walks down the trie
+     */
+    public List<V> asList() {
+        return new AbstractList<>() {
+            @Override
+            public V get(int index) {
+                return select(index);
+            }
+
+            @Override
+            public int size() {
+                return LongTrie.this.size();
+            }
+
+            @Override
+            public Iterator<V> iterator() {
+                return LongTrie.this.iterator();
+            }
+        };
+    }
+
+    private static boolean fits(long key, int shift) {
+        return shift + BITS > 62 || (key >>> (shift + BITS)) == 0;
+    }
+
+    private static Node put(Node node, int level, long key, Object value, Edit edit, int delta) {
+        int bit = 1 << ((key >>> level) & MASK);
+        int index = node.index(bit);
+        Node result;
+        if ((node.bitmap & bit) != 0) {
+            result = node.editable(edit);
+            result.slots[index] = level == 0 ? value
+                    : put((Node) result.slots[index], level - BITS, key, value, edit, delta);
+        } else {
+            Object child = level == 0 ? value
+                    : put(new Node(edit, 0, NO_SLOTS, 0), level - BITS, key, value, edit, delta);
+            result = node.inserted(edit, bit, index, child);
+        }
+        result.size += delta;
+        return result;
+    }
+
+    /**
+     * Removes a key known to be present; returns null once the node is empty
+     */
+    private static Node remove(Node node, int level, long key, Edit edit) {
+        int bit = 1 << ((key >>> level) & MASK);
+        int index = node.index(bit);
+        Node child = level == 0 ? null : remove((Node) node.slots[index], level - BITS, key, edit);
+        Node result;
+        if (child == null) {
+            if (node.bitmap == bit) {
+                return null;
+            }
+            result = node.removed(edit, bit, index);
+        } else {
+            result = node.editable(edit);
+            result.slots[index] = child;
+        }
+        result.size--;
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void visit(Node node, int level, long base, Visitor<? super V> visitor) {
+        int index = 0;
+        for (int bits = node.bitmap; bits != 0; bits &= bits - 1) {
+            long key = base | ((long) Integer.numberOfTrailingZeros(bits) << level);
+            Object slot = node.slots[index++];
+            if (level == 0) {
+                visitor.visit(key, (V) slot);
+            } else {
+                visit((Node) slot, level - BITS, key, visitor);
+            }
+        }
+    }
+
+    private static final class Node {
+        private final Edit edit;
+        private int bitmap;
+        private Object[] slots;
+        // Number of values below this node
+        private int size;
+
+        Node(Edit edit, int bitmap, Object[] slots, int size) {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.slots = slots;
+            this.size = size;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        Node editable(Edit edit) {
+            return edit != null && this.edit == edit ? this : new Node(edit, bitmap, slots.clone(), size);
+        }
+
+        Node inserted(Edit edit, int bit, int index, Object child) {
+            Object[] copy = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            copy[index] = child;
+            System.arraycopy(slots, index, copy, index + 1, slots.length - index);
+            if (edit != null && this.edit == edit) {
+                bitmap |= bit;
+                slots = copy;
+                return this;
+            }
+            return new Node(edit, bitmap | bit, copy, size);
+        }
+
+        Node removed(Edit edit, int bit, int index) {
+            Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            System.arraycopy(slots, index + 1, copy, index, slots.length - index - 1);
+            if (edit != null && this.edit == edit) {
+                bitmap &= ~bit;
+                slots = copy;
+                return this;
+            }
+            return new Node(edit, bitmap & ~bit, copy, size);
+        }
+    }
+
+    /**
+     * Depth-first walk that keeps, per level, the node and the digits of it still to visit
+     */
+    private static final class Cursor<V> implements Iterator<V> {
+        private final Node[] path;
+        private final int[] pending;
+        private final int shift;
+        private int depth = -1;
+        private Object next;
+
+        Cursor(LongTrie<V> trie, long from) {
+            shift = trie.shift;
+            path = new Node[MAX_SHIFT / BITS + 1];
+            pending = new int[path.length];
+            from = Math.max(0, from);
+            if (trie.root == null || !fits(from, shift)) {
+                return;
+            }
+            depth = 0;
+            path[0] = trie.root;
+            for (int level = shift; ; level -= BITS) {
+                Node node = path[depth];
+                int digit = (int) ((from >>> level) & MASK);
+                int atOrAfter = node.bitmap & (-1 << digit);
+                int bit = 1 << digit;
+                if (level == 0 || (node.bitmap & bit) == 0) {
+                    // Every value from here on is at or above the start key
+                    pending[depth] = atOrAfter;
+                    break;
+                }
+                pending[depth] = atOrAfter & ~bit;
+                path[++depth] = (Node) node.slots[node.index(bit)];
+            }
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                int bits = pending[depth];
+                if (bits == 0) {
+                    depth--;
+                    continue;
+                }
+                int bit = bits & -bits;
+                pending[depth] = bits & ~bit;
+                Node node = path[depth];
+                Object slot = node.slots[node.index(bit)];
+                if (shift - depth * BITS == 0) {
+                    next = slot;
+                    return;
+                }
+                Node child = (Node) slot;
+                path[++depth] = child;
+                pending[depth] = child.bitmap;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) next;
+            advance();
+            return value;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Visitor<V> {
+        void visit(long key, V value);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("{");
+        forEachEntry((key, value) -> text.append(text.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return text.append('}').toString();
+    }
+}
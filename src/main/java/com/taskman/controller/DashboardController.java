@@ -0,0 +1,30 @@
+package com.taskman.controller;
+
+import com.taskman.service.DashboardStats;
+import com.taskman.service.DashboardStatsService;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+
+/**
+ * Controller for the dashboard; reads the global figures once per request
+ */
+@Named
+@RequestScoped
+public class DashboardController {
+
+    // Rows of "Carga por Responsable"
+    private static final int BUSIEST_OWNERS = 5;
+
+    @Inject
+    private DashboardStatsService dashboardStatsService;
+
+    private DashboardStats stats;
+
+    public DashboardStats getStats() {
+        if (stats == null) {
+            stats = dashboardStatsService.getStats(BUSIEST_OWNERS);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,180 @@
+package com.taskman.controller;
+
+import com.taskman.metrics.LatencyHistogram;
+import com.taskman.metrics.MetricsRegistry;
+import com.taskman.metrics.PhaseTimingListener;
+import com.taskman.metrics.SlowRequest;
+import com.taskman.metrics.SlowRequestLog;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the time of JSF requests goes: each view and AJAX source with the
+ * mean of every lifecycle phase, the slowest recent requests, and the
+ * timed methods that took the most time overall
+ */
+@Named
+@RequestScoped
+public class DiagnosticsController {
+
+    // Lifecycle phases in order, as named in the phase histogram labels
+    private static final List<String> PHASES = List.of("restore_view", "apply_request_values",
+            "process_validations", "update_model_values", "invoke_application", "render_response");
+
+    private static final int TOP_METHODS = 20;
+
+    @Inject
+    private MetricsRegistry registry;
+
+    @Inject
+    private SlowRequestLog slowRequestLog;
+
+    private List<RequestRow> requests;
+    private List<MethodRow> methods;
+
+    /**
+     * Every view and AJAX source requested since startup, slowest mean first
+     */
+    public List<RequestRow> getRequests() {
+        if (requests == null) {
+            Map<String, RequestRow> rows = new LinkedHashMap<>();
+            for (MetricsRegistry.HistogramSnapshot series : registry.histograms(PhaseTimingListener.REQUEST_DURATION)) {
+                rows.put(key(series), new RequestRow(series.label("view"), series.label("source"), series.histogram()));
+            }
+            for (MetricsRegistry.HistogramSnapshot series : registry.histograms(PhaseTimingListener.PHASE_DURATION)) {
+                RequestRow row = rows.get(key(series));
+                int phase = PHASES.indexOf(series.label("phase"));
+                if (row != null && phase >= 0) {
+                    row.phaseMillis[phase] = series.histogram().meanNanos() / 1e6;
+                }
+            }
+            requests = new ArrayList<>(rows.values());
+            requests.sort(Comparator.comparingDouble(RequestRow::getMeanMillis).reversed());
+        }
+        return requests;
+    }
+
+    public List<SlowRequest> getSlowRequests() {
+        return slowRequestLog.slowest();
+    }
+
+    public long getSlowThresholdMillis() {
+        return slowRequestLog.getThresholdMillis();
+    }
+
+    /**
+     * The timed methods with the most time spent in them since startup
+     */
+    public List<MethodRow> getMethods() {
+        if (methods == null) {
+            methods = registry.histograms(MetricsRegistry.METHOD_DURATION).stream()
+                    .map(series -> new MethodRow(series.label("class") + "." + series.label("method"), series.histogram()))
+                    .sorted(Comparator.comparingDouble(MethodRow::getTotalMillis).reversed())
+                    .limit(TOP_METHODS)
+                    .toList();
+        }
+        return methods;
+    }
+
+    private static String key(MetricsRegistry.HistogramSnapshot series) {
+        return series.label("view") + "\u0000" + series.label("source");
+    }
+
+    /**
+     * Requests of one view from one AJAX source, none for full page requests
+     */
+    public static final class RequestRow {
+
+        private final String view;
+        private final String source;
+        private final long count;
+        private final double meanMillis;
+        private final double p95Millis;
+        private final double p99Millis;
+        private final Double[] phaseMillis = new Double[PHASES.size()];
+
+        RequestRow(String view, String source, LatencyHistogram.Snapshot total) {
+            this.view = view;
+            this.source = source;
+            this.count = total.count();
+            this.meanMillis = total.meanNanos() / 1e6;
+            this.p95Millis = total.percentile(0.95) / 1e6;
+            this.p99Millis = total.percentile(0.99) / 1e6;
+        }
+
+        public String getView() {
+            return view;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP95Millis() {
+            return p95Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        /**
+         * Mean milliseconds of each phase in lifecycle order, null for phases that never ran
+         */
+        public List<Double> getPhaseMillis() {
+            return Arrays.asList(phaseMillis);
+        }
+    }
+
+    public static final class MethodRow {
+
+        private final String name;
+        private final long count;
+        private final double meanMicros;
+        private final double p99Micros;
+        private final double totalMillis;
+
+        MethodRow(String name, LatencyHistogram.Snapshot histogram) {
+            this.name = name;
+            this.count = histogram.count();
+            this.meanMicros = histogram.meanNanos() / 1e3;
+            this.p99Micros = histogram.percentile(0.99) / 1e3;
+            this.totalMillis = histogram.sum() / 1e6;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMicros() {
+            return meanMicros;
+        }
+
+        public double getP99Micros() {
+            return p99Micros;
+        }
+
+        public double getTotalMillis() {
+            return totalMillis;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.taskman.controller;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.primefaces.model.FilterMeta;
+import org.primefaces.model.LazyDataModel;
+import org.primefaces.model.SortMeta;
+
+/**
+ * Lazy data model that loads one page at a time through the service layer.
+ * Moving to the next page with the same sort seeks from the last row of the
+ * current page (keyset paging), so deep pages do not cost O(offset). The
+ * cursor is that row as it was rendered, sort values and id, so edits or
+ * deletes made meanwhile by others neither skip nor repeat rows.
+ */
+public abstract class KeysetLazyDataModel<T> extends LazyDataModel<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private int lastFirst = -1;
+    private int lastPageSize;
+    private String lastSortField;
+    private boolean lastAscending;
+    // Last row of the previous page, as rendered; rows are immutable projections
+    private T lastRow;
+
+    @Override
+    public int count(Map<String, FilterMeta> filterBy) {
+        return (int) Math.min(countRows(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<T> load(int first, int pageSize, Map<String, SortMeta> sortBy, Map<String, FilterMeta> filterBy) {
+        SortMeta sort = sortBy.values().stream()
+                .filter(SortMeta::isActive)
+                .sorted()
+                .findFirst()
+                .orElse(null);
+        String sortField = sort == null ? null : sort.getField();
+        boolean ascending = sort == null || !sort.getOrder().isDescending();
+
+        List<T> page = null;
+        if (lastRow != null && first == lastFirst + lastPageSize && pageSize == lastPageSize
+                && Objects.equals(sortField, lastSortField) && ascending == lastAscending) {
+            page = loadPageAfter(sortField, ascending, lastRow, pageSize);
+        }
+        if (page == null) {
+            page = loadPage(sortField, ascending, first, pageSize);
+        }
+
+        lastFirst = first;
+        lastPageSize = pageSize;
+        lastSortField = sortField;
+        lastAscending = ascending;
+        lastRow = page.isEmpty() ? null : page.get(page.size() - 1);
+        return page;
+    }
+
+    /**
+     * Forgets the keyset cursor; call whenever the criteria or the underlying data change
+     */
+    public void reset() {
+        lastFirst = -1;
+        lastRow = null;
+    }
+
+    @Override
+    public String getRowKey(T row) {
+        return String.valueOf(rowId(row));
+    }
+
+    @Override
+    public T getRowData(String rowKey) {
+        try {
+            return findRow(Long.valueOf(rowKey));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    protected abstract long countRows();
+
+    protected abstract List<T> loadPage(String sortField, boolean ascending, int offset, int limit);
+
+    /**
+     * The page after the given row, seeking from its rendered sort values and
+     * id rather than the entity's current ones; null to load it by offset instead
+     */
+    protected abstract List<T> loadPageAfter(String sortField, boolean ascending, T after, int limit);
+
+    protected abstract Long rowId(T row);
+
+    protected abstract T findRow(Long id);
+}
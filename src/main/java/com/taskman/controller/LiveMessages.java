@@ -0,0 +1,132 @@
+package com.taskman.controller;
+
+import com.taskman.event.ChangeType;
+import com.taskman.event.ProjectChange;
+import com.taskman.event.TaskChange;
+import com.taskman.model.Project;
+import com.taskman.model.Task;
+import com.taskman.service.DashboardStats;
+import com.taskman.service.TaskService;
+import jakarta.json.Json;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The JSON messages pushed to open pages, as maps the push channel encodes.
+ * They carry only what custom.js needs to patch the rows and stat cards
+ * already on the page: a toggle sends the new flag and version, not the
+ * row, and a delete only the id. Row-level ajax responses reuse them.
+ */
+final class LiveMessages {
+
+    // Same format as the tables' f:convertDateTime
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private LiveMessages() {
+    }
+
+    /**
+     * The project table rows that changed, plus the new project count
+     */
+    static Map<String, Object> projects(List<ProjectChange> changes, long projectCount) {
+        List<Map<String, Object>> rows = new ArrayList<>(changes.size());
+        for (ProjectChange change : changes) {
+            Map<String, Object> row = row(change.type(), change.projectId());
+            Project project = change.project();
+            if (project != null) {
+                row.put("name", project.getName());
+                row.put("owner", project.getOwner());
+                row.put("description", project.getDescription());
+                row.put("status", statusClass(project));
+                row.put("statusLabel", project.getStatus().getDisplayName());
+                row.put("version", project.getVersion());
+            }
+            rows.add(row);
+        }
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("projects", rows);
+        message.put("count", projectCount);
+        return message;
+    }
+
+    /**
+     * The task table rows of one project that changed, plus its task counts.
+     * A task moved to another project is a delete here.
+     */
+    static Map<String, Object> tasks(Long projectId, List<TaskChange> changes, TaskService taskService) {
+        List<Map<String, Object>> rows = new ArrayList<>(changes.size());
+        for (TaskChange change : changes) {
+            if (change.task() == null || !projectId.equals(change.projectId())) {
+                rows.add(row(ChangeType.DELETED, change.taskId()));
+            } else {
+                rows.add(taskRow(change.type(), change.task(), taskService));
+            }
+        }
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("project", projectId);
+        message.put("tasks", rows);
+        message.put("stats", taskStats(projectId, taskService));
+        return message;
+    }
+
+    static Map<String, Object> taskRow(ChangeType type, Task task, TaskService taskService) {
+        Map<String, Object> row = row(type, task.getId());
+        if (type != ChangeType.TOGGLED) {
+            row.put("title", task.getTitle());
+            row.put("priority", task.getPriority() == null ? null : task.getPriority().name().toLowerCase(Locale.ROOT));
+            row.put("priorityLabel", task.getPriority() == null ? null : task.getPriority().getDisplayName());
+            row.put("due", task.getDueDate() == null ? null : DATE.format(task.getDueDate()));
+            row.put("notes", task.getNotes());
+        }
+        row.put("done", task.isDone());
+        row.put("overdue", taskService.isTaskOverdue(task));
+        row.put("version", task.getVersion());
+        return row;
+    }
+
+    static Map<String, Object> taskStats(Long projectId, TaskService taskService) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("total", taskService.getTaskCountByProjectId(projectId));
+        stats.put("open", taskService.getTaskCountByProjectIdAndDone(projectId, false));
+        stats.put("done", taskService.getTaskCountByProjectIdAndDone(projectId, true));
+        stats.put("overdue", taskService.getOverdueTaskCountByProjectId(projectId));
+        return stats;
+    }
+
+    /**
+     * The dashboard's stat cards
+     */
+    static Map<String, Object> dashboard(DashboardStats stats) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("projects", stats.getProjectCount());
+        message.put("tasks", stats.getTaskCount());
+        message.put("done", stats.getCompletedTaskCount());
+        message.put("open", stats.getOpenTaskCount());
+        message.put("overdue", stats.getOverdueTaskCount());
+        return message;
+    }
+
+    /**
+     * A message as JSON text, safe to embed in the CDATA section of a partial response
+     */
+    static String toJson(Map<String, Object> message) {
+        // "]]>" can only occur inside a string, where \u003e is the same text
+        return Json.createObjectBuilder(message).build().toString().replace("]]>", "]]\\u003e");
+    }
+
+    private static Map<String, Object> row(ChangeType type, long id) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("op", type.name().toLowerCase(Locale.ROOT));
+        row.put("id", id);
+        return row;
+    }
+
+    // The suffix of the status-badge class the tables render
+    private static String statusClass(Project project) {
+        return project.getStatus().name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,74 @@
+package com.taskman.controller;
+
+import com.taskman.event.ChangeBatch;
+import com.taskman.event.TaskChange;
+import com.taskman.service.DashboardStatsService;
+import com.taskman.service.ProjectService;
+import com.taskman.service.TaskService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.faces.push.Push;
+import jakarta.faces.push.PushContext;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pushes each batch of changes to the pages that show them, over the
+ * f:websocket channels they open: every projects page, the views of the
+ * projects whose tasks changed (their websocket user is the project id),
+ * and every dashboard. Pages patch the affected rows and counters from the
+ * message instead of re-rendering their tables.
+ */
+@ApplicationScoped
+public class LiveUpdatePusher {
+
+    @Inject
+    @Push(channel = "projectChanges")
+    private PushContext projectChanges;
+
+    @Inject
+    @Push(channel = "taskChanges")
+    private PushContext taskChanges;
+
+    @Inject
+    @Push(channel = "dashboardChanges")
+    private PushContext dashboardChanges;
+
+    @Inject
+    private ProjectService projectService;
+
+    @Inject
+    private TaskService taskService;
+
+    @Inject
+    private DashboardStatsService dashboardStatsService;
+
+    void onChanges(@Observes ChangeBatch batch) {
+        if (!batch.projects().isEmpty()) {
+            projectChanges.send(LiveMessages.projects(batch.projects(), projectService.getProjectCount()));
+        }
+        tasksByProject(batch.tasks()).forEach((projectId, changes) ->
+                taskChanges.send(LiveMessages.tasks(projectId, changes, taskService), projectId));
+        dashboardChanges.send(LiveMessages.dashboard(dashboardStatsService.getStats(0)));
+    }
+
+    /**
+     * The changes each project's views need to see: a task moved between
+     * projects is listed under both
+     */
+    private static Map<Long, List<TaskChange>> tasksByProject(List<TaskChange> changes) {
+        Map<Long, List<TaskChange>> byProject = new LinkedHashMap<>();
+        for (TaskChange change : changes) {
+            if (change.projectId() != null) {
+                byProject.computeIfAbsent(change.projectId(), id -> new ArrayList<>()).add(change);
+            }
+            if (change.previousProjectId() != null && !change.previousProjectId().equals(change.projectId())) {
+                byProject.computeIfAbsent(change.previousProjectId(), id -> new ArrayList<>()).add(change);
+            }
+        }
+        return byProject;
+    }
+}
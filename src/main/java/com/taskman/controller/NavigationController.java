@@ -31,6 +31,20 @@ public class NavigationController {
         projectsItem.setIcon("fa fa-folder");
         projectsItem.setUrl("/pages/projects.xhtml");
         model.getElements().add(projectsItem);
+
+        // View state item
+        DefaultMenuItem viewStateItem = new DefaultMenuItem();
+        viewStateItem.setValue("Estado de Vista");
+        viewStateItem.setIcon("fa fa-database");
+        viewStateItem.setUrl("/pages/view-state.xhtml");
+        model.getElements().add(viewStateItem);
+
+        // Diagnostics item
+        DefaultMenuItem diagnosticsItem = new DefaultMenuItem();
+        diagnosticsItem.setValue("Diagnóstico");
+        diagnosticsItem.setIcon("fa fa-tachometer");
+        diagnosticsItem.setUrl("/pages/diagnostics.xhtml");
+        model.getElements().add(diagnosticsItem);
     }
 
     public MenuModel getModel() {
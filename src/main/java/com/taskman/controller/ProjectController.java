@@ -1,7 +1,9 @@
 package com.taskman.controller;
 
+import com.taskman.metrics.Timed;
 import com.taskman.model.Project;
 import com.taskman.model.ProjectStatus;
+import com.taskman.repository.ConcurrentUpdateException;
 import com.taskman.service.ProjectService;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.context.FacesContext;
@@ -9,20 +11,24 @@ import jakarta.faces.view.ViewScoped;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import java.io.Serializable;
-import java.util.List;
 
 /**
- * Controller for Project management
+ * Controller for Project management. Its view state is the filters, the
+ * selected project's id and the current page of immutable rows; projects
+ * are looked up by id when an action or the page needs one. newProject is
+ * the dialog's form while it is open.
  */
 @Named
 @ViewScoped
 public class ProjectController implements Serializable {
 
+    private static final long serialVersionUID = 1L;
+
     @Inject
     private ProjectService projectService;
 
-    private List<Project> projects;
-    private Project selectedProject;
+    private ProjectLazyDataModel lazyProjects;
+    private Long selectedProjectId;
     private Project newProject;
     private String searchTerm;
     private ProjectStatus statusFilter;
@@ -34,10 +40,14 @@ public class ProjectController implements Serializable {
         initNewProject();
     }
 
+    @Timed
     public void loadProjects() {
-        projects = projectService.searchProjects(searchTerm, statusFilter);
+        if (lazyProjects != null) {
+            lazyProjects.setCriteria(searchTerm, statusFilter);
+        }
     }
 
+    @Timed
     public void search() {
         loadProjects();
     }
@@ -54,7 +64,15 @@ public class ProjectController implements Serializable {
         isEditMode = false;
     }
 
-    public void initEditProject(Project project) {
+    @Timed
+    public void initEditProject(ProjectRow row) {
+        // Edit what is stored now; the row may predate live updates
+        Project project = projectService.getProjectById(row.getId()).orElse(null);
+        if (project == null) {
+            addMessage("El proyecto fue eliminado por otro usuario", FacesMessage.SEVERITY_WARN);
+            loadProjects();
+            return;
+        }
         newProject = new Project();
         newProject.setId(project.getId());
         newProject.setName(project.getName());
@@ -62,10 +80,12 @@ public class ProjectController implements Serializable {
         newProject.setStatus(project.getStatus());
         newProject.setDescription(project.getDescription());
         newProject.setCreatedAt(project.getCreatedAt());
+        newProject.setVersion(renderedVersion(project.getVersion()));
         showDialog = true;
         isEditMode = true;
     }
 
+    @Timed
     public void saveProject() {
         try {
             if (isEditMode) {
@@ -77,14 +97,24 @@ public class ProjectController implements Serializable {
             }
             loadProjects();
             closeDialog();
+        } catch (ConcurrentUpdateException e) {
+            addMessage(e.isDeleted() ? "El proyecto fue eliminado por otro usuario"
+                    : "El proyecto fue modificado por otro usuario mientras lo editaba; vuelva a abrirlo para ver los cambios",
+                    FacesMessage.SEVERITY_WARN);
+            loadProjects();
+            closeDialog();
         } catch (Exception e) {
             addMessage("Error al guardar proyecto: " + e.getMessage(), FacesMessage.SEVERITY_ERROR);
         }
     }
 
-    public void deleteProject(Project project) {
+    @Timed
+    public void deleteProject(ProjectRow project) {
         try {
             projectService.deleteProject(project.getId());
+            if (project.getId().equals(selectedProjectId)) {
+                selectedProjectId = null;
+            }
             addMessage("Proyecto eliminado exitosamente", FacesMessage.SEVERITY_INFO);
             loadProjects();
         } catch (Exception e) {
@@ -98,8 +128,9 @@ public class ProjectController implements Serializable {
         isEditMode = false;
     }
 
-    public void selectProject(Project project) {
-        selectedProject = project;
+    @Timed
+    public void selectProject(ProjectRow project) {
+        selectedProjectId = project == null ? null : project.getId();
     }
 
     public ProjectStatus[] getProjectStatuses() {
@@ -114,21 +145,42 @@ public class ProjectController implements Serializable {
         FacesContext.getCurrentInstance().addMessage(null, new FacesMessage(severity, summary, null));
     }
 
+    /**
+     * Version the row had when the page was rendered, sent along by its button;
+     * the row object itself may have been reloaded since
+     */
+    private static int renderedVersion(int current) {
+        String version = FacesContext.getCurrentInstance().getExternalContext()
+                .getRequestParameterMap().get("version");
+        try {
+            return version == null ? current : Integer.parseInt(version);
+        } catch (NumberFormatException e) {
+            return current;
+        }
+    }
+
     // Getters and Setters
-    public List<Project> getProjects() {
-        return projects;
+    public ProjectLazyDataModel getLazyProjects() {
+        if (lazyProjects == null) {
+            lazyProjects = new ProjectLazyDataModel(projectService);
+            lazyProjects.setCriteria(searchTerm, statusFilter);
+        }
+        return lazyProjects;
     }
 
-    public void setProjects(List<Project> projects) {
-        this.projects = projects;
+    public Long getSelectedProjectId() {
+        return selectedProjectId;
     }
 
-    public Project getSelectedProject() {
-        return selectedProject;
+    public void setSelectedProjectId(Long selectedProjectId) {
+        this.selectedProjectId = selectedProjectId;
     }
 
-    public void setSelectedProject(Project selectedProject) {
-        this.selectedProject = selectedProject;
+    /**
+     * The selected project as stored now, or null if none is selected or it was deleted
+     */
+    public Project getSelectedProject() {
+        return selectedProjectId == null ? null : projectService.getProjectById(selectedProjectId).orElse(null);
     }
 
     public Project getNewProject() {
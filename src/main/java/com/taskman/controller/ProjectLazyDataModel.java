@@ -0,0 +1,71 @@
+package com.taskman.controller;
+
+import com.taskman.model.Project;
+import com.taskman.model.ProjectStatus;
+import com.taskman.service.ProjectService;
+import java.util.List;
+
+/**
+ * Lazy, server-side paged and sorted model for the projects table
+ */
+public class ProjectLazyDataModel extends KeysetLazyDataModel<ProjectRow> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ProjectService projectService;
+    private String searchTerm;
+    private ProjectStatus statusFilter;
+
+    public ProjectLazyDataModel(ProjectService projectService) {
+        this.projectService = projectService;
+    }
+
+    public void setCriteria(String searchTerm, ProjectStatus statusFilter) {
+        this.searchTerm = searchTerm;
+        this.statusFilter = statusFilter;
+        reset();
+    }
+
+    @Override
+    protected long countRows() {
+        return projectService.countProjects(searchTerm, statusFilter);
+    }
+
+    @Override
+    protected List<ProjectRow> loadPage(String sortField, boolean ascending, int offset, int limit) {
+        return rows(projectService.getProjectPage(searchTerm, statusFilter, sortField, ascending, offset, limit));
+    }
+
+    @Override
+    protected List<ProjectRow> loadPageAfter(String sortField, boolean ascending, ProjectRow after, int limit) {
+        return rows(projectService.getProjectPageAfter(searchTerm, statusFilter, sortField, ascending,
+                cursor(after), limit));
+    }
+
+    @Override
+    protected Long rowId(ProjectRow row) {
+        return row.getId();
+    }
+
+    @Override
+    protected ProjectRow findRow(Long id) {
+        return projectService.getProjectById(id).map(ProjectRow::new).orElse(null);
+    }
+
+    private static List<ProjectRow> rows(List<Project> projects) {
+        return projects.stream().map(ProjectRow::new).toList();
+    }
+
+    /**
+     * The sort values of the row as it was rendered, which stay put if the project is edited or deleted since
+     */
+    private static Project cursor(ProjectRow row) {
+        Project project = new Project();
+        project.setId(row.getId());
+        project.setName(row.getName());
+        project.setOwner(row.getOwner());
+        project.setStatus(row.getStatus());
+        project.setCreatedAt(row.getCreatedAt());
+        return project;
+    }
+}
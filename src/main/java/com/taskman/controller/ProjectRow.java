@@ -0,0 +1,61 @@
+package com.taskman.controller;
+
+import com.taskman.model.Project;
+import com.taskman.model.ProjectStatus;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable row of the projects table. The view keeps these instead of the
+ * projects themselves; actions look the project up by id.
+ */
+public final class ProjectRow implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long id;
+    private final String name;
+    private final String owner;
+    private final ProjectStatus status;
+    private final LocalDateTime createdAt;
+    private final String description;
+    private final int version;
+
+    public ProjectRow(Project project) {
+        this.id = project.getId();
+        this.name = project.getName();
+        this.owner = project.getOwner();
+        this.status = project.getStatus();
+        this.createdAt = project.getCreatedAt();
+        this.description = project.getDescription();
+        this.version = project.getVersion();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public ProjectStatus getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+}
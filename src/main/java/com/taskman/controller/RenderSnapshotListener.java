@@ -0,0 +1,36 @@
+package com.taskman.controller;
+
+import com.taskman.repository.ReadScope;
+import jakarta.faces.event.PhaseEvent;
+import jakarta.faces.event.PhaseId;
+import jakarta.faces.event.PhaseListener;
+
+/**
+ * Renders each view against a single snapshot of the repositories, so the
+ * counters, tables and panels of one response always agree with each other
+ */
+public class RenderSnapshotListener implements PhaseListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String SCOPE = RenderSnapshotListener.class.getName() + ".scope";
+
+    @Override
+    public void beforePhase(PhaseEvent event) {
+        event.getFacesContext().getAttributes().put(SCOPE, ReadScope.open());
+    }
+
+    @Override
+    public void afterPhase(PhaseEvent event) {
+        // Called even when rendering failed, so the scope never leaks to the next request on this thread
+        Object scope = event.getFacesContext().getAttributes().remove(SCOPE);
+        if (scope instanceof ReadScope readScope) {
+            readScope.close();
+        }
+    }
+
+    @Override
+    public PhaseId getPhaseId() {
+        return PhaseId.RENDER_RESPONSE;
+    }
+}
@@ -0,0 +1,47 @@
+package com.taskman.controller;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Number of bytes Java serialization writes for an object graph, counted
+ * without keeping them
+ */
+final class SerializedSize {
+
+    /**
+     * Size of a graph that cannot be serialized, or that changed or failed while being measured
+     */
+    static final long UNMEASURABLE = -1;
+
+    private SerializedSize() {
+    }
+
+    static long of(Object value) {
+        CountingOutputStream counter = new CountingOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(counter)) {
+            out.writeObject(value);
+        } catch (IOException | RuntimeException e) {
+            // NotSerializableException, another request changed the graph (ConcurrentModificationException),
+            // or a writeObject() of the graph threw
+            return UNMEASURABLE;
+        }
+        return counter.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.taskman.controller;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Destroyed;
+import jakarta.enterprise.context.SessionScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.servlet.http.HttpSession;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The view state last measured for each live session, as recorded by
+ * ViewStateListener during that session's own requests. Holds only the
+ * measured sizes, never the sessions or their beans.
+ */
+@ApplicationScoped
+public class SessionRegistry {
+
+    // A session is measured at most this often, since measuring serializes its whole view state
+    private static final long MEASURE_INTERVAL_MILLIS = 10_000;
+
+    private final Map<String, Measurement> measurements = new ConcurrentHashMap<>();
+
+    void sessionDestroyed(@Observes @Destroyed(SessionScoped.class) HttpSession session) {
+        measurements.remove(session.getId());
+    }
+
+    /**
+     * Whether the session's last measurement, if any, is old enough to take another
+     */
+    boolean isDue(String sessionId, long nowMillis) {
+        Measurement last = measurements.get(sessionId);
+        return last == null || nowMillis - last.measuredAt() >= MEASURE_INTERVAL_MILLIS;
+    }
+
+    void record(String sessionId, List<ViewStateReport.ViewEntry> entries, long nowMillis) {
+        measurements.put(sessionId, new Measurement(List.copyOf(entries), nowMillis));
+    }
+
+    /**
+     * The entries last measured, by session id
+     */
+    Map<String, List<ViewStateReport.ViewEntry>> measurements() {
+        Map<String, List<ViewStateReport.ViewEntry>> entries = new ConcurrentHashMap<>();
+        measurements.forEach((id, measurement) -> entries.put(id, measurement.entries()));
+        return entries;
+    }
+
+    private record Measurement(List<ViewStateReport.ViewEntry> entries, long measuredAt) {
+    }
+}
@@ -1,9 +1,12 @@
 package com.taskman.controller;
 
-import com.taskman.model.Project;
+import com.taskman.event.ChangeType;
+import com.taskman.event.TaskChange;
+import com.taskman.metrics.Timed;
 import com.taskman.model.Task;
 import com.taskman.model.TaskPriority;
-import com.taskman.service.ProjectService;
+import com.taskman.repository.ConcurrentUpdateException;
+import com.taskman.repository.TaskQuery;
 import com.taskman.service.TaskService;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.context.FacesContext;
@@ -13,56 +16,58 @@ import jakarta.inject.Named;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import org.primefaces.PrimeFaces;
 
 /**
- * Controller for Task management
+ * Controller for Task management. Its view state is the open project's id,
+ * the filters and the current page of immutable rows; tasks are looked up
+ * by id when an action needs one. newTask is the dialog's form while it is
+ * open.
  */
 @Named
 @ViewScoped
 public class TaskController implements Serializable {
 
-    @Inject
-    private TaskService taskService;
+    private static final long serialVersionUID = 1L;
 
     @Inject
-    private ProjectService projectService;
+    private TaskService taskService;
 
-    private List<Task> tasks;
-    private Task selectedTask;
+    private TaskLazyDataModel lazyTasks;
     private Task newTask;
-    private Project currentProject;
+    private Long currentProjectId;
     private TaskPriority priorityFilter;
     private Boolean doneFilter;
     private boolean showDialog;
     private boolean isEditMode;
 
     public void init() {
-        if (currentProject != null) {
+        if (currentProjectId != null) {
             loadTasks();
-            initNewTask();
         }
     }
 
+    @Timed
     public void loadTasks() {
-        if (currentProject == null) {
+        if (currentProjectId == null) {
             return;
         }
-
-        if (priorityFilter != null && doneFilter != null) {
-            // Filter by both priority and done status
-            tasks = taskService.getTasksByProjectIdAndPriority(currentProject.getId(), priorityFilter);
-            tasks = tasks.stream()
-                    .filter(task -> task.isDone() == doneFilter)
-                    .collect(java.util.stream.Collectors.toList());
-        } else if (priorityFilter != null) {
-            tasks = taskService.getTasksByProjectIdAndPriority(currentProject.getId(), priorityFilter);
-        } else if (doneFilter != null) {
-            tasks = taskService.getTasksByProjectIdAndDone(currentProject.getId(), doneFilter);
-        } else {
-            tasks = taskService.getTasksByProjectId(currentProject.getId());
+        if (lazyTasks != null) {
+            lazyTasks.setQuery(currentQuery());
         }
     }
 
+    /**
+     * The project's tasks as narrowed by the filters in the toolbar
+     */
+    private TaskQuery currentQuery() {
+        return TaskQuery.forProject(currentProjectId)
+                .withPriority(priorityFilter)
+                .withDone(doneFilter);
+    }
+
+    @Timed
     public void filterTasks() {
         loadTasks();
     }
@@ -75,13 +80,21 @@ public class TaskController implements Serializable {
 
     public void initNewTask() {
         newTask = new Task();
-        newTask.setProjectId(currentProject.getId());
+        newTask.setProjectId(currentProjectId);
         newTask.setDueDate(LocalDate.now().plusDays(7)); // Default to 7 days from now
         showDialog = true;
         isEditMode = false;
     }
 
-    public void initEditTask(Task task) {
+    @Timed
+    public void initEditTask(TaskRow row) {
+        // Edit what is stored now; the row may predate live or row-level updates
+        Task task = taskService.getTaskById(row.getId()).orElse(null);
+        if (task == null) {
+            addMessage("La tarea fue eliminada por otro usuario", FacesMessage.SEVERITY_WARN);
+            sendDeletedRow(row.getId());
+            return;
+        }
         newTask = new Task();
         newTask.setId(task.getId());
         newTask.setProjectId(task.getProjectId());
@@ -90,41 +103,60 @@ public class TaskController implements Serializable {
         newTask.setDueDate(task.getDueDate());
         newTask.setDone(task.isDone());
         newTask.setNotes(task.getNotes());
+        newTask.setVersion(renderedVersion(task.getVersion()));
         showDialog = true;
         isEditMode = true;
     }
 
+    @Timed
     public void saveTask() {
         try {
             if (isEditMode) {
-                taskService.updateTask(newTask);
+                sendRow(ChangeType.UPDATED, taskService.updateTask(newTask));
                 addMessage("Tarea actualizada exitosamente", FacesMessage.SEVERITY_INFO);
             } else {
-                taskService.createTask(newTask);
+                sendRow(ChangeType.CREATED, taskService.createTask(newTask));
                 addMessage("Tarea creada exitosamente", FacesMessage.SEVERITY_INFO);
             }
             loadTasks();
             closeDialog();
+        } catch (ConcurrentUpdateException e) {
+            addMessage(e.isDeleted() ? "La tarea fue eliminada por otro usuario"
+                    : "La tarea fue modificada por otro usuario mientras la editaba; vuelva a abrirla para ver los cambios",
+                    FacesMessage.SEVERITY_WARN);
+            sendStoredRow(newTask.getId());
+            loadTasks();
+            closeDialog();
         } catch (Exception e) {
             addMessage("Error al guardar tarea: " + e.getMessage(), FacesMessage.SEVERITY_ERROR);
         }
     }
 
-    public void deleteTask(Task task) {
+    @Timed
+    public void deleteTask(TaskRow task) {
         try {
             taskService.deleteTask(task.getId());
             addMessage("Tarea eliminada exitosamente", FacesMessage.SEVERITY_INFO);
+            sendDeletedRow(task.getId());
             loadTasks();
         } catch (Exception e) {
             addMessage("Error al eliminar tarea: " + e.getMessage(), FacesMessage.SEVERITY_ERROR);
         }
     }
 
-    public void toggleTaskCompletion(Task task) {
+    @Timed
+    public void toggleTaskCompletion(TaskRow task) {
         try {
-            taskService.toggleTaskCompletion(task.getId());
+            sendRow(ChangeType.TOGGLED, taskService.toggleTaskCompletion(task.getId(),
+                    renderedVersion(task.getVersion())));
             addMessage("Estado de tarea actualizado", FacesMessage.SEVERITY_INFO);
             loadTasks();
+        } catch (ConcurrentUpdateException e) {
+            addMessage(e.isDeleted() ? "La tarea fue eliminada por otro usuario"
+                    : "La tarea fue modificada por otro usuario; revise su estado actual",
+                    FacesMessage.SEVERITY_WARN);
+            sendStoredRow(task.getId());
+            loadTasks();
         } catch (Exception e) {
             addMessage("Error al actualizar tarea: " + e.getMessage(), FacesMessage.SEVERITY_ERROR);
         }
@@ -136,49 +168,107 @@ public class TaskController implements Serializable {
         isEditMode = false;
     }
 
-    public boolean isTaskOverdue(Task task) {
-        return taskService.isTaskOverdue(task);
-    }
-
-    public String getRowStyleClass(Task task) {
-        return isTaskOverdue(task) ? "row-danger" : "";
-    }
-
     public TaskPriority[] getTaskPriorities() {
         return TaskPriority.values();
     }
 
+    // Counts fall back to the global rollup when no project is selected (dashboard)
     public long getOpenTaskCount() {
-        return taskService.getTaskCountByProjectIdAndDone(currentProject.getId(), false);
+        if (currentProjectId == null) {
+            return taskService.getTaskCountByDone(false);
+        }
+        return taskService.getTaskCountByProjectIdAndDone(currentProjectId, false);
     }
 
     public long getCompletedTaskCount() {
-        return taskService.getTaskCountByProjectIdAndDone(currentProject.getId(), true);
+        if (currentProjectId == null) {
+            return taskService.getTaskCountByDone(true);
+        }
+        return taskService.getTaskCountByProjectIdAndDone(currentProjectId, true);
     }
 
     public long getTotalTaskCount() {
-        return taskService.getTaskCountByProjectId(currentProject.getId());
+        if (currentProjectId == null) {
+            return taskService.getTotalTaskCount();
+        }
+        return taskService.getTaskCountByProjectId(currentProjectId);
     }
 
-    private void addMessage(String summary, FacesMessage.Severity severity) {
-        FacesContext.getCurrentInstance().addMessage(null, new FacesMessage(severity, summary, null));
+    public long getOverdueTaskCount() {
+        if (currentProjectId == null) {
+            return taskService.getOverdueTaskCount();
+        }
+        return taskService.getOverdueTaskCountByProjectId(currentProjectId);
     }
 
-    // Getters and Setters
-    public List<Task> getTasks() {
-        return tasks;
+    /*
+     * Row-level responses: toggle, edit and delete update only the growl and
+     * send the changed row and the project's counts, in the format of the
+     * taskChanges push channel, to applyTaskResponse in custom.js, which
+     * patches them in place of re-rendering the table.
+     */
+
+    private void sendRow(ChangeType type, Task task) {
+        if (!task.getProjectId().equals(currentProjectId) || !shownByFilters(task)) {
+            sendDeletedRow(task.getId());
+            return;
+        }
+        sendChange(new TaskChange(type, task.getId(), task.getProjectId(), task.getProjectId(), task));
+    }
+
+    /**
+     * The row as it is stored now, after a conflicting write by someone else
+     */
+    private void sendStoredRow(Long taskId) {
+        Optional<Task> stored = taskService.getTaskById(taskId);
+        if (stored.isPresent()) {
+            sendRow(ChangeType.UPDATED, stored.get());
+        } else {
+            sendDeletedRow(taskId);
+        }
+    }
+
+    // Also used for rows the toolbar filters no longer show
+    private void sendDeletedRow(Long taskId) {
+        sendChange(new TaskChange(ChangeType.DELETED, taskId, currentProjectId, currentProjectId, null));
     }
 
-    public void setTasks(List<Task> tasks) {
-        this.tasks = tasks;
+    private void sendChange(TaskChange change) {
+        // A script rather than a callback parameter, whose JSON would go out XML-escaped
+        PrimeFaces.current().executeScript("applyTaskResponse(" + LiveMessages.toJson(
+                LiveMessages.tasks(currentProjectId, List.of(change), taskService)) + ")");
     }
 
-    public Task getSelectedTask() {
-        return selectedTask;
+    private boolean shownByFilters(Task task) {
+        return (priorityFilter == null || priorityFilter == task.getPriority())
+                && (doneFilter == null || doneFilter == task.isDone());
     }
 
-    public void setSelectedTask(Task selectedTask) {
-        this.selectedTask = selectedTask;
+    private void addMessage(String summary, FacesMessage.Severity severity) {
+        FacesContext.getCurrentInstance().addMessage(null, new FacesMessage(severity, summary, null));
+    }
+
+    /**
+     * Version the row had when the page was rendered, sent along by its button;
+     * the row object itself may have been reloaded since
+     */
+    private static int renderedVersion(int current) {
+        String version = FacesContext.getCurrentInstance().getExternalContext()
+                .getRequestParameterMap().get("version");
+        try {
+            return version == null ? current : Integer.parseInt(version);
+        } catch (NumberFormatException e) {
+            return current;
+        }
+    }
+
+    // Getters and Setters
+    public TaskLazyDataModel getLazyTasks() {
+        if (lazyTasks == null) {
+            lazyTasks = new TaskLazyDataModel(taskService);
+            lazyTasks.setQuery(currentProjectId == null ? null : currentQuery());
+        }
+        return lazyTasks;
     }
 
     public Task getNewTask() {
@@ -189,13 +279,13 @@ public class TaskController implements Serializable {
         this.newTask = newTask;
     }
 
-    public Project getCurrentProject() {
-        return currentProject;
+    public Long getCurrentProjectId() {
+        return currentProjectId;
     }
 
-    public void setCurrentProject(Project currentProject) {
-        this.currentProject = currentProject;
-        if (currentProject != null) {
+    public void setCurrentProjectId(Long currentProjectId) {
+        this.currentProjectId = currentProjectId;
+        if (currentProjectId != null) {
             init();
         }
     }
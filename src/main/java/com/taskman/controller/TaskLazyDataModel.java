@@ -0,0 +1,79 @@
+package com.taskman.controller;
+
+import com.taskman.model.Task;
+import com.taskman.repository.TaskQuery;
+import com.taskman.service.TaskService;
+import java.util.List;
+
+/**
+ * Lazy, server-side paged and sorted model for a project's task table
+ */
+public class TaskLazyDataModel extends KeysetLazyDataModel<TaskRow> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final TaskService taskService;
+    // Filters of the table; null shows no rows
+    private TaskQuery query;
+
+    public TaskLazyDataModel(TaskService taskService) {
+        this.taskService = taskService;
+    }
+
+    public void setQuery(TaskQuery query) {
+        this.query = query;
+        reset();
+    }
+
+    @Override
+    protected long countRows() {
+        return query == null ? 0 : taskService.countTasks(query);
+    }
+
+    @Override
+    protected List<TaskRow> loadPage(String sortField, boolean ascending, int offset, int limit) {
+        if (query == null) {
+            return List.of();
+        }
+        return rows(taskService.findTasks(query.sortedBy(sortField, ascending).withPage(offset, limit)));
+    }
+
+    @Override
+    protected List<TaskRow> loadPageAfter(String sortField, boolean ascending, TaskRow after, int limit) {
+        if (query == null) {
+            return List.of();
+        }
+        return rows(taskService.findTasksAfter(query.sortedBy(sortField, ascending).withPage(0, limit), cursor(after)));
+    }
+
+    @Override
+    protected Long rowId(TaskRow row) {
+        return row.getId();
+    }
+
+    @Override
+    protected TaskRow findRow(Long id) {
+        return taskService.getTaskById(id).map(this::row).orElse(null);
+    }
+
+    private List<TaskRow> rows(List<Task> tasks) {
+        return tasks.stream().map(this::row).toList();
+    }
+
+    private TaskRow row(Task task) {
+        return new TaskRow(task, taskService.isTaskOverdue(task));
+    }
+
+    /**
+     * The sort values of the row as it was rendered, which stay put if the task is edited or deleted since
+     */
+    private static Task cursor(TaskRow row) {
+        Task task = new Task();
+        task.setId(row.getId());
+        task.setTitle(row.getTitle());
+        task.setPriority(row.getPriority());
+        task.setDueDate(row.getDueDate());
+        task.setDone(row.isDone());
+        return task;
+    }
+}
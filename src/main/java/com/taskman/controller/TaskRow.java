@@ -0,0 +1,68 @@
+package com.taskman.controller;
+
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Immutable row of the tasks table: what the table shows of a task, with
+ * the overdue flag worked out once when the page is loaded. The view keeps
+ * these instead of the tasks themselves; actions look the task up by id.
+ */
+public final class TaskRow implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long id;
+    private final String title;
+    private final TaskPriority priority;
+    private final LocalDate dueDate;
+    private final boolean done;
+    private final String notes;
+    private final int version;
+    private final boolean overdue;
+
+    public TaskRow(Task task, boolean overdue) {
+        this.id = task.getId();
+        this.title = task.getTitle();
+        this.priority = task.getPriority();
+        this.dueDate = task.getDueDate();
+        this.done = task.isDone();
+        this.notes = task.getNotes();
+        this.version = task.getVersion();
+        this.overdue = overdue;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public TaskPriority getPriority() {
+        return priority;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public boolean isOverdue() {
+        return overdue;
+    }
+}
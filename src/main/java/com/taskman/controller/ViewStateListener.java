@@ -0,0 +1,57 @@
+package com.taskman.controller;
+
+import jakarta.enterprise.inject.spi.CDI;
+import jakarta.faces.event.PhaseEvent;
+import jakarta.faces.event.PhaseId;
+import jakarta.faces.event.PhaseListener;
+import jakarta.servlet.http.HttpSession;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures the view state of the current session once its response is
+ * rendered, when ViewStateReport is enabled. It runs in the session's own
+ * request, so no other thread's request is serialized, and at most once
+ * per interval per session (see SessionRegistry).
+ */
+public class ViewStateListener implements PhaseListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = Logger.getLogger(ViewStateListener.class.getName());
+
+    // Looked up on first use: listeners are created before the container can be asked for beans
+    private transient SessionRegistry registry;
+
+    @Override
+    public void afterPhase(PhaseEvent event) {
+        if (!ViewStateReport.isReportEnabled()) {
+            return;
+        }
+        if (!(event.getFacesContext().getExternalContext().getSession(false) instanceof HttpSession session)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            SessionRegistry sessions = registry();
+            if (sessions.isDue(session.getId(), now)) {
+                sessions.record(session.getId(), ViewStateReport.measure(session), now);
+            }
+        } catch (RuntimeException e) {
+            // A report must never fail the response it measures
+            LOGGER.log(Level.FINE, "Could not measure the view state of a session", e);
+        }
+    }
+
+    @Override
+    public PhaseId getPhaseId() {
+        return PhaseId.RENDER_RESPONSE;
+    }
+
+    private SessionRegistry registry() {
+        if (registry == null) {
+            registry = CDI.current().select(SessionRegistry.class).get();
+        }
+        return registry;
+    }
+}
@@ -0,0 +1,243 @@
+package com.taskman.controller;
+
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.faces.context.FacesContext;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.servlet.http.HttpSession;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Size of the view state each HTTP session holds: the @ViewScoped beans of
+ * every view Mojarra keeps for it, and the component trees of server-side
+ * state saving. Sizes are those of Java serialization, what passivating or
+ * replicating the session writes. Each bean and tree is measured on its
+ * own, so anything they share counts once for each.
+ *
+ * Sessions are measured by ViewStateListener in their own requests; the
+ * report only reads the numbers last recorded. It lists every user's
+ * session, so it is off unless the taskman.viewState.report system
+ * property is true.
+ */
+@Named
+@RequestScoped
+public class ViewStateReport {
+
+    private static final boolean ENABLED = Boolean.getBoolean("taskman.viewState.report");
+
+    // Session attributes of Mojarra: ViewScopeManager.ACTIVE_VIEW_MAPS and ServerSideStateHelper.LOGICAL_VIEW_MAP
+    private static final String ACTIVE_VIEW_MAPS = "com.sun.faces.application.view.activeViewMaps";
+    private static final String LOGICAL_VIEW_MAP = "com.sun.faces.renderkit.ServerSideStateHelper.LogicalViewMap";
+
+    @Inject
+    private SessionRegistry sessionRegistry;
+
+    private List<SessionState> sessions;
+    private List<ViewEntry> currentEntries = List.of();
+
+    static boolean isReportEnabled() {
+        return ENABLED;
+    }
+
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Every session measured so far, largest first, as of its last measured request
+     */
+    public List<SessionState> getSessions() {
+        if (sessions == null) {
+            sessions = new ArrayList<>();
+            if (!ENABLED) {
+                return sessions;
+            }
+            String current = FacesContext.getCurrentInstance().getExternalContext().getSessionId(false);
+            sessionRegistry.measurements().forEach((id, entries) -> {
+                boolean isCurrent = id.equals(current);
+                if (isCurrent) {
+                    currentEntries = entries;
+                }
+                sessions.add(new SessionState(id, isCurrent, entries));
+            });
+            sessions.sort(Comparator.comparingLong(SessionState::getTotalBytes).reversed());
+        }
+        return sessions;
+    }
+
+    /**
+     * The beans and component trees of the current session
+     */
+    public List<ViewEntry> getCurrentEntries() {
+        getSessions();
+        return currentEntries;
+    }
+
+    /**
+     * Measures the view state of a session; called from that session's own request
+     */
+    static List<ViewEntry> measure(HttpSession session) {
+        List<ViewEntry> entries = new ArrayList<>();
+        for (Map.Entry<String, Object> view : copy(session.getAttribute(ACTIVE_VIEW_MAPS))) {
+            for (Map.Entry<String, Object> bean : copy(view.getValue())) {
+                entries.add(new ViewEntry(true, view.getKey(), bean.getKey(), bean.getValue()));
+            }
+        }
+        for (Map.Entry<String, Object> logicalView : copy(session.getAttribute(LOGICAL_VIEW_MAP))) {
+            for (Map.Entry<String, Object> tree : copy(logicalView.getValue())) {
+                entries.add(new ViewEntry(false, logicalView.getKey(), tree.getKey(), tree.getValue()));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * The entries of one of Mojarra's maps, taken while other requests of the
+     * session may be changing it; none if it changed under the copy
+     */
+    private static List<Map.Entry<String, Object>> copy(Object map) {
+        if (!(map instanceof Map<?, ?> entries)) {
+            return List.of();
+        }
+        try {
+            synchronized (entries) {
+                List<Map.Entry<String, Object>> copy = new ArrayList<>(entries.size());
+                entries.forEach((key, value) -> copy.add(new AbstractMap.SimpleEntry<>(String.valueOf(key), value)));
+                return copy;
+            }
+        } catch (ConcurrentModificationException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Totals of one session. Views are the component trees it keeps, or its
+     * view maps if there are more of those.
+     */
+    public static final class SessionState {
+
+        private final String id;
+        private final boolean current;
+        private final int views;
+        private final long beanBytes;
+        private final long treeBytes;
+        private final int unmeasurable;
+
+        SessionState(String id, boolean current, List<ViewEntry> entries) {
+            this.id = id;
+            this.current = current;
+            long beans = 0;
+            long trees = 0;
+            int unmeasured = 0;
+            int treeCount = 0;
+            Set<String> viewMaps = new HashSet<>();
+            for (ViewEntry entry : entries) {
+                if (entry.isBean()) {
+                    viewMaps.add(entry.getView());
+                } else {
+                    treeCount++;
+                }
+                if (!entry.isMeasured()) {
+                    unmeasured++;
+                } else if (entry.isBean()) {
+                    beans += entry.getBytes();
+                } else {
+                    trees += entry.getBytes();
+                }
+            }
+            this.views = Math.max(treeCount, viewMaps.size());
+            this.beanBytes = beans;
+            this.treeBytes = trees;
+            this.unmeasurable = unmeasured;
+        }
+
+        /**
+         * The start of the session id, enough to tell sessions apart without exposing it
+         */
+        public String getId() {
+            return id.length() > 8 ? id.substring(0, 8) : id;
+        }
+
+        public boolean isCurrent() {
+            return current;
+        }
+
+        public int getViews() {
+            return views;
+        }
+
+        public long getBeanBytes() {
+            return beanBytes;
+        }
+
+        public long getTreeBytes() {
+            return treeBytes;
+        }
+
+        public long getTotalBytes() {
+            return beanBytes + treeBytes;
+        }
+
+        public long getBytesPerView() {
+            return views == 0 ? 0 : getTotalBytes() / views;
+        }
+
+        /**
+         * Beans or trees left out of the totals because they cannot be serialized
+         */
+        public int getUnmeasurable() {
+            return unmeasurable;
+        }
+    }
+
+    /**
+     * A view-scoped bean, or the component tree of a view: its size, never the object itself
+     */
+    public static final class ViewEntry {
+
+        private final boolean bean;
+        private final String view;
+        private final String name;
+        private final String type;
+        private final long bytes;
+
+        ViewEntry(boolean bean, String view, String name, Object value) {
+            this.bean = bean;
+            this.view = view;
+            this.name = name;
+            this.type = value == null ? "null" : value.getClass().getSimpleName();
+            this.bytes = SerializedSize.of(value);
+        }
+
+        public boolean isBean() {
+            return bean;
+        }
+
+        public String getView() {
+            return view;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public boolean isMeasured() {
+            return bytes != SerializedSize.UNMEASURABLE;
+        }
+    }
+}
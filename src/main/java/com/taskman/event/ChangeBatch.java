@@ -0,0 +1,20 @@
+package com.taskman.event;
+
+import java.util.List;
+
+/**
+ * The changes written during one short interval, at most one per entity,
+ * in the order each entity first changed. Fired as a CDI event by
+ * ChangeEventPublisher; observers run on its flushing thread.
+ */
+public record ChangeBatch(List<ProjectChange> projects, List<TaskChange> tasks) {
+
+    public ChangeBatch {
+        projects = List.copyOf(projects);
+        tasks = List.copyOf(tasks);
+    }
+
+    public boolean isEmpty() {
+        return projects.isEmpty() && tasks.isEmpty();
+    }
+}
@@ -0,0 +1,175 @@
+package com.taskman.event;
+
+import com.taskman.repository.IndexedTask;
+import com.taskman.repository.ProjectRepository;
+import com.taskman.repository.TaskRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Turns the repositories' change listeners into ChangeBatch CDI events.
+ * The listeners only record which entities changed, in O(1) on the
+ * writer; the first change after a flush schedules the next one, which
+ * coalesces everything recorded since into one change per entity, reads
+ * their current state and fires the batch. Observers therefore never run
+ * on a repository writer, and a burst of writes costs one event.
+ *
+ * The interval is the taskman.push.batchMillis system property, 100 ms by default.
+ */
+@ApplicationScoped
+public class ChangeEventPublisher {
+
+    private static final Logger LOGGER = Logger.getLogger(ChangeEventPublisher.class.getName());
+
+    private static final long BATCH_MILLIS = Math.max(1, Long.getLong("taskman.push.batchMillis", 100));
+
+    @Inject
+    private TaskRepository taskRepository;
+
+    @Inject
+    private ProjectRepository projectRepository;
+
+    @Inject
+    private Event<ChangeBatch> changes;
+
+    // Changes since the last flush by entity id, in order of first change; guarded by this
+    private Map<Long, Pending> pendingProjects = new LinkedHashMap<>();
+    private Map<Long, Pending> pendingTasks = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        projectRepository.addListener((id, previous, current) ->
+                record(true, id, previous == null ? ChangeType.CREATED : current == null ? ChangeType.DELETED
+                        : ChangeType.UPDATED, null, null));
+        taskRepository.addListener(this::taskChanged);
+    }
+
+    /**
+     * Creates the publisher with the application, so changes are published
+     * whether or not anything has asked for it yet
+     */
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        // Nothing to do; observing the event is what creates the bean
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+    }
+
+    private void taskChanged(long id, IndexedTask previous, IndexedTask current) {
+        ChangeType type;
+        if (previous == null) {
+            type = ChangeType.CREATED;
+        } else if (current == null) {
+            type = ChangeType.DELETED;
+        } else {
+            type = isToggle(previous, current) ? ChangeType.TOGGLED : ChangeType.UPDATED;
+        }
+        record(false, id, type, previous == null ? null : previous.projectId(),
+                (current == null ? previous : current).projectId());
+    }
+
+    private static boolean isToggle(IndexedTask previous, IndexedTask current) {
+        return previous.done() != current.done()
+                && new IndexedTask(previous.projectId(), previous.priority(), current.done(), previous.dueDate())
+                        .equals(current);
+    }
+
+    private synchronized void record(boolean project, long id, ChangeType type, Long previousProjectId,
+                                     Long projectId) {
+        Map<Long, Pending> pending = project ? pendingProjects : pendingTasks;
+        Pending earlier = pending.get(id);
+        if (earlier == null) {
+            pending.put(id, new Pending(type, previousProjectId, projectId));
+        } else {
+            ChangeType combined = earlier.type().then(type);
+            if (combined == null) {
+                pending.remove(id);
+            } else {
+                pending.put(id, new Pending(combined, earlier.previousProjectId(), projectId));
+            }
+        }
+        if (!flushScheduled) {
+            flushScheduled = true;
+            flusher.schedule(this::flush, BATCH_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        Map<Long, Pending> projects;
+        Map<Long, Pending> tasks;
+        synchronized (this) {
+            projects = pendingProjects;
+            tasks = pendingTasks;
+            pendingProjects = new LinkedHashMap<>();
+            pendingTasks = new LinkedHashMap<>();
+            flushScheduled = false;
+        }
+        try {
+            ChangeBatch batch = new ChangeBatch(projectChanges(projects), taskChanges(tasks));
+            if (!batch.isEmpty()) {
+                changes.fire(batch);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to publish a batch of changes", e);
+        }
+    }
+
+    private List<ProjectChange> projectChanges(Map<Long, Pending> pending) {
+        List<ProjectChange> changes = new ArrayList<>(pending.size());
+        pending.forEach((id, change) -> {
+            if (change.type() == ChangeType.DELETED) {
+                changes.add(new ProjectChange(ChangeType.DELETED, id, null));
+            } else {
+                // Absent if deleted since; that delete is already pending for the next batch
+                projectRepository.findById(id)
+                        .ifPresent(project -> changes.add(new ProjectChange(change.type(), id, project)));
+            }
+        });
+        return changes;
+    }
+
+    private List<TaskChange> taskChanges(Map<Long, Pending> pending) {
+        List<TaskChange> changes = new ArrayList<>(pending.size());
+        pending.forEach((id, change) -> {
+            if (change.type() == ChangeType.DELETED) {
+                changes.add(new TaskChange(ChangeType.DELETED, id, change.projectId(),
+                        change.previousProjectId(), null));
+            } else {
+                taskRepository.findById(id).ifPresent(task -> changes.add(new TaskChange(change.type(), id,
+                        task.getProjectId(), change.previousProjectId(), task)));
+            }
+        });
+        return changes;
+    }
+
+    /**
+     * The coalesced change to one entity; for tasks, the project before the
+     * first write and the one it was in at the last, deleted or not
+     */
+    private record Pending(ChangeType type, Long previousProjectId, Long projectId) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.taskman.event;
+
+/**
+ * What happened to an entity within one batch of changes
+ */
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    // A task whose done flag is the only indexed field that changed
+    TOGGLED;
+
+    /**
+     * The single change equivalent to this one followed by the next, or null if they cancel out
+     */
+    ChangeType then(ChangeType next) {
+        if (this == CREATED) {
+            return next == DELETED ? null : CREATED;
+        }
+        if (next == CREATED) {
+            // Deleted and saved again under the same id
+            return UPDATED;
+        }
+        if (next == DELETED) {
+            return DELETED;
+        }
+        return this == TOGGLED && next == TOGGLED ? TOGGLED : UPDATED;
+    }
+}
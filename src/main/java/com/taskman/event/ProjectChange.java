@@ -0,0 +1,10 @@
+package com.taskman.event;
+
+import com.taskman.model.Project;
+
+/**
+ * A coalesced change to one project; project is its state when the batch
+ * was published, null once deleted
+ */
+public record ProjectChange(ChangeType type, long projectId, Project project) {
+}
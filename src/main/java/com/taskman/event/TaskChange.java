@@ -0,0 +1,19 @@
+package com.taskman.event;
+
+import com.taskman.model.Task;
+
+/**
+ * A coalesced change to one task. task is its state when the batch was
+ * published, null once deleted. projectId is its project at the end of the
+ * batch, or the one it was deleted from; previousProjectId the one it was
+ * in before the batch, so views of both projects can follow a move.
+ */
+public record TaskChange(ChangeType type, long taskId, Long projectId, Long previousProjectId, Task task) {
+
+    /**
+     * Whether the task belonged to the project before or after the change
+     */
+    public boolean affects(Long projectId) {
+        return projectId != null && (projectId.equals(this.projectId) || projectId.equals(previousProjectId));
+    }
+}
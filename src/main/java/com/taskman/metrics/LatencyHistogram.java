@@ -0,0 +1,165 @@
+package com.taskman.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds with HDR-style log-linear buckets:
+ * every power of two is split in 8 equal buckets, so a value is known to
+ * within 12.5%. Values below 16 ns have a bucket each; values from 2^36 ns
+ * (about 69 s) on all fall in the last bucket.
+ *
+ * record() allocates nothing and takes no lock. Counts are striped by
+ * thread over up to 16 copies of the buckets, one per processor, so threads
+ * on different processors rarely write the same cache line; a snapshot adds
+ * the stripes up. Histograms recorded a few times per request rather than
+ * per call need no more than one stripe. A snapshot taken while calls are recorded is not atomic:
+ * its sum and its counts may each include a call the other misses.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 35;
+
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    // Per stripe: the sum of the values, padding to the next cache line, then the buckets
+    private static final int SUM = 0;
+    private static final int FIRST_BUCKET = 8;
+    private static final int STRIDE = FIRST_BUCKET + BUCKETS;
+
+    private static final int MAX_STRIPES = 16;
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+
+    /**
+     * A histogram with a stripe per processor
+     */
+    public LatencyHistogram() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * A histogram with the given number of stripes, rounded up to a power of two, at most 16
+     */
+    public LatencyHistogram(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("A histogram needs at least one stripe");
+        }
+        int rounded = 1;
+        while (rounded < stripes && rounded < MAX_STRIPES) {
+            rounded <<= 1;
+        }
+        this.stripes = rounded;
+        this.cells = new AtomicLongArray(rounded * STRIDE);
+    }
+
+    public void record(long nanos) {
+        int base = ((int) Thread.currentThread().getId() & (stripes - 1)) * STRIDE;
+        long value = Math.max(0, nanos);
+        cells.getAndAdd(base + FIRST_BUCKET + bucket(value), 1);
+        cells.getAndAdd(base + SUM, value);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long sum = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            int base = stripe * STRIDE;
+            sum += cells.get(base + SUM);
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += cells.get(base + FIRST_BUCKET + i);
+            }
+        }
+        return new Snapshot(counts, sum);
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < 2 * SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + (int) ((nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Smallest value of the bucket; the next bucket's is one past its largest
+     */
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (bucket / SUB_BUCKETS - 1);
+    }
+
+    /**
+     * Counts of a histogram at one point, summed over its stripes
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long sum;
+        private final long count;
+
+        Snapshot(long[] counts, long sum) {
+            this.counts = counts;
+            this.sum = sum;
+            long total = 0;
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+            this.count = total;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Sum of the recorded values in nanoseconds
+         */
+        public long sum() {
+            return sum;
+        }
+
+        public double meanNanos() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Number of values below the bound: exact when it is a bucket
+         * boundary, such as any power of two up to 2^36, otherwise leaving
+         * out the whole bucket it falls in
+         */
+        public long countBelow(long nanos) {
+            long below = 0;
+            for (int i = 0; i < BUCKETS - 1 && lowerBound(i + 1) <= nanos; i++) {
+                below += counts[i];
+            }
+            return below;
+        }
+
+        /**
+         * Largest value of the bucket holding the given fraction of values,
+         * at most 12.5% above the true percentile; 0 if nothing was recorded
+         */
+        public long percentile(double fraction) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS - 1; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return lowerBound(i + 1) - 1;
+                }
+            }
+            return lowerBound(BUCKETS - 1);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.taskman.metrics;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * The application's metrics: latency histograms, each one series of a
+ * named family told apart by its labels, and gauges read when the metrics
+ * are exported. Timed methods have a series of the method duration family
+ * each; overloads of a method share one, as they share one name.
+ */
+@ApplicationScoped
+public class MetricsRegistry {
+
+    public static final String METHOD_DURATION = "taskman_method_duration_seconds";
+
+    private static final String METHOD_HELP = "Latency of @Timed service and repository methods";
+
+    // Series histogram() creates at most; past it, new label values go to one "other" series per family
+    private static final int MAX_SERIES = Math.max(1, Integer.getInteger("taskman.metrics.maxSeries", 2_000));
+
+    // Looked up on every timed call; by series only the first time
+    private final Map<Method, LatencyHistogram> timersByMethod = new ConcurrentHashMap<>();
+    private final Map<Series, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, String> helpByName = new ConcurrentHashMap<>();
+    private final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+
+    public LatencyHistogram timer(Method method) {
+        LatencyHistogram histogram = timersByMethod.get(method);
+        if (histogram == null) {
+            histogram = timersByMethod.computeIfAbsent(method, key -> timer(
+                    key.getDeclaringClass().getSimpleName(), key.getName()));
+        }
+        return histogram;
+    }
+
+    public LatencyHistogram timer(String className, String methodName) {
+        helpByName.putIfAbsent(METHOD_DURATION, METHOD_HELP);
+        return histograms.computeIfAbsent(new Series(METHOD_DURATION, List.of("class", className, "method", methodName)),
+                key -> new LatencyHistogram());
+    }
+
+    /**
+     * The series of a histogram family with the given labels, name and value
+     * pairs, created on first use. It has a single stripe: it is meant for
+     * events of a request, such as its phases, not for calls made many
+     * times per request. Once the registry holds taskman.metrics.maxSeries
+     * series (2,000 by default), a new combination of labels is recorded in
+     * the family's series with every label "other".
+     */
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        helpByName.putIfAbsent(name, help);
+        Series series = new Series(name, labelList(labels));
+        LatencyHistogram histogram = histograms.get(series);
+        if (histogram != null) {
+            return histogram;
+        }
+        if (histograms.size() >= MAX_SERIES) {
+            String[] other = labels.clone();
+            for (int i = 1; i < other.length; i += 2) {
+                other[i] = "other";
+            }
+            series = new Series(name, labelList(other));
+        }
+        return histograms.computeIfAbsent(series, key -> new LatencyHistogram(1));
+    }
+
+    /**
+     * Registers a gauge; labels are name and value pairs, such as "cache", "tasks"
+     */
+    public void gauge(String name, String help, LongSupplier value, String... labels) {
+        gauges.add(new Gauge(name, help, labelList(labels), value));
+    }
+
+    /**
+     * Snapshots of every histogram series, by family and then labels
+     */
+    public List<HistogramSnapshot> histograms() {
+        List<HistogramSnapshot> snapshots = new ArrayList<>(histograms.size());
+        histograms.forEach((series, histogram) -> snapshots.add(new HistogramSnapshot(
+                series.name(), helpByName.get(series.name()), series.labels(), histogram.snapshot())));
+        snapshots.sort(Comparator.comparing(HistogramSnapshot::name)
+                .thenComparing(snapshot -> String.join("\u0000", snapshot.labels())));
+        return snapshots;
+    }
+
+    /**
+     * Snapshots of one histogram family
+     */
+    public List<HistogramSnapshot> histograms(String name) {
+        return histograms().stream().filter(snapshot -> snapshot.name().equals(name)).toList();
+    }
+
+    /**
+     * Every gauge in order of registration, grouped by name
+     */
+    public List<Gauge> gauges() {
+        List<Gauge> sorted = new ArrayList<>(gauges);
+        List<String> names = sorted.stream().map(Gauge::name).distinct().toList();
+        sorted.sort(Comparator.comparingInt(gauge -> names.indexOf(gauge.name())));
+        return sorted;
+    }
+
+    private static List<String> labelList(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs: " + String.join(",", labels));
+        }
+        return List.of(labels);
+    }
+
+    private record Series(String name, List<String> labels) {
+    }
+
+    /**
+     * One histogram series at one point
+     *
+     * @param labels name and value pairs
+     */
+    public record HistogramSnapshot(String name, String help, List<String> labels, LatencyHistogram.Snapshot histogram) {
+
+        /**
+         * Value of the label, or null if the series does not have it
+         */
+        public String label(String labelName) {
+            for (int i = 0; i < labels.size(); i += 2) {
+                if (labels.get(i).equals(labelName)) {
+                    return labels.get(i + 1);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A value read when exported
+     *
+     * @param labels name and value pairs
+     */
+    public record Gauge(String name, String help, List<String> labels, LongSupplier value) {
+    }
+}
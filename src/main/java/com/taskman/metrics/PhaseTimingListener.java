@@ -0,0 +1,205 @@
+package com.taskman.metrics;
+
+import jakarta.enterprise.inject.spi.CDI;
+import jakarta.faces.component.UIViewRoot;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.context.PartialViewContext;
+import jakarta.faces.event.PhaseEvent;
+import jakarta.faces.event.PhaseId;
+import jakarta.faces.event.PhaseListener;
+import java.net.MalformedURLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Times every phase of each JSF request into histograms by view id and
+ * AJAX source, plus the whole request, and hands slow requests to the
+ * SlowRequestLog with the components they updated. It also starts and ends
+ * the Tracer's trace of sampled requests, with a span per phase. Row indexes in the
+ * source, as in projectsForm:projectsTable:3:edit, are replaced by * in
+ * the histogram labels, so each button of a table has one series. Both
+ * labels come from the request, so only values the application knows get
+ * a series: a view id whose page exists and a source that is a component
+ * of the view. Anything else is labelled "other".
+ */
+public class PhaseTimingListener implements PhaseListener {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String PHASE_DURATION = "taskman_jsf_phase_duration_seconds";
+    public static final String REQUEST_DURATION = "taskman_jsf_request_duration_seconds";
+
+    private static final String PHASE_HELP = "Latency of each JSF lifecycle phase by view and AJAX source";
+    private static final String REQUEST_HELP = "Latency of JSF requests by view and AJAX source";
+
+    private static final String TIMING = PhaseTimingListener.class.getName() + ".timing";
+    private static final String SOURCE_PARAM = "jakarta.faces.source";
+    private static final Pattern ROW_INDEX = Pattern.compile("(?<=:)\\d+(?=:)");
+    private static final Pattern ROW_SEGMENT = Pattern.compile(":\\d+(?=:)");
+    private static final String OTHER = "other";
+
+    // Lifecycle phases, without ANY_PHASE, by ordinal - 1
+    private static final List<String> PHASE_NAMES = PhaseId.VALUES.subList(1, PhaseId.VALUES.size()).stream()
+            .map(phase -> phase.getName().toLowerCase(Locale.ROOT))
+            .toList();
+
+    // View ids found to have a page, so each is only looked up once
+    private final Set<String> knownViews = ConcurrentHashMap.newKeySet();
+
+    // Looked up on first use: listeners are created before the container can be asked for beans
+    private MetricsRegistry registry;
+    private SlowRequestLog slowRequests;
+
+    @Override
+    public void beforePhase(PhaseEvent event) {
+        long now = System.nanoTime();
+        Map<Object, Object> attributes = event.getFacesContext().getAttributes();
+        RequestTiming timing = (RequestTiming) attributes.get(TIMING);
+        if (timing == null) {
+            timing = new RequestTiming(now, Tracer.startTrace(null));
+            attributes.put(TIMING, timing);
+        }
+        timing.phaseStarted = now;
+        timing.phaseSpan = Tracer.start(PHASE_NAMES.get(event.getPhaseId().getOrdinal() - 1));
+    }
+
+    @Override
+    public void afterPhase(PhaseEvent event) {
+        long now = System.nanoTime();
+        FacesContext context = event.getFacesContext();
+        RequestTiming timing = (RequestTiming) context.getAttributes().get(TIMING);
+        if (timing == null) {
+            return;
+        }
+        PhaseId phase = event.getPhaseId();
+        timing.phaseNanos[phase.getOrdinal() - 1] = now - timing.phaseStarted;
+        Tracer.end(timing.phaseSpan);
+        if (timing.viewId == null) {
+            UIViewRoot viewRoot = context.getViewRoot();
+            timing.viewId = viewRoot == null ? context.getExternalContext().getRequestServletPath() : viewRoot.getViewId();
+        }
+        // Called even when the phase failed; the last phase to run ends the request
+        if (phase == PhaseId.RENDER_RESPONSE || context.getResponseComplete()) {
+            context.getAttributes().remove(TIMING);
+            finish(context, timing, now);
+        }
+    }
+
+    @Override
+    public PhaseId getPhaseId() {
+        return PhaseId.ANY_PHASE;
+    }
+
+    private void finish(FacesContext context, RequestTiming timing, long now) {
+        MetricsRegistry metrics = registry();
+        PartialViewContext partial = context.getPartialViewContext();
+        boolean ajax = partial.isAjaxRequest();
+        String source = ajax ? context.getExternalContext().getRequestParameterMap().get(SOURCE_PARAM) : null;
+        String viewLabel = viewLabel(context, timing.viewId);
+        String sourceLabel = sourceLabel(context, source);
+        for (int i = 0; i < PHASE_NAMES.size(); i++) {
+            if (timing.phaseNanos[i] >= 0) {
+                metrics.histogram(PHASE_DURATION, PHASE_HELP, "view", viewLabel, "source", sourceLabel,
+                        "phase", PHASE_NAMES.get(i)).record(timing.phaseNanos[i]);
+            }
+        }
+        long total = now - timing.started;
+        metrics.histogram(REQUEST_DURATION, REQUEST_HELP, "view", viewLabel, "source", sourceLabel).record(total);
+        SlowRequestLog slowLog = slowRequests();
+        boolean slow = slowLog.isSlow(total);
+        if (slow || timing.trace != null) {
+            List<String> updates = !ajax ? List.of()
+                    : partial.isRenderAll() ? List.of("@all") : new ArrayList<>(partial.getRenderIds());
+            if (slow) {
+                slowLog.add(new SlowRequest(LocalDateTime.now(), timing.viewId, source, ajax, updates,
+                        timing.phaseNanos, total));
+            }
+            if (timing.trace != null) {
+                Tracer.attribute("postback", context.isPostback());
+                if (ajax) {
+                    Tracer.attribute("source", source);
+                    Tracer.attribute("updates", String.join(" ", updates));
+                }
+                Tracer.endTrace(timing.trace, timing.viewId);
+            }
+        }
+    }
+
+    private String viewLabel(FacesContext context, String viewId) {
+        if (viewId == null || context.getViewRoot() == null) {
+            return OTHER;
+        }
+        if (knownViews.contains(viewId)) {
+            return viewId;
+        }
+        try {
+            if (context.getExternalContext().getResource(viewId) == null) {
+                return OTHER;
+            }
+        } catch (MalformedURLException e) {
+            return OTHER;
+        }
+        knownViews.add(viewId);
+        return viewId;
+    }
+
+    /**
+     * The source with row indexes as *, if it names a component of the view; "" for non-AJAX requests
+     */
+    private static String sourceLabel(FacesContext context, String source) {
+        if (source == null) {
+            return "";
+        }
+        UIViewRoot viewRoot = context.getViewRoot();
+        try {
+            if (viewRoot == null || viewRoot.findComponent(ROW_SEGMENT.matcher(source).replaceAll("")) == null) {
+                return OTHER;
+            }
+        } catch (IllegalArgumentException e) {
+            // A segment of the id is not a naming container
+            return OTHER;
+        }
+        return ROW_INDEX.matcher(source).replaceAll("*");
+    }
+
+    private MetricsRegistry registry() {
+        if (registry == null) {
+            registry = CDI.current().select(MetricsRegistry.class).get();
+        }
+        return registry;
+    }
+
+    private SlowRequestLog slowRequests() {
+        if (slowRequests == null) {
+            slowRequests = CDI.current().select(SlowRequestLog.class).get();
+        }
+        return slowRequests;
+    }
+
+    /**
+     * The phases of one request so far, kept in the FacesContext
+     */
+    private static final class RequestTiming {
+
+        final long started;
+        final long[] phaseNanos = new long[PHASE_NAMES.size()];
+        // Root and current phase span of a sampled request; null otherwise
+        final Span trace;
+        Span phaseSpan;
+        long phaseStarted;
+        String viewId;
+
+        RequestTiming(long started, Span trace) {
+            this.started = started;
+            this.trace = trace;
+            Arrays.fill(phaseNanos, -1);
+        }
+    }
+}
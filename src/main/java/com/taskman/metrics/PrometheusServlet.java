@@ -0,0 +1,111 @@
+package com.taskman.metrics;
+
+import jakarta.enterprise.inject.spi.CDI;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Serves the MetricsRegistry in the Prometheus text exposition format.
+ * Histograms are exported with a bucket every power of 4 from 256 ns to
+ * 17 s: bucket boundaries of LatencyHistogram, so their counts are exact.
+ * The endpoint has no authentication, so it answers 404 unless the
+ * taskman.metrics.endpoint system property is true.
+ */
+public class PrometheusServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final boolean ENABLED = Boolean.getBoolean("taskman.metrics.endpoint");
+
+    private static final int FIRST_BOUND_BITS = 8;
+    private static final int LAST_BOUND_BITS = 34;
+
+    private MetricsRegistry registry;
+
+    /**
+     * Looks the registry up: Weld only injects into servlets on containers it integrates with
+     */
+    @Override
+    public void init() {
+        registry = CDI.current().select(MetricsRegistry.class).get();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!ENABLED) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        StringBuilder out = new StringBuilder(16_384);
+        writeHistograms(out, registry.histograms());
+        writeGauges(out, registry.gauges());
+        response.setContentType(CONTENT_TYPE);
+        response.setHeader("Cache-Control", "no-store");
+        response.getWriter().write(out.toString());
+    }
+
+    private static void writeHistograms(StringBuilder out, List<MetricsRegistry.HistogramSnapshot> histograms) {
+        String family = null;
+        for (MetricsRegistry.HistogramSnapshot series : histograms) {
+            if (!series.name().equals(family)) {
+                family = series.name();
+                out.append("# HELP ").append(family).append(' ').append(series.help()).append('\n');
+                out.append("# TYPE ").append(family).append(" histogram\n");
+            }
+            String labels = labels(series.labels());
+            String separator = labels.isEmpty() ? "" : ",";
+            LatencyHistogram.Snapshot histogram = series.histogram();
+            for (int bits = FIRST_BOUND_BITS; bits <= LAST_BOUND_BITS; bits += 2) {
+                long bound = 1L << bits;
+                out.append(family).append("_bucket{").append(labels).append(separator).append("le=\"")
+                        .append(seconds(bound)).append("\"} ").append(histogram.countBelow(bound)).append('\n');
+            }
+            out.append(family).append("_bucket{").append(labels).append(separator).append("le=\"+Inf\"} ")
+                    .append(histogram.count()).append('\n');
+            out.append(family).append("_sum{").append(labels).append("} ")
+                    .append(seconds(histogram.sum())).append('\n');
+            out.append(family).append("_count{").append(labels).append("} ")
+                    .append(histogram.count()).append('\n');
+        }
+    }
+
+    private static void writeGauges(StringBuilder out, List<MetricsRegistry.Gauge> gauges) {
+        String family = null;
+        for (MetricsRegistry.Gauge gauge : gauges) {
+            if (!gauge.name().equals(family)) {
+                family = gauge.name();
+                out.append("# HELP ").append(family).append(' ').append(gauge.help()).append('\n');
+                out.append("# TYPE ").append(family).append(" gauge\n");
+            }
+            out.append(family);
+            if (!gauge.labels().isEmpty()) {
+                out.append('{').append(labels(gauge.labels())).append('}');
+            }
+            out.append(' ').append(gauge.value().getAsLong()).append('\n');
+        }
+    }
+
+    /**
+     * The label pairs as name="value" separated by commas
+     */
+    private static String labels(List<String> labels) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < labels.size(); i += 2) {
+            out.append(i == 0 ? "" : ",").append(labels.get(i)).append("=\"").append(escape(labels.get(i + 1))).append('"');
+        }
+        return out.toString();
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
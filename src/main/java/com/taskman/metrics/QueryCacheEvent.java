@@ -0,0 +1,44 @@
+package com.taskman.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a lookup in a repository's query cache. There is one per
+ * query the pages run, so it is disabled unless the recording settings
+ * enable it, as the bundled taskman.jfc does.
+ */
+@Name("com.taskman.QueryCacheLookup")
+@Label("Query Cache Lookup")
+@Category({"Taskman", "Repository"})
+@Description("A lookup in a repository's query cache")
+@StackTrace(false)
+@Enabled(false)
+public final class QueryCacheEvent extends jdk.jfr.Event {
+
+    @Label("Cache")
+    String cache;
+
+    @Label("Hit")
+    boolean hit;
+
+    @Label("Stale")
+    @Description("The entry was found but computed before a write that could change it")
+    boolean stale;
+
+    /**
+     * Commits the lookup if the event is enabled
+     */
+    public void finish(String cache, boolean hit, boolean stale) {
+        if (shouldCommit()) {
+            this.cache = cache;
+            this.hit = hit;
+            this.stale = stale;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.taskman.metrics;
+
+import com.taskman.repository.ProjectRepository;
+import com.taskman.repository.TaskRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Sizes of the repositories, their indexes and their result caches, as gauges
+ */
+@ApplicationScoped
+public class RepositoryGauges {
+
+    @Inject
+    private MetricsRegistry registry;
+
+    @Inject
+    private TaskRepository taskRepository;
+
+    @Inject
+    private ProjectRepository projectRepository;
+
+    @PostConstruct
+    public void init() {
+        registry.gauge("taskman_tasks", "Tasks stored", taskRepository::count);
+        registry.gauge("taskman_projects", "Projects stored", projectRepository::count);
+
+        String indexHelp = "Keys of a repository index: projects with tasks, open tasks with a due date, search trigrams";
+        registry.gauge("taskman_index_keys", indexHelp, taskRepository::indexedProjectCount, "index", "task_projects");
+        registry.gauge("taskman_index_keys", indexHelp, taskRepository::dueDateIndexSize, "index", "task_due_dates");
+        registry.gauge("taskman_index_keys", indexHelp, projectRepository::searchIndexSize, "index", "project_search");
+
+        String entriesHelp = "Results held by a query result cache";
+        registry.gauge("taskman_cache_entries", entriesHelp,
+                () -> taskRepository.cacheStats().entries(), "cache", "tasks");
+        registry.gauge("taskman_cache_entries", entriesHelp,
+                () -> projectRepository.cacheStats().entries(), "cache", "projects");
+        String rowsHelp = "Rows held by the results of a query result cache";
+        registry.gauge("taskman_cache_rows", rowsHelp, () -> taskRepository.cacheStats().rows(), "cache", "tasks");
+        registry.gauge("taskman_cache_rows", rowsHelp, () -> projectRepository.cacheStats().rows(), "cache", "projects");
+    }
+
+    /**
+     * Registers the gauges with the application, before the first scrape
+     */
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        // Nothing to do; observing the event is what creates the bean
+    }
+}
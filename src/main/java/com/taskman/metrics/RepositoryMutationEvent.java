@@ -0,0 +1,44 @@
+package com.taskman.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a repository write, from handing it to the writer until it
+ * is applied and, with persistence, durable. Writes rejected by a version
+ * or name check are not recorded. Recorded whatever their duration unless
+ * the recording settings set a threshold.
+ */
+@Name("com.taskman.RepositoryMutation")
+@Label("Repository Mutation")
+@Category({"Taskman", "Repository"})
+@Description("A save, toggle or delete applied by a repository's writer")
+@StackTrace(false)
+public final class RepositoryMutationEvent extends jdk.jfr.Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Id")
+    @Description("Id of the entity written, or of the project whose tasks were deleted")
+    long id;
+
+    /**
+     * Ends the event and commits it if it is enabled and over its threshold
+     */
+    public void finish(String repository, String operation, Long id) {
+        end();
+        if (shouldCommit()) {
+            this.repository = repository;
+            this.operation = operation;
+            this.id = id == null ? 0 : id;
+            commit();
+        }
+    }
+}
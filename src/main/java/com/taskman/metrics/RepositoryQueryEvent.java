@@ -0,0 +1,69 @@
+package com.taskman.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for a repository query that ran, not one answered from the
+ * result cache. Recorded for queries of 1 ms or more unless the recording
+ * settings say otherwise. Usage:
+ *
+ * <pre>
+ * RepositoryQueryEvent event = new RepositoryQueryEvent();
+ * event.begin();
+ * ... run the query ...
+ * event.finish("tasks", "find", projectId, plan, scanned, returned);
+ * </pre>
+ *
+ * While no recording enables the event, begin() and finish() do nothing and
+ * the JIT removes the allocation, so queries pay nothing for it.
+ */
+@Name("com.taskman.RepositoryQuery")
+@Label("Repository Query")
+@Category({"Taskman", "Repository"})
+@Description("A query run against a repository's in-memory state")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class RepositoryQueryEvent extends jdk.jfr.Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Method")
+    String method;
+
+    @Label("Project Id")
+    @Description("Project the query is limited to, 0 for queries across projects")
+    long projectId;
+
+    @Label("Plan")
+    String plan;
+
+    @Label("Rows Scanned")
+    long rowsScanned;
+
+    @Label("Rows Returned")
+    long rowsReturned;
+
+    /**
+     * Ends the event and commits it if it is enabled and over its threshold.
+     * The plan is turned into text only then.
+     */
+    public void finish(String repository, String method, Long projectId, Object plan,
+                       long rowsScanned, long rowsReturned) {
+        end();
+        if (shouldCommit()) {
+            this.repository = repository;
+            this.method = method;
+            this.projectId = projectId == null ? 0 : projectId;
+            this.plan = plan == null ? null : plan.toString();
+            this.rowsScanned = rowsScanned;
+            this.rowsReturned = rowsReturned;
+            commit();
+        }
+    }
+}
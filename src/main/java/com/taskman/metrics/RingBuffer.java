@@ -0,0 +1,45 @@
+package com.taskman.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The latest items added, up to a power-of-two capacity: each one
+ * overwrites the oldest. Adding takes one atomic increment and one volatile
+ * write, so writers never wait for each other or for readers; a reader sees
+ * every item it gets fully built.
+ */
+final class RingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLong added = new AtomicLong();
+
+    RingBuffer(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    void add(T item) {
+        slots.set((int) (added.getAndIncrement() & (slots.length() - 1)), item);
+    }
+
+    /**
+     * The items kept, newest first
+     */
+    List<T> items() {
+        long last = added.get();
+        int capacity = slots.length();
+        List<T> items = new ArrayList<>(capacity);
+        for (long i = last - 1; i >= 0 && i >= last - capacity; i--) {
+            T item = slots.get((int) (i & (capacity - 1)));
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+}
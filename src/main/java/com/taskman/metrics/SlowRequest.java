@@ -0,0 +1,78 @@
+package com.taskman.metrics;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One JSF request as timed by PhaseTimingListener: its view, the AJAX
+ * source and the components it updated, and the time of each phase
+ */
+public final class SlowRequest {
+
+    private final LocalDateTime finishedAt;
+    private final String viewId;
+    private final String source;
+    private final boolean ajax;
+    private final List<String> updates;
+    private final long[] phaseNanos;
+    private final long totalNanos;
+
+    /**
+     * @param phaseNanos time of each phase in lifecycle order, negative for those that did not run
+     * @param updates    client ids rendered by an AJAX request, or "@all"
+     */
+    SlowRequest(LocalDateTime finishedAt, String viewId, String source, boolean ajax, List<String> updates,
+                long[] phaseNanos, long totalNanos) {
+        this.finishedAt = finishedAt;
+        this.viewId = viewId;
+        this.source = source;
+        this.ajax = ajax;
+        this.updates = List.copyOf(updates);
+        this.phaseNanos = phaseNanos.clone();
+        this.totalNanos = totalNanos;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getViewId() {
+        return viewId;
+    }
+
+    /**
+     * Client id of the component that sent the AJAX request, or null
+     */
+    public String getSource() {
+        return source;
+    }
+
+    public boolean isAjax() {
+        return ajax;
+    }
+
+    public List<String> getUpdates() {
+        return updates;
+    }
+
+    /**
+     * Milliseconds of each phase in lifecycle order, null for those that did not run
+     */
+    public List<Double> getPhaseMillis() {
+        List<Double> millis = new ArrayList<>(phaseNanos.length);
+        for (long nanos : phaseNanos) {
+            millis.add(nanos < 0 ? null : nanos / 1e6);
+        }
+        return Collections.unmodifiableList(millis);
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public double getTotalMillis() {
+        return totalNanos / 1e6;
+    }
+}
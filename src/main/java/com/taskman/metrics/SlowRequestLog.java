@@ -0,0 +1,66 @@
+package com.taskman.metrics;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The 64 slowest JSF requests that took at least taskman.diagnostics.slowMillis
+ * (50 ms by default; 0 keeps every request). Once full, a request only
+ * replaces the fastest one kept; requests no slower than that are dropped
+ * without taking the lock.
+ */
+@ApplicationScoped
+public class SlowRequestLog {
+
+    private static final int CAPACITY = 64;
+    private static final long THRESHOLD_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Math.max(0, Long.getLong("taskman.diagnostics.slowMillis", 50)));
+    private static final Comparator<SlowRequest> BY_TOTAL = Comparator.comparingLong(SlowRequest::getTotalNanos);
+
+    // Min-heap on total time: the head is the fastest request kept
+    private final PriorityQueue<SlowRequest> requests = new PriorityQueue<>(CAPACITY, BY_TOTAL);
+    // Total time of the head once the heap is full, -1 until then
+    private volatile long floorNanos = -1;
+
+    public boolean isSlow(long nanos) {
+        return nanos >= THRESHOLD_NANOS;
+    }
+
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(THRESHOLD_NANOS);
+    }
+
+    public void add(SlowRequest request) {
+        if (request.getTotalNanos() <= floorNanos) {
+            return;
+        }
+        synchronized (requests) {
+            if (requests.size() == CAPACITY) {
+                if (request.getTotalNanos() <= requests.peek().getTotalNanos()) {
+                    return;
+                }
+                requests.poll();
+            }
+            requests.add(request);
+            if (requests.size() == CAPACITY) {
+                floorNanos = requests.peek().getTotalNanos();
+            }
+        }
+    }
+
+    /**
+     * The requests kept, slowest first
+     */
+    public List<SlowRequest> slowest() {
+        List<SlowRequest> slowest;
+        synchronized (requests) {
+            slowest = new ArrayList<>(requests);
+        }
+        slowest.sort(BY_TOTAL.reversed());
+        return slowest;
+    }
+}
@@ -0,0 +1,116 @@
+package com.taskman.metrics;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One timed step of a sampled trace, such as a lifecycle phase or a @Timed
+ * method, with the steps it made. Only the thread that runs the trace
+ * builds its spans; once the trace is published they no longer change.
+ */
+public final class Span {
+
+    private final Trace trace;
+    private final Span parent;
+    private final long startNanos;
+    private long endNanos;
+    private boolean ended;
+    // A method's name is built when the trace is read, not on every sampled call
+    private String name;
+    private final Method method;
+    private List<Span> children;
+    private Map<String, Object> attributes;
+    private long rowsScanned = -1;
+    private long rowsReturned = -1;
+
+    Span(Trace trace, Span parent, String name, Method method) {
+        this.trace = trace;
+        this.parent = parent;
+        this.name = name;
+        this.method = method;
+        this.startNanos = System.nanoTime();
+        if (parent != null) {
+            if (parent.children == null) {
+                parent.children = new ArrayList<>(4);
+            }
+            parent.children.add(this);
+        }
+    }
+
+    void end() {
+        endNanos = System.nanoTime();
+        ended = true;
+    }
+
+    Trace trace() {
+        return trace;
+    }
+
+    Span parent() {
+        return parent;
+    }
+
+    void rename(String name) {
+        this.name = name;
+    }
+
+    void attribute(String key, Object value) {
+        if (attributes == null) {
+            attributes = new LinkedHashMap<>(4);
+        }
+        attributes.put(key, value);
+    }
+
+    void rows(long scanned, long returned) {
+        rowsScanned = Math.max(0, rowsScanned) + scanned;
+        rowsReturned = Math.max(0, rowsReturned) + returned;
+    }
+
+    public String getName() {
+        if (name == null && method != null) {
+            name = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        }
+        return name;
+    }
+
+    /**
+     * Start relative to the start of the trace
+     */
+    public long getOffsetNanos() {
+        return startNanos - trace.getRoot().startNanos;
+    }
+
+    /**
+     * Time from start to end; for a span that never ended, up to the end of the trace
+     */
+    public long getDurationNanos() {
+        long end = ended ? endNanos : trace.getRoot().endNanos;
+        return Math.max(0, end - startNanos);
+    }
+
+    public List<Span> getChildren() {
+        return children == null ? List.of() : Collections.unmodifiableList(children);
+    }
+
+    public Map<String, Object> getAttributes() {
+        return attributes == null ? Map.of() : Collections.unmodifiableMap(attributes);
+    }
+
+    /**
+     * Rows read by the paged queries of the span, -1 if it ran none
+     */
+    public long getRowsScanned() {
+        return rowsScanned;
+    }
+
+    /**
+     * Rows those queries returned, -1 if it ran none
+     */
+    public long getRowsReturned() {
+        return rowsReturned;
+    }
+}
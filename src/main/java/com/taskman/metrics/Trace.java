@@ -0,0 +1,60 @@
+package com.taskman.metrics;
+
+import java.time.LocalDateTime;
+
+/**
+ * A sampled request: its root span and everything under it
+ */
+public final class Trace {
+
+    private final long id;
+    private final LocalDateTime startedAt;
+    private Span root;
+    private int spanCount;
+    private int droppedSpans;
+
+    Trace(long id) {
+        this.id = id;
+        this.startedAt = LocalDateTime.now();
+    }
+
+    void setRoot(Span root) {
+        this.root = root;
+        this.spanCount = 1;
+    }
+
+    /**
+     * Counts a new span; false once the trace is full, and the span is dropped
+     */
+    boolean admit(int maxSpans) {
+        if (spanCount >= maxSpans) {
+            droppedSpans++;
+            return false;
+        }
+        spanCount++;
+        return true;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public Span getRoot() {
+        return root;
+    }
+
+    public int getSpanCount() {
+        return spanCount;
+    }
+
+    /**
+     * Spans left out because the trace reached its limit; their children hang from the nearest span kept
+     */
+    public int getDroppedSpans() {
+        return droppedSpans;
+    }
+}
@@ -0,0 +1,110 @@
+package com.taskman.metrics;
+
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the Tracer's latest completed traces as JSON, newest first, each
+ * with its tree of spans. Optional parameters: limit, the number of traces
+ * (all kept by default), and minMillis, the shortest trace to include.
+ * Traces hold query plans with users' search text and the endpoint has no
+ * authentication, so it answers 404 unless the taskman.traces.endpoint
+ * system property is true.
+ */
+public class TraceServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+
+    private static final boolean ENABLED = Boolean.getBoolean("taskman.traces.endpoint");
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!ENABLED) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        int limit;
+        long minNanos;
+        try {
+            limit = Integer.parseInt(parameter(request, "limit", Integer.toString(Integer.MAX_VALUE)));
+            minNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(parameter(request, "minMillis", "0")));
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "limit and minMillis must be integers");
+            return;
+        }
+        List<Trace> traces = Tracer.completed();
+        response.setContentType(CONTENT_TYPE);
+        response.setHeader("Cache-Control", "no-store");
+        try (JsonGenerator json = Json.createGenerator(response.getWriter())) {
+            json.writeStartObject();
+            json.write("sampleRate", Tracer.getSampleRate());
+            json.writeStartArray("traces");
+            int written = 0;
+            for (Trace trace : traces) {
+                if (written == limit) {
+                    break;
+                }
+                if (trace.getRoot().getDurationNanos() < minNanos) {
+                    continue;
+                }
+                writeTrace(json, trace);
+                written++;
+            }
+            json.writeEnd();
+            json.writeEnd();
+        }
+    }
+
+    private static String parameter(HttpServletRequest request, String name, String defaultValue) {
+        String value = request.getParameter(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    private static void writeTrace(JsonGenerator json, Trace trace) {
+        json.writeStartObject();
+        json.write("id", trace.getId());
+        json.write("startedAt", trace.getStartedAt().toString());
+        json.write("spanCount", trace.getSpanCount());
+        if (trace.getDroppedSpans() > 0) {
+            json.write("droppedSpans", trace.getDroppedSpans());
+        }
+        json.writeKey("root");
+        writeSpan(json, trace.getRoot());
+        json.writeEnd();
+    }
+
+    private static void writeSpan(JsonGenerator json, Span span) {
+        json.writeStartObject();
+        json.write("name", String.valueOf(span.getName()));
+        json.write("offsetMicros", TimeUnit.NANOSECONDS.toMicros(span.getOffsetNanos()));
+        json.write("durationMicros", TimeUnit.NANOSECONDS.toMicros(span.getDurationNanos()));
+        if (span.getRowsScanned() >= 0) {
+            json.write("rowsScanned", span.getRowsScanned());
+            json.write("rowsReturned", span.getRowsReturned());
+        }
+        if (!span.getAttributes().isEmpty()) {
+            json.writeStartObject("attributes");
+            for (Map.Entry<String, Object> attribute : span.getAttributes().entrySet()) {
+                json.write(attribute.getKey(), String.valueOf(attribute.getValue()));
+            }
+            json.writeEnd();
+        }
+        if (!span.getChildren().isEmpty()) {
+            json.writeStartArray("children");
+            for (Span child : span.getChildren()) {
+                writeSpan(json, child);
+            }
+            json.writeEnd();
+        }
+        json.writeEnd();
+    }
+}
@@ -0,0 +1,122 @@
+package com.taskman.metrics;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process tracing of sampled JSF requests. PhaseTimingListener starts a
+ * trace for a fraction of the requests, taskman.tracing.sampleRate (0.01
+ * by default; 0 disables tracing, 1 traces every request), with a span per
+ * lifecycle phase; @Timed methods called on that thread nest their own
+ * spans under the current one. Everything else only checks a thread-local
+ * and finds no trace. Completed traces go to a ring of the latest 128.
+ *
+ * A trace keeps at most 2,000 spans; calls past that are only counted.
+ */
+public final class Tracer {
+
+    private static final double SAMPLE_RATE =
+            Math.min(1, Math.max(0, Double.parseDouble(System.getProperty("taskman.tracing.sampleRate", "0.01"))));
+
+    private static final int MAX_SPANS = 2_000;
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+    private static final RingBuffer<Trace> COMPLETED = new RingBuffer<>(128);
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private Tracer() {
+    }
+
+    /**
+     * Starts the trace of a request on this thread if it is sampled, dropping
+     * whatever an earlier request left open; its root span, or null
+     */
+    static Span startTrace(String name) {
+        if (SAMPLE_RATE == 0 || ThreadLocalRandom.current().nextDouble() >= SAMPLE_RATE) {
+            CURRENT.remove();
+            return null;
+        }
+        Trace trace = new Trace(IDS.incrementAndGet());
+        Span root = new Span(trace, null, name, null);
+        trace.setRoot(root);
+        CURRENT.set(root);
+        return root;
+    }
+
+    /**
+     * Ends the trace, closing any span left open, and publishes it
+     */
+    static void endTrace(Span root, String name) {
+        if (root == null) {
+            return;
+        }
+        root.rename(name);
+        root.end();
+        CURRENT.remove();
+        COMPLETED.add(root.trace());
+    }
+
+    /**
+     * A span under the current one, or null when this thread is not tracing
+     */
+    public static Span start(String name) {
+        return start(name, null);
+    }
+
+    static Span start(Method method) {
+        return start(null, method);
+    }
+
+    private static Span start(String name, Method method) {
+        Span parent = CURRENT.get();
+        if (parent == null || !parent.trace().admit(MAX_SPANS)) {
+            return null;
+        }
+        Span span = new Span(parent.trace(), parent, name, method);
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * Ends a span from start(); nothing for null
+     */
+    public static void end(Span span) {
+        if (span != null) {
+            span.end();
+            CURRENT.set(span.parent());
+        }
+    }
+
+    /**
+     * Adds an attribute to the current span, if tracing. The value is turned into text when the trace is read.
+     */
+    public static void attribute(String key, Object value) {
+        Span span = CURRENT.get();
+        if (span != null) {
+            span.attribute(key, value);
+        }
+    }
+
+    /**
+     * Adds to the rows the current span's queries read and returned, if tracing
+     */
+    public static void rows(long scanned, long returned) {
+        Span span = CURRENT.get();
+        if (span != null) {
+            span.rows(scanned, returned);
+        }
+    }
+
+    public static double getSampleRate() {
+        return SAMPLE_RATE;
+    }
+
+    /**
+     * The latest completed traces, newest first
+     */
+    public static List<Trace> completed() {
+        return COMPLETED.items();
+    }
+}
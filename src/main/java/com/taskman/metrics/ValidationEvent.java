@@ -0,0 +1,44 @@
+package com.taskman.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a validation: a service checking an entity before saving
+ * it, or a JSF validator checking a field. Recorded whatever its duration
+ * unless the recording settings set a threshold.
+ */
+@Name("com.taskman.Validation")
+@Label("Validation")
+@Category({"Taskman", "Validation"})
+@Description("A service or JSF validator checking user input")
+@StackTrace(false)
+public final class ValidationEvent extends jdk.jfr.Event {
+
+    @Label("Validator")
+    String validator;
+
+    @Label("Valid")
+    boolean valid;
+
+    @Label("Message")
+    @Description("Why the value was rejected")
+    String message;
+
+    /**
+     * Ends the event and commits it if it is enabled and over its threshold;
+     * message is null if the value passed
+     */
+    public void finish(String validator, String message) {
+        end();
+        if (shouldCommit()) {
+            this.validator = validator;
+            this.valid = message == null;
+            this.message = message;
+            commit();
+        }
+    }
+}
@@ -1,18 +1,22 @@
 package com.taskman.model;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.Objects;
 
 /**
  * Model class representing a Project
  */
-public class Project {
+public class Project implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private Long id;
     private String name;
     private String owner;
     private ProjectStatus status;
     private LocalDateTime createdAt;
     private String description;
+    private int version;
 
     public Project() {
         this.createdAt = LocalDateTime.now();
@@ -75,6 +79,14 @@ public class Project {
         this.description = description;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -97,6 +109,7 @@ public class Project {
                 ", status=" + status +
                 ", createdAt=" + createdAt +
                 ", description='" + description + '\'' +
+                ", version=" + version +
                 '}';
     }
 }
@@ -1,12 +1,15 @@
 package com.taskman.model;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.Objects;
 
 /**
  * Model class representing a Task
  */
-public class Task {
+public class Task implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private Long id;
     private Long projectId;
     private String title;
@@ -14,6 +17,7 @@ public class Task {
     private LocalDate dueDate;
     private boolean done;
     private String notes;
+    private int version;
 
     public Task() {
         this.priority = TaskPriority.MEDIUM;
@@ -86,6 +90,14 @@ public class Task {
         this.notes = notes;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -109,6 +121,7 @@ public class Task {
                 ", dueDate=" + dueDate +
                 ", done=" + done +
                 ", notes='" + notes + '\'' +
+                ", version=" + version +
                 '}';
     }
 }
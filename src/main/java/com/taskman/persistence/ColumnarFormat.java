@@ -0,0 +1,18 @@
+package com.taskman.persistence;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Column-oriented snapshot body for one entity type: fixed-width fields are
+ * stored as arrays, strings as references into an interned string table.
+ * Readers map the file and decode rows on demand.
+ */
+public interface ColumnarFormat<T> {
+
+    void write(DataOutputStream out, List<T> entities) throws IOException;
+
+    SnapshotView<T> map(ByteBuffer body, int count) throws IOException;
+}
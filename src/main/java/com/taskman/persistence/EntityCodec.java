@@ -0,0 +1,131 @@
+package com.taskman.persistence;
+
+import com.taskman.model.Project;
+import com.taskman.model.ProjectStatus;
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Binary encoding of entities for the write-ahead log and snapshots
+ */
+public final class EntityCodec {
+
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    public static final Journal.Codec<Project> PROJECTS = new Journal.Codec<>() {
+        @Override
+        public void write(Project project, DataOutput out) throws IOException {
+            writeLong(out, project.getId());
+            writeString(out, project.getName());
+            writeString(out, project.getOwner());
+            out.writeByte(project.getStatus() == null ? -1 : project.getStatus().ordinal());
+            writeDateTime(out, project.getCreatedAt());
+            writeString(out, project.getDescription());
+        }
+
+        @Override
+        public Project read(DataInput in) throws IOException {
+            Project project = new Project();
+            project.setId(readLong(in));
+            project.setName(readString(in));
+            project.setOwner(readString(in));
+            byte status = in.readByte();
+            project.setStatus(status < 0 ? null : ProjectStatus.values()[status]);
+            project.setCreatedAt(readDateTime(in));
+            project.setDescription(readString(in));
+            return project;
+        }
+
+        @Override
+        public Long idOf(Project project) {
+            return project.getId();
+        }
+    };
+
+    public static final Journal.Codec<Task> TASKS = new Journal.Codec<>() {
+        @Override
+        public void write(Task task, DataOutput out) throws IOException {
+            writeLong(out, task.getId());
+            writeLong(out, task.getProjectId());
+            writeString(out, task.getTitle());
+            out.writeByte(task.getPriority() == null ? -1 : task.getPriority().ordinal());
+            writeLong(out, task.getDueDate() == null ? null : task.getDueDate().toEpochDay());
+            out.writeBoolean(task.isDone());
+            writeString(out, task.getNotes());
+        }
+
+        @Override
+        public Task read(DataInput in) throws IOException {
+            Task task = new Task();
+            task.setId(readLong(in));
+            task.setProjectId(readLong(in));
+            task.setTitle(readString(in));
+            byte priority = in.readByte();
+            task.setPriority(priority < 0 ? null : TaskPriority.values()[priority]);
+            Long dueDate = readLong(in);
+            task.setDueDate(dueDate == null ? null : LocalDate.ofEpochDay(dueDate));
+            task.setDone(in.readBoolean());
+            task.setNotes(readString(in));
+            return task;
+        }
+
+        @Override
+        public Long idOf(Task task) {
+            return task.getId();
+        }
+    };
+
+    private EntityCodec() {
+    }
+
+    private static void writeLong(DataOutput out, Long value) throws IOException {
+        out.writeLong(value == null ? NULL_LONG : value);
+    }
+
+    private static Long readLong(DataInput in) throws IOException {
+        long value = in.readLong();
+        return value == NULL_LONG ? null : value;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDateTime(DataOutput out, LocalDateTime value) throws IOException {
+        writeLong(out, value == null ? null : value.toLocalDate().toEpochDay());
+        if (value != null) {
+            out.writeLong(value.toLocalTime().toNanoOfDay());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInput in) throws IOException {
+        Long epochDay = readLong(in);
+        if (epochDay == null) {
+            return null;
+        }
+        return LocalDate.ofEpochDay(epochDay).atTime(LocalTime.ofNanoOfDay(in.readLong()));
+    }
+}
@@ -0,0 +1,483 @@
+package com.taskman.persistence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Durable storage for one repository: a write-ahead log of save/delete
+ * operations plus periodic compacted snapshots. On startup the latest
+ * snapshot is loaded and the log generations written after it are replayed.
+ *
+ * Snapshots are named after the log generation they precede (name-N.snapshot)
+ * and come in two layouts: row by row with a CRC trailer (version 1), or
+ * columnar (version 2), which is memory-mapped on startup and handed to the
+ * repository as a SnapshotView so rows can be decoded on demand.
+ *
+ * Writers append under their own lock (so log order matches apply order)
+ * and call awaitDurable() after releasing it, which lets concurrent writes
+ * share a single fsync.
+ */
+public final class Journal<T> implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(Journal.class.getName());
+
+    private static final int SNAPSHOT_MAGIC = 0x544D534E;
+    private static final int ROWS_VERSION = 1;
+    private static final int COLUMNAR_VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 8;
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+    private static final byte DELETE_BY_OWNER = 3;
+
+    private final Path directory;
+    private final String name;
+    private final Codec<T> codec;
+    private final ColumnarFormat<T> columns;
+    private WriteAheadLog log;
+    private ScheduledExecutorService scheduler;
+    private volatile long appendedAtLastCheckpoint;
+    // Held while a snapshot is written; guards the generation of the newest one
+    private final Object snapshotLock = new Object();
+    private int lastSnapshotGeneration;
+
+    private Journal(Path directory, String name, Codec<T> codec, ColumnarFormat<T> columns) {
+        this.directory = directory;
+        this.name = name;
+        this.codec = codec;
+        this.columns = columns;
+    }
+
+    public static <T> Journal<T> open(Path directory, String name, Codec<T> codec) {
+        return open(directory, name, codec, null);
+    }
+
+    /**
+     * Opens a journal whose snapshots use the given columnar layout (when
+     * enabled in PersistenceSettings); snapshots are still read in either layout.
+     */
+    public static <T> Journal<T> open(Path directory, String name, Codec<T> codec, ColumnarFormat<T> columns) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create data directory " + directory, e);
+        }
+        return new Journal<>(directory, name, codec, columns);
+    }
+
+    /**
+     * Loads the latest snapshot, replays the log written after it and opens
+     * a fresh log generation for new writes. Must be called once, before any write.
+     */
+    public Recovery recover(Replay<T> replay) {
+        try {
+            long started = System.nanoTime();
+            int snapshotGeneration = 1;
+            long nextId = 0;
+            long records = 0;
+            boolean found = false;
+
+            Path snapshot = latestSnapshot();
+            if (snapshot != null) {
+                SnapshotHeader header = readVersion(snapshot) == COLUMNAR_VERSION
+                        ? mapColumns(snapshot, replay)
+                        : readRows(snapshot, replay);
+                snapshotGeneration = header.generation();
+                lastSnapshotGeneration = snapshotGeneration;
+                nextId = header.nextId();
+                records += header.count();
+                found = true;
+            }
+
+            int lastGeneration = snapshotGeneration - 1;
+            long replayed = 0;
+            // Ids saved after the snapshot count even if deleted since, so none is handed out twice
+            long[] highestSavedId = {0};
+            for (int gen : WriteAheadLog.generations(directory, name)) {
+                lastGeneration = Math.max(lastGeneration, gen);
+                if (gen < snapshotGeneration) {
+                    continue;
+                }
+                replayed += WriteAheadLog.read(WriteAheadLog.file(directory, name, gen),
+                        record -> apply(record, replay, highestSavedId));
+                found = true;
+            }
+            nextId = Math.max(nextId, highestSavedId[0] + 1);
+            records += replayed;
+            // A replayed log counts as changes, so the next snapshot compacts it
+            appendedAtLastCheckpoint = replayed > 0 ? -1 : 0;
+
+            // Never append to a generation that may end in a torn record
+            log = new WriteAheadLog(directory, name, lastGeneration + 1);
+            LOGGER.log(Level.INFO, "Recovered {0}: {1} records in {2} ms",
+                    new Object[]{name, records, (System.nanoTime() - started) / 1_000_000});
+            return new Recovery(found, nextId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Recovery of " + name + " failed", e);
+        }
+    }
+
+    public long logSave(T entity) {
+        return log.append(encode(out -> {
+            out.writeByte(SAVE);
+            codec.write(entity, out);
+        }));
+    }
+
+    public long logDelete(long id) {
+        return log.append(encode(out -> {
+            out.writeByte(DELETE);
+            out.writeLong(id);
+        }));
+    }
+
+    public long logDeleteByOwner(long ownerId) {
+        return log.append(encode(out -> {
+            out.writeByte(DELETE_BY_OWNER);
+            out.writeLong(ownerId);
+        }));
+    }
+
+    /**
+     * Waits until the record returned by one of the log methods is on disk
+     */
+    public void awaitDurable(long seq) {
+        log.awaitDurable(seq);
+    }
+
+    public boolean hasChangesSinceCheckpoint() {
+        return log.appendedCount() != appendedAtLastCheckpoint;
+    }
+
+    /**
+     * Starts a new log generation. The caller must block its writers while
+     * capturing the entities, so they reflect exactly the older generations.
+     */
+    public Checkpoint<T> checkpoint(long nextId, List<T> entities) {
+        try {
+            appendedAtLastCheckpoint = log.appendedCount();
+            return new Checkpoint<>(log.rotate(), nextId, entities);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Log rotation of " + name + " failed", e);
+        }
+    }
+
+    /**
+     * Writes the checkpoint as the new snapshot and deletes the snapshots and
+     * log generations it supersedes. Runs without any repository lock; one
+     * snapshot is written at a time, and a checkpoint older than the last
+     * snapshot written is dropped.
+     */
+    public void writeSnapshot(Checkpoint<T> checkpoint) {
+        synchronized (snapshotLock) {
+            if (checkpoint.generation() <= lastSnapshotGeneration) {
+                return;
+            }
+            write(checkpoint);
+            lastSnapshotGeneration = checkpoint.generation();
+        }
+    }
+
+    private void write(Checkpoint<T> checkpoint) {
+        Path target = snapshotFile(checkpoint.generation());
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        boolean columnar = columns != null && PersistenceSettings.isColumnarSnapshot();
+        try {
+            try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                 CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+                 DataOutputStream out = new DataOutputStream(checked)) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(columnar ? COLUMNAR_VERSION : ROWS_VERSION);
+                out.writeInt(checkpoint.generation());
+                out.writeLong(checkpoint.nextId());
+                out.writeLong(checkpoint.entities().size());
+                if (columnar) {
+                    // No checksum: verifying it would mean reading the whole file on startup
+                    columns.write(out, checkpoint.entities());
+                    out.writeInt(SNAPSHOT_MAGIC);
+                } else {
+                    for (T entity : checkpoint.entities()) {
+                        codec.write(entity, out);
+                    }
+                    out.writeLong(checked.getChecksum().getValue());
+                }
+                out.flush();
+                file.getChannel().force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // The rename must be on disk before the files it supersedes are deleted
+            WriteAheadLog.syncDirectory(directory);
+            for (int gen : WriteAheadLog.generations(directory, name)) {
+                if (gen < checkpoint.generation()) {
+                    Files.deleteIfExists(WriteAheadLog.file(directory, name, gen));
+                }
+            }
+            for (Path older : snapshotFiles()) {
+                if (generationOf(older) < checkpoint.generation()) {
+                    deleteSnapshot(older);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Snapshot of " + name + " failed", e);
+        }
+    }
+
+    /**
+     * Runs the snapshot task periodically, skipping runs when nothing was written
+     */
+    public void scheduleSnapshots(long intervalSeconds, Runnable snapshotTask) {
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "taskman-snapshot-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                if (hasChangesSinceCheckpoint()) {
+                    snapshotTask.run();
+                }
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Periodic snapshot of " + name + " failed", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic snapshots and waits for one in progress to finish,
+     * so the caller can write the final snapshot after it
+     */
+    public void stopSnapshots() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.log(Level.WARNING, "Periodic snapshot of {0} still running at shutdown", name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Closing log of " + name + " failed", e);
+            }
+        }
+    }
+
+    private Path snapshotFile(int generation) {
+        return directory.resolve(name + "-" + generation + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Snapshot files, newest generation first; the unnumbered name.snapshot
+     * written by older versions comes last
+     */
+    private List<Path> snapshotFiles() throws IOException {
+        List<Integer> gens = new ArrayList<>();
+        Pattern pattern = Pattern.compile(Pattern.quote(name) + "-(\\d+)" + Pattern.quote(SNAPSHOT_SUFFIX));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    gens.add(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        gens.sort(null);
+        List<Path> snapshots = new ArrayList<>();
+        for (int i = gens.size() - 1; i >= 0; i--) {
+            snapshots.add(snapshotFile(gens.get(i)));
+        }
+        Path legacy = directory.resolve(name + SNAPSHOT_SUFFIX);
+        if (Files.exists(legacy)) {
+            snapshots.add(legacy);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Generation a snapshot file precedes; the unnumbered legacy snapshot predates them all
+     */
+    private int generationOf(Path snapshot) {
+        String file = snapshot.getFileName().toString();
+        String prefix = name + "-";
+        if (!file.startsWith(prefix) || !file.endsWith(SNAPSHOT_SUFFIX)) {
+            return 0;
+        }
+        return Integer.parseInt(file.substring(prefix.length(), file.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private Path latestSnapshot() throws IOException {
+        List<Path> snapshots = snapshotFiles();
+        return snapshots.isEmpty() ? null : snapshots.get(0);
+    }
+
+    private void deleteSnapshot(Path snapshot) {
+        try {
+            Files.deleteIfExists(snapshot);
+        } catch (IOException e) {
+            // Still mapped on platforms that lock mapped files; the next snapshot retries
+            LOGGER.log(Level.FINE, "Could not delete old snapshot " + snapshot, e);
+        }
+    }
+
+    private static int readVersion(Path snapshot) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshot))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Unrecognized snapshot format: " + snapshot);
+            }
+            return in.readInt();
+        }
+    }
+
+    private SnapshotHeader readRows(Path snapshot, Replay<T> replay) throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16), new CRC32());
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != ROWS_VERSION) {
+                throw new IOException("Unrecognized snapshot format: " + snapshot);
+            }
+            SnapshotHeader header = new SnapshotHeader(in.readInt(), in.readLong(), in.readLong());
+            for (long i = 0; i < header.count(); i++) {
+                replay.save(codec.read(in));
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Snapshot checksum mismatch: " + snapshot);
+            }
+            return header;
+        }
+    }
+
+    private SnapshotHeader mapColumns(Path snapshot, Replay<T> replay) throws IOException {
+        if (columns == null) {
+            throw new IOException("No columnar layout registered for " + name + ": " + snapshot);
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + snapshot);
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        int size = buffer.capacity();
+        if (size < HEADER_BYTES + 4 || buffer.getInt(0) != SNAPSHOT_MAGIC
+                || buffer.getInt(4) != COLUMNAR_VERSION || buffer.getInt(size - 4) != SNAPSHOT_MAGIC) {
+            throw new IOException("Truncated or unrecognized snapshot: " + snapshot);
+        }
+        SnapshotHeader header = new SnapshotHeader(buffer.getInt(8), buffer.getLong(12), buffer.getLong(20));
+        replay.load(columns.map(buffer.slice(HEADER_BYTES, size - HEADER_BYTES - 4), (int) header.count()));
+        return header;
+    }
+
+    private void apply(DataInput record, Replay<T> replay, long[] highestSavedId) throws IOException {
+        byte op = record.readByte();
+        switch (op) {
+            case SAVE -> {
+                T entity = codec.read(record);
+                Long id = codec.idOf(entity);
+                if (id != null) {
+                    highestSavedId[0] = Math.max(highestSavedId[0], id);
+                }
+                replay.save(entity);
+            }
+            case DELETE -> replay.delete(record.readLong());
+            case DELETE_BY_OWNER -> replay.deleteByOwner(record.readLong());
+            default -> throw new IOException("Unknown log operation " + op + " in " + name);
+        }
+    }
+
+    private static byte[] encode(RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    /**
+     * Binary encoding of one entity type
+     */
+    public interface Codec<T> {
+        void write(T entity, DataOutput out) throws IOException;
+
+        T read(DataInput in) throws IOException;
+
+        /**
+         * Id of the entity, or null if it has none
+         */
+        Long idOf(T entity);
+    }
+
+    /**
+     * Receives recovered operations, in their original order
+     */
+    public interface Replay<T> {
+        void save(T entity);
+
+        void delete(long id);
+
+        void deleteByOwner(long ownerId);
+
+        /**
+         * Receives a mapped columnar snapshot; by default every row is decoded and saved
+         */
+        default void load(SnapshotView<T> snapshot) {
+            for (int row = 0; row < snapshot.size(); row++) {
+                save(snapshot.materialize(row));
+            }
+        }
+    }
+
+    /**
+     * Outcome of recover(): whether any data existed, and the next id to hand
+     * out: the counter stored with the snapshot, or past every id saved since
+     */
+    public record Recovery(boolean found, long nextId) {
+    }
+
+    private record SnapshotHeader(int generation, long nextId, long count) {
+    }
+
+    /**
+     * Repository state captured at a log rotation point; entities in ascending id order
+     */
+    public record Checkpoint<T>(int generation, long nextId, List<T> entities) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.taskman.persistence;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Persistence configuration, read from system properties:
+ * taskman.persistence.enabled (default true), taskman.data.dir
+ * (default ~/.taskman/data), taskman.snapshot.intervalSeconds (default 600)
+ * and taskman.snapshot.format (columnar, the default, or rows).
+ */
+public final class PersistenceSettings {
+
+    private PersistenceSettings() {
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty("taskman.persistence.enabled", "true"));
+    }
+
+    public static Path dataDirectory() {
+        String dir = System.getProperty("taskman.data.dir");
+        if (dir != null && !dir.trim().isEmpty()) {
+            return Paths.get(dir);
+        }
+        return Paths.get(System.getProperty("user.home"), ".taskman", "data");
+    }
+
+    public static long snapshotIntervalSeconds() {
+        return Long.getLong("taskman.snapshot.intervalSeconds", 600L);
+    }
+
+    /**
+     * Whether snapshots are written in the memory-mapped columnar layout rather than row by row
+     */
+    public static boolean isColumnarSnapshot() {
+        return !"rows".equalsIgnoreCase(System.getProperty("taskman.snapshot.format", "columnar").trim());
+    }
+}
@@ -0,0 +1,103 @@
+package com.taskman.persistence;
+
+import com.taskman.model.Project;
+import com.taskman.model.ProjectStatus;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Columnar snapshot layout for projects, rows in ascending id order:
+ * ids long[n], statuses byte[n], creation epoch days int[n], creation nanos of day long[n],
+ * name refs int[n], owner refs int[n], description refs int[n], string table.
+ */
+public final class ProjectColumns implements ColumnarFormat<Project> {
+
+    @Override
+    public void write(DataOutputStream out, List<Project> projects) throws IOException {
+        int n = projects.size();
+        StringTable.Builder strings = new StringTable.Builder();
+        int[] names = new int[n];
+        int[] owners = new int[n];
+        int[] descriptions = new int[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = strings.ref(projects.get(i).getName());
+            owners[i] = strings.ref(projects.get(i).getOwner());
+            descriptions[i] = strings.ref(projects.get(i).getDescription());
+        }
+        for (Project project : projects) {
+            out.writeLong(project.getId());
+        }
+        for (Project project : projects) {
+            out.writeByte(project.getStatus() == null ? -1 : project.getStatus().ordinal());
+        }
+        for (Project project : projects) {
+            LocalDateTime createdAt = project.getCreatedAt();
+            out.writeInt(createdAt == null ? TaskColumns.NULL_DAY : (int) createdAt.toLocalDate().toEpochDay());
+        }
+        for (Project project : projects) {
+            LocalDateTime createdAt = project.getCreatedAt();
+            out.writeLong(createdAt == null ? 0 : createdAt.toLocalTime().toNanoOfDay());
+        }
+        for (int[] refs : new int[][]{names, owners, descriptions}) {
+            for (int ref : refs) {
+                out.writeInt(ref);
+            }
+        }
+        strings.write(out);
+    }
+
+    @Override
+    public SnapshotView<Project> map(ByteBuffer body, int count) {
+        return new MappedProjectSnapshot(body, count);
+    }
+
+    private static final class MappedProjectSnapshot implements SnapshotView<Project> {
+
+        private final ByteBuffer buffer;
+        private final int count;
+        private final int statusesPosition;
+        private final int createdDaysPosition;
+        private final int createdNanosPosition;
+        private final int namesPosition;
+        private final int ownersPosition;
+        private final int descriptionsPosition;
+        private final StringTable strings;
+
+        MappedProjectSnapshot(ByteBuffer buffer, int count) {
+            this.buffer = buffer;
+            this.count = count;
+            this.statusesPosition = count * Long.BYTES;
+            this.createdDaysPosition = statusesPosition + count;
+            this.createdNanosPosition = createdDaysPosition + count * Integer.BYTES;
+            this.namesPosition = createdNanosPosition + count * Long.BYTES;
+            this.ownersPosition = namesPosition + count * Integer.BYTES;
+            this.descriptionsPosition = ownersPosition + count * Integer.BYTES;
+            this.strings = new StringTable(buffer, descriptionsPosition + count * Integer.BYTES);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public Project materialize(int row) {
+            Project project = new Project();
+            project.setId(buffer.getLong(row * Long.BYTES));
+            project.setName(strings.get(buffer.getInt(namesPosition + row * Integer.BYTES)));
+            project.setOwner(strings.get(buffer.getInt(ownersPosition + row * Integer.BYTES)));
+            byte status = buffer.get(statusesPosition + row);
+            project.setStatus(status < 0 ? null : ProjectStatus.values()[status]);
+            int day = buffer.getInt(createdDaysPosition + row * Integer.BYTES);
+            project.setCreatedAt(day == TaskColumns.NULL_DAY ? null : LocalDate.ofEpochDay(day)
+                    .atTime(LocalTime.ofNanoOfDay(buffer.getLong(createdNanosPosition + row * Long.BYTES))));
+            project.setDescription(strings.get(buffer.getInt(descriptionsPosition + row * Integer.BYTES)));
+            return project;
+        }
+    }
+}
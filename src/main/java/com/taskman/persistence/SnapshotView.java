@@ -0,0 +1,14 @@
+package com.taskman.persistence;
+
+/**
+ * Read-only, random-access view of the rows of a snapshot
+ */
+public interface SnapshotView<T> {
+
+    int size();
+
+    /**
+     * Decodes one row into a new entity
+     */
+    T materialize(int row);
+}
@@ -0,0 +1,99 @@
+package com.taskman.persistence;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interned string table of a columnar snapshot: [count][count + 1 offsets][UTF-8 bytes].
+ * Strings are decoded on first access and cached.
+ */
+final class StringTable {
+
+    static final int NULL_REF = -1;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int offsetsPosition;
+    private final int bytesPosition;
+    private String[] decoded;
+
+    StringTable(ByteBuffer buffer, int position) {
+        this.buffer = buffer;
+        this.count = buffer.getInt(position);
+        this.offsetsPosition = position + Integer.BYTES;
+        this.bytesPosition = offsetsPosition + (count + 1) * Integer.BYTES;
+    }
+
+    String get(int ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        String[] cache = decoded;
+        if (cache == null) {
+            cache = new String[count];
+            decoded = cache;
+        }
+        String value = cache[ref];
+        if (value == null) {
+            byte[] bytes = new byte[length(ref)];
+            copy(ref, bytes, 0);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            cache[ref] = value;
+        }
+        return value;
+    }
+
+    int length(int ref) {
+        return start(ref + 1) - start(ref);
+    }
+
+    void copy(int ref, byte[] target, int offset) {
+        buffer.get(bytesPosition + start(ref), target, offset, length(ref));
+    }
+
+    private int start(int ref) {
+        return buffer.getInt(offsetsPosition + ref * Integer.BYTES);
+    }
+
+    /**
+     * Collects distinct strings while the columns are being built
+     */
+    static final class Builder {
+
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<byte[]> values = new ArrayList<>();
+
+        int ref(String value) {
+            if (value == null) {
+                return NULL_REF;
+            }
+            Integer ref = refs.get(value);
+            if (ref == null) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                ref = values.size();
+                refs.put(value, ref);
+                values.add(bytes);
+            }
+            return ref;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(values.size());
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] value : values) {
+                offset += value.length;
+                out.writeInt(offset);
+            }
+            for (byte[] value : values) {
+                out.write(value);
+            }
+        }
+    }
+}
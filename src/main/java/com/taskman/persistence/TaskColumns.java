@@ -0,0 +1,190 @@
+package com.taskman.persistence;
+
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Columnar snapshot layout for tasks, rows in ascending id order:
+ * ids long[n], projectIds long[n], due epoch days int[n], priorities byte[n],
+ * done bitset long[(n + 63) / 64], title refs int[n], notes refs int[n], string table.
+ */
+public final class TaskColumns implements ColumnarFormat<Task> {
+
+    public static final long NULL_LONG = Long.MIN_VALUE;
+    public static final int NULL_DAY = Integer.MIN_VALUE;
+    public static final int NULL_REF = StringTable.NULL_REF;
+
+    @Override
+    public void write(DataOutputStream out, List<Task> tasks) throws IOException {
+        int n = tasks.size();
+        StringTable.Builder strings = new StringTable.Builder();
+        int[] titles = new int[n];
+        int[] notes = new int[n];
+        for (int i = 0; i < n; i++) {
+            titles[i] = strings.ref(tasks.get(i).getTitle());
+            notes[i] = strings.ref(tasks.get(i).getNotes());
+        }
+        for (Task task : tasks) {
+            out.writeLong(task.getId());
+        }
+        for (Task task : tasks) {
+            out.writeLong(task.getProjectId() == null ? NULL_LONG : task.getProjectId());
+        }
+        for (Task task : tasks) {
+            out.writeInt(task.getDueDate() == null ? NULL_DAY : (int) task.getDueDate().toEpochDay());
+        }
+        for (Task task : tasks) {
+            out.writeByte(task.getPriority() == null ? -1 : task.getPriority().ordinal());
+        }
+        for (int word = 0; word < (n + 63) / 64; word++) {
+            long bits = 0;
+            for (int bit = 0; bit < 64 && word * 64 + bit < n; bit++) {
+                if (tasks.get(word * 64 + bit).isDone()) {
+                    bits |= 1L << bit;
+                }
+            }
+            out.writeLong(bits);
+        }
+        for (int ref : titles) {
+            out.writeInt(ref);
+        }
+        for (int ref : notes) {
+            out.writeInt(ref);
+        }
+        strings.write(out);
+    }
+
+    @Override
+    public MappedTaskSnapshot map(ByteBuffer body, int count) {
+        return new MappedTaskSnapshot(body, count);
+    }
+
+    /**
+     * Task rows read straight from a mapped snapshot file
+     */
+    public static final class MappedTaskSnapshot implements SnapshotView<Task> {
+
+        private final ByteBuffer buffer;
+        private final int count;
+        private final int idsPosition;
+        private final int projectIdsPosition;
+        private final int dueDaysPosition;
+        private final int prioritiesPosition;
+        private final int doneBitsPosition;
+        private final int titlesPosition;
+        private final int notesPosition;
+        private final StringTable strings;
+
+        MappedTaskSnapshot(ByteBuffer buffer, int count) {
+            this.buffer = buffer;
+            this.count = count;
+            this.idsPosition = 0;
+            this.projectIdsPosition = idsPosition + count * Long.BYTES;
+            this.dueDaysPosition = projectIdsPosition + count * Long.BYTES;
+            this.prioritiesPosition = dueDaysPosition + count * Integer.BYTES;
+            this.doneBitsPosition = prioritiesPosition + count;
+            this.titlesPosition = doneBitsPosition + ((count + 63) / 64) * Long.BYTES;
+            this.notesPosition = titlesPosition + count * Integer.BYTES;
+            this.strings = new StringTable(buffer, notesPosition + count * Integer.BYTES);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        public long id(int row) {
+            return buffer.getLong(idsPosition + row * Long.BYTES);
+        }
+
+        /**
+         * Project id of the row, or null
+         */
+        public Long projectId(int row) {
+            long projectId = buffer.getLong(projectIdsPosition + row * Long.BYTES);
+            return projectId == NULL_LONG ? null : projectId;
+        }
+
+        public LocalDate dueDate(int row) {
+            int day = dueEpochDay(row);
+            return day == NULL_DAY ? null : LocalDate.ofEpochDay(day);
+        }
+
+        public TaskPriority priority(int row) {
+            byte ordinal = priorityOrdinal(row);
+            return ordinal < 0 ? null : TaskPriority.values()[ordinal];
+        }
+
+        // Raw column values, for copying rows without building objects
+
+        public long rawProjectId(int row) {
+            return buffer.getLong(projectIdsPosition + row * Long.BYTES);
+        }
+
+        public int dueEpochDay(int row) {
+            return buffer.getInt(dueDaysPosition + row * Integer.BYTES);
+        }
+
+        public byte priorityOrdinal(int row) {
+            return buffer.get(prioritiesPosition + row);
+        }
+
+        public int titleRef(int row) {
+            return buffer.getInt(titlesPosition + row * Integer.BYTES);
+        }
+
+        public int notesRef(int row) {
+            return buffer.getInt(notesPosition + row * Integer.BYTES);
+        }
+
+        /**
+         * UTF-8 length of a string table entry
+         */
+        public int stringLength(int ref) {
+            return strings.length(ref);
+        }
+
+        public void copyString(int ref, byte[] target, int offset) {
+            strings.copy(ref, target, offset);
+        }
+
+        public boolean isDone(int row) {
+            long bits = buffer.getLong(doneBitsPosition + (row >>> 6) * Long.BYTES);
+            return (bits & (1L << (row & 63))) != 0;
+        }
+
+        /**
+         * Row holding the given id (ids are stored in ascending order), or -1
+         */
+        public int rowOf(long id) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midId = id(mid);
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Task materialize(int row) {
+            Task task = new Task(projectId(row),
+                    strings.get(titleRef(row)), priority(row), dueDate(row), strings.get(notesRef(row)));
+            task.setId(id(row));
+            task.setDone(isDone(row));
+            return task;
+        }
+    }
+}
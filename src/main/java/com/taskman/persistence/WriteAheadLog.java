@@ -0,0 +1,311 @@
+package com.taskman.persistence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log split into numbered generation files (name-N.wal).
+ * Records are framed as [length][crc32][payload]. Appends only buffer the
+ * record; a single flusher thread writes everything buffered so far and
+ * fsyncs once per batch (group commit), then wakes the waiting writers.
+ */
+final class WriteAheadLog implements AutoCloseable {
+
+    private static final String SUFFIX = ".wal";
+    private static final int HEADER_BYTES = 4 + 4;
+    private static final boolean WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
+    private final Path directory;
+    private final String name;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasPending = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Thread flusher;
+
+    private FileChannel channel;
+    private int generation;
+    private Buffer pending = new Buffer();
+    private Buffer writing = new Buffer();
+    private long appendedSeq;
+    private long durableSeq;
+    private boolean flushing;
+    private boolean closed;
+    private IOException failure;
+
+    WriteAheadLog(Path directory, String name, int generation) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.generation = generation;
+        this.channel = openGeneration(generation);
+        this.flusher = new Thread(this::flushLoop, "taskman-wal-" + name);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Buffers a record and returns its sequence number; does not wait for the disk
+     */
+    long append(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log " + name + " is closed");
+            }
+            pending.writeInt(payload.length);
+            pending.writeInt((int) crc.getValue());
+            pending.write(payload, 0, payload.length);
+            hasPending.signal();
+            return ++appendedSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until the record with the given sequence number has been fsynced
+     */
+    void awaitDurable(long seq) {
+        lock.lock();
+        try {
+            while (durableSeq < seq && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            if (durableSeq < seq) {
+                throw new UncheckedIOException("Write-ahead log " + name + " failed", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes everything buffered and switches appends to a new generation file
+     *
+     * @return the new generation number
+     */
+    int rotate() throws IOException {
+        lock.lock();
+        try {
+            while ((flushing || pending.size() > 0) && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            channel.close();
+            generation++;
+            channel = openGeneration(generation);
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int generation() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long appendedCount() {
+        lock.lock();
+        try {
+            return appendedSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            hasPending.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long batchSeq;
+            lock.lock();
+            try {
+                while (pending.size() == 0 && !closed) {
+                    hasPending.awaitUninterruptibly();
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+                Buffer batch = pending;
+                pending = writing;
+                writing = batch;
+                batchSeq = appendedSeq;
+                flushing = true;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                ByteBuffer bytes = writing.asByteBuffer();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            writing.reset();
+
+            lock.lock();
+            try {
+                flushing = false;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSeq = batchSeq;
+                }
+                flushed.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private FileChannel openGeneration(int gen) throws IOException {
+        FileChannel opened = FileChannel.open(file(directory, name, gen),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            // The new file must survive a power loss before older generations are deleted
+            syncDirectory(directory);
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        return opened;
+    }
+
+    /**
+     * Fsyncs a directory so files created, renamed or deleted in it are durable.
+     * Windows cannot open a directory as a channel and needs no such sync.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        if (WINDOWS) {
+            return;
+        }
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+    }
+
+    static Path file(Path directory, String name, int gen) {
+        return directory.resolve(name + "-" + gen + SUFFIX);
+    }
+
+    /**
+     * Existing generation numbers for the log, ascending
+     */
+    static List<Integer> generations(Path directory, String name) throws IOException {
+        List<Integer> gens = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return gens;
+        }
+        Pattern pattern = Pattern.compile(Pattern.quote(name) + "-(\\d+)" + Pattern.quote(SUFFIX));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    gens.add(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        gens.sort(null);
+        return gens;
+    }
+
+    /**
+     * Reads every intact record of one generation file. A torn or corrupt
+     * tail (from a crash mid-write) ends the file: a short or zero-filled
+     * header, a length past the end of the file, a checksum mismatch, or a
+     * payload that passes its checksum but fails to decode.
+     *
+     * @return number of records read
+     */
+    static long read(Path file, RecordHandler handler) throws IOException {
+        long records = 0;
+        long remaining = Files.size(file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (remaining >= HEADER_BYTES) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                remaining -= HEADER_BYTES;
+                // Every record holds at least its operation byte, so 0 is unwritten space
+                if (length <= 0 || length > remaining) {
+                    return records;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                remaining -= length;
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    return records;
+                }
+                try {
+                    handler.handle(new DataInputStream(new ByteArrayInputStream(payload)));
+                } catch (IOException e) {
+                    return records;
+                }
+                records++;
+            }
+            return records;
+        }
+    }
+
+    interface RecordHandler {
+        void handle(DataInput record) throws IOException;
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer() {
+            super(1 << 16);
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        ByteBuffer asByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.taskman.repository;
+
+/**
+ * Counters of a query result cache since startup, plus its current size
+ *
+ * @param hits      lookups answered from the cache
+ * @param misses    lookups that had to run the query, stale ones included
+ * @param stale     lookups that found an entry invalidated by a write since
+ * @param evictions entries dropped to stay within the size bounds
+ * @param entries   results cached now
+ * @param rows      rows held by those results
+ */
+public record CacheStats(long hits, long misses, long stale, long evictions, int entries, long rows) {
+
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
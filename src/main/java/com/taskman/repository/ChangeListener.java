@@ -0,0 +1,15 @@
+package com.taskman.repository;
+
+/**
+ * Receives the changes a repository applies, on its writer and in the
+ * order they are applied: previous is null for a new entity and current
+ * null for a deleted one. Listeners run while the write is in progress,
+ * so they must be quick and must not call back into the repository. The
+ * write is already applied and logged when they run: an exception a
+ * listener throws is logged and does not fail it.
+ */
+@FunctionalInterface
+public interface ChangeListener<T> {
+
+    void changed(long id, T previous, T current);
+}
@@ -0,0 +1,430 @@
+package com.taskman.repository;
+
+import com.taskman.collection.Edit;
+import com.taskman.collection.LongTrie;
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import com.taskman.persistence.TaskColumns;
+import com.taskman.persistence.TaskColumns.MappedTaskSnapshot;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Task storage in primitive columns, cut into segments of 64 consecutive
+ * ids: project ids, priority ordinals, due epoch days and versions, presence
+ * and done bitmaps, and titles and notes as UTF-8 ranges of a shared byte arena.
+ * Task objects are only built when a task leaves the store, so each call
+ * returns a new, detached instance.
+ *
+ * Segments are copy-on-write and hang off a LongTrie keyed by id / 64. A
+ * write copies the one segment it touches, unless it already did so in the
+ * current batch, and the arena is append-only, so a published version keeps
+ * reading exactly what it saw while the writer moves on.
+ */
+final class ColumnarTaskStore implements TaskStore {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final long SLOT_MASK = SEGMENT_SIZE - 1;
+
+    private static final long NULL_LONG = TaskColumns.NULL_LONG;
+    private static final int NULL_DAY = TaskColumns.NULL_DAY;
+    // String refs pack (arena offset << 32) | byte length
+    private static final long NULL_STRING = -1L;
+    private static final int MIN_COMPACTION_GARBAGE = 1 << 20;
+
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+
+    private LongTrie<Segment> segments = LongTrie.empty();
+    private int size;
+    // Segments created under this token were copied in the current batch and may be written in place
+    private Edit edit = new Edit();
+
+    private byte[] arena = new byte[1024];
+    private int arenaUsed;
+    private long arenaGarbage;
+
+    @Override
+    public void load(MappedTaskSnapshot snapshot) {
+        int count = snapshot.size();
+        int bytes = 0;
+        for (int row = 0; row < count; row++) {
+            bytes += stringLength(snapshot, snapshot.titleRef(row)) + stringLength(snapshot, snapshot.notesRef(row));
+        }
+        reserve(bytes);
+        for (int row = 0; row < count; row++) {
+            long id = snapshot.id(row);
+            Segment segment = writable(id);
+            int slot = (int) (id & SLOT_MASK);
+            segment.present |= 1L << slot;
+            segment.projectIds[slot] = snapshot.rawProjectId(row);
+            segment.priorities[slot] = snapshot.priorityOrdinal(row);
+            segment.dueDays[slot] = snapshot.dueEpochDay(row);
+            segment.setDone(slot, snapshot.isDone(row));
+            segment.titles[slot] = copyString(snapshot, snapshot.titleRef(row));
+            segment.notes[slot] = copyString(snapshot, snapshot.notesRef(row));
+        }
+        size = count;
+    }
+
+    @Override
+    public Task get(Long id) {
+        return id == null ? null : find(segments, arena, id);
+    }
+
+    @Override
+    public boolean contains(Long id) {
+        if (id == null) {
+            return false;
+        }
+        Segment segment = segments.get(id >>> SEGMENT_BITS);
+        return segment != null && segment.has((int) (id & SLOT_MASK));
+    }
+
+    @Override
+    public int versionOf(Long id) {
+        if (!contains(id)) {
+            return -1;
+        }
+        return segments.get(id >>> SEGMENT_BITS).versions[(int) (id & SLOT_MASK)];
+    }
+
+    @Override
+    public IndexedTask put(Task task) {
+        long id = task.getId();
+        int slot = (int) (id & SLOT_MASK);
+        Segment segment = writable(id);
+        IndexedTask previous = null;
+        if (segment.has(slot)) {
+            previous = segment.state(slot);
+        } else {
+            segment.present |= 1L << slot;
+            segment.titles[slot] = NULL_STRING;
+            segment.notes[slot] = NULL_STRING;
+            size++;
+        }
+        segment.projectIds[slot] = task.getProjectId() == null ? NULL_LONG : task.getProjectId();
+        segment.priorities[slot] = (byte) (task.getPriority() == null ? -1 : task.getPriority().ordinal());
+        segment.dueDays[slot] = task.getDueDate() == null ? NULL_DAY : (int) task.getDueDate().toEpochDay();
+        segment.setDone(slot, task.isDone());
+        segment.versions[slot] = task.getVersion();
+        segment.titles[slot] = replaceString(segment.titles[slot], task.getTitle());
+        segment.notes[slot] = replaceString(segment.notes[slot], task.getNotes());
+        compactIfWasteful();
+        return previous;
+    }
+
+    @Override
+    public IndexedTask remove(Long id) {
+        if (!contains(id)) {
+            return null;
+        }
+        long key = id >>> SEGMENT_BITS;
+        int slot = (int) (id & SLOT_MASK);
+        Segment segment = segments.get(key);
+        IndexedTask previous = segment.state(slot);
+        arenaGarbage += length(segment.titles[slot]) + length(segment.notes[slot]);
+        if (segment.present == 1L << slot) {
+            segments = segments.remove(key, edit);
+        } else {
+            segment = writable(id);
+            segment.present &= ~(1L << slot);
+            segment.setDone(slot, false);
+        }
+        size--;
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long maxId() {
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        Segment last = segments.select(segments.size() - 1);
+        return last.base + (SEGMENT_SIZE - 1 - Long.numberOfLeadingZeros(last.present));
+    }
+
+    @Override
+    public void forEachState(BiConsumer<Long, IndexedTask> action) {
+        for (Segment segment : segments) {
+            for (long bits = segment.present; bits != 0; bits &= bits - 1) {
+                int slot = Long.numberOfTrailingZeros(bits);
+                action.accept(segment.base + slot, segment.state(slot));
+            }
+        }
+    }
+
+    @Override
+    public TaskStore.Version publish() {
+        Version version = new Version(segments, arena, size);
+        edit = new Edit();
+        return version;
+    }
+
+    /**
+     * The segment of the given id, copied into the current batch if it was not already
+     */
+    private Segment writable(long id) {
+        long key = id >>> SEGMENT_BITS;
+        Segment segment = segments.get(key);
+        if (segment != null && segment.edit == edit) {
+            return segment;
+        }
+        segment = segment == null ? new Segment(edit, key << SEGMENT_BITS) : new Segment(edit, segment);
+        segments = segments.put(key, segment, edit);
+        return segment;
+    }
+
+    private static Task find(LongTrie<Segment> segments, byte[] arena, long id) {
+        Segment segment = segments.get(id >>> SEGMENT_BITS);
+        int slot = (int) (id & SLOT_MASK);
+        return segment != null && segment.has(slot) ? segment.materialize(slot, arena) : null;
+    }
+
+    private record Version(LongTrie<Segment> segments, byte[] arena, int size) implements TaskStore.Version {
+
+        @Override
+        public Task get(Long id) {
+            return id == null ? null : find(segments, arena, id);
+        }
+
+        @Override
+        public List<Task> all() {
+            return new AbstractList<>() {
+                // Index access skips whole segments by their population count
+                @Override
+                public Task get(int index) {
+                    if (index < 0 || index >= size) {
+                        throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+                    }
+                    for (Segment segment : segments) {
+                        int count = Long.bitCount(segment.present);
+                        if (index < count) {
+                            long bits = segment.present;
+                            for (int i = 0; i < index; i++) {
+                                bits &= bits - 1;
+                            }
+                            return segment.materialize(Long.numberOfTrailingZeros(bits), arena);
+                        }
+                        index -= count;
+                    }
+                    throw new IllegalStateException("Segments hold fewer tasks than " + size);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Task> iterator() {
+                    return new Iterator<>() {
+                        private final Iterator<Segment> remaining = segments.iterator();
+                        private Segment segment;
+                        private long bits;
+
+                        @Override
+                        public boolean hasNext() {
+                            while (bits == 0 && remaining.hasNext()) {
+                                segment = remaining.next();
+                                bits = segment.present;
+                            }
+                            return bits != 0;
+                        }
+
+                        @Override
+                        public Task next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int slot = Long.numberOfTrailingZeros(bits);
+                            bits &= bits - 1;
+                            return segment.materialize(slot, arena);
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * Columns of the 64 ids starting at base; a slot is live when its presence bit is set
+     */
+    private static final class Segment {
+        private final Edit edit;
+        private final long base;
+        private long present;
+        private long done;
+        private final long[] projectIds;
+        private final byte[] priorities;
+        private final int[] dueDays;
+        private final int[] versions;
+        private final long[] titles;
+        private final long[] notes;
+
+        Segment(Edit edit, long base) {
+            this.edit = edit;
+            this.base = base;
+            projectIds = new long[SEGMENT_SIZE];
+            priorities = new byte[SEGMENT_SIZE];
+            dueDays = new int[SEGMENT_SIZE];
+            versions = new int[SEGMENT_SIZE];
+            titles = new long[SEGMENT_SIZE];
+            notes = new long[SEGMENT_SIZE];
+        }
+
+        Segment(Edit edit, Segment from) {
+            this.edit = edit;
+            base = from.base;
+            present = from.present;
+            done = from.done;
+            projectIds = from.projectIds.clone();
+            priorities = from.priorities.clone();
+            dueDays = from.dueDays.clone();
+            versions = from.versions.clone();
+            titles = from.titles.clone();
+            notes = from.notes.clone();
+        }
+
+        boolean has(int slot) {
+            return (present & (1L << slot)) != 0;
+        }
+
+        void setDone(int slot, boolean isDone) {
+            if (isDone) {
+                done |= 1L << slot;
+            } else {
+                done &= ~(1L << slot);
+            }
+        }
+
+        IndexedTask state(int slot) {
+            return new IndexedTask(projectIds[slot] == NULL_LONG ? null : projectIds[slot],
+                    priorities[slot] < 0 ? null : PRIORITIES[priorities[slot]],
+                    (done & (1L << slot)) != 0, dueDate(slot));
+        }
+
+        Task materialize(int slot, byte[] arena) {
+            Task task = new Task(projectIds[slot] == NULL_LONG ? null : projectIds[slot],
+                    string(arena, titles[slot]), priorities[slot] < 0 ? null : PRIORITIES[priorities[slot]],
+                    dueDate(slot), string(arena, notes[slot]));
+            task.setId(base + slot);
+            task.setDone((done & (1L << slot)) != 0);
+            task.setVersion(versions[slot]);
+            return task;
+        }
+
+        private LocalDate dueDate(int slot) {
+            return dueDays[slot] == NULL_DAY ? null : LocalDate.ofEpochDay(dueDays[slot]);
+        }
+    }
+
+    // String arena
+
+    private static String string(byte[] arena, long ref) {
+        return ref == NULL_STRING ? null : new String(arena, (int) (ref >>> 32), (int) ref, StandardCharsets.UTF_8);
+    }
+
+    private static int length(long ref) {
+        return ref == NULL_STRING ? 0 : (int) ref;
+    }
+
+    /**
+     * Stores a new value for a string column, reusing the current bytes when unchanged
+     */
+    private long replaceString(long current, String value) {
+        if (value == null) {
+            arenaGarbage += length(current);
+            return NULL_STRING;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (current != NULL_STRING) {
+            int offset = (int) (current >>> 32);
+            if (Arrays.equals(arena, offset, offset + length(current), bytes, 0, bytes.length)) {
+                return current;
+            }
+            arenaGarbage += length(current);
+        }
+        reserve(bytes.length);
+        System.arraycopy(bytes, 0, arena, arenaUsed, bytes.length);
+        return append(bytes.length);
+    }
+
+    private long append(int length) {
+        long ref = ((long) arenaUsed << 32) | length;
+        arenaUsed += length;
+        return ref;
+    }
+
+    /**
+     * Makes room for more bytes; published versions keep the array they were given
+     */
+    private void reserve(int bytes) {
+        long needed = (long) arenaUsed + bytes;
+        if (needed <= arena.length) {
+            return;
+        }
+        if (needed > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Task string arena is full");
+        }
+        arena = Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, arena.length * 2L)));
+    }
+
+    private static int stringLength(MappedTaskSnapshot snapshot, int ref) {
+        return ref == TaskColumns.NULL_REF ? 0 : snapshot.stringLength(ref);
+    }
+
+    private long copyString(MappedTaskSnapshot snapshot, int ref) {
+        if (ref == TaskColumns.NULL_REF) {
+            return NULL_STRING;
+        }
+        int length = snapshot.stringLength(ref);
+        snapshot.copyString(ref, arena, arenaUsed);
+        return append(length);
+    }
+
+    /**
+     * Rewrites the arena into a new array once more than half of it belongs to
+     * replaced or deleted strings. Every segment is copied, since published
+     * versions still point into the old array.
+     */
+    private void compactIfWasteful() {
+        if (arenaGarbage < MIN_COMPACTION_GARBAGE || arenaGarbage * 2 < arenaUsed) {
+            return;
+        }
+        byte[] old = arena;
+        arena = new byte[(int) (arenaUsed - arenaGarbage) + 1024];
+        arenaUsed = 0;
+        arenaGarbage = 0;
+        LongTrie<Segment> moved = LongTrie.empty();
+        for (Segment segment : segments) {
+            Segment copy = segment.edit == edit ? segment : new Segment(edit, segment);
+            for (long bits = copy.present; bits != 0; bits &= bits - 1) {
+                int slot = Long.numberOfTrailingZeros(bits);
+                copy.titles[slot] = move(old, copy.titles[slot]);
+                copy.notes[slot] = move(old, copy.notes[slot]);
+            }
+            moved = moved.put(copy.base >>> SEGMENT_BITS, copy, edit);
+        }
+        segments = moved;
+    }
+
+    private long move(byte[] from, long ref) {
+        if (ref == NULL_STRING) {
+            return NULL_STRING;
+        }
+        System.arraycopy(from, (int) (ref >>> 32), arena, arenaUsed, length(ref));
+        return append(length(ref));
+    }
+}
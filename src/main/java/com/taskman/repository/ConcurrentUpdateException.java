@@ -0,0 +1,51 @@
+package com.taskman.repository;
+
+/**
+ * Thrown by a conditional write when the entity changed or was deleted since
+ * the caller read it. Nothing was written; the caller should reload and retry.
+ */
+public class ConcurrentUpdateException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String entity;
+    private final long id;
+    private final int expectedVersion;
+    private final int currentVersion;
+
+    public ConcurrentUpdateException(String entity, long id, int expectedVersion, int currentVersion) {
+        // Conflicts are an expected outcome under contention, and the writer may raise
+        // them on another caller's thread: a stack trace would cost much and say little
+        super(currentVersion < 0
+                ? entity + " " + id + " was deleted"
+                : entity + " " + id + " was modified concurrently (expected version " + expectedVersion
+                        + ", found " + currentVersion + ")", null, false, false);
+        this.entity = entity;
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+        this.currentVersion = currentVersion;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    /**
+     * Version the entity has now, or -1 if it no longer exists
+     */
+    public int getCurrentVersion() {
+        return currentVersion;
+    }
+
+    public boolean isDeleted() {
+        return currentVersion < 0;
+    }
+}
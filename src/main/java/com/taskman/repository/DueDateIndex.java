@@ -0,0 +1,154 @@
+package com.taskman.repository;
+
+import com.taskman.collection.Edit;
+import com.taskman.collection.LongTreeSet;
+import com.taskman.collection.LongTrie;
+import java.time.LocalDate;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Ordered index of open tasks by due date, globally and per project. Each
+ * entry is one long, the due day in the high bits and the task id in the
+ * low 40, so a range of days is a range of keys, and the number of tasks
+ * due before a day is the rank of that day's first key.
+ *
+ * Immutable: updates return a new index sharing everything they did not
+ * change, and only write in place what was created under the same Edit.
+ */
+final class DueDateIndex {
+
+    static final DueDateIndex EMPTY = new DueDateIndex(LongTreeSet.empty(), LongTrie.empty());
+
+    private static final int ID_BITS = 40;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    // Days outside +/- 2^22 (about 11,000 years) from 1970 share the boundary day
+    private static final long DAY_OFFSET = 1L << 22;
+    private static final long MAX_DAY = (DAY_OFFSET << 1) - 1;
+
+    private final LongTreeSet global;
+    private final LongTrie<LongTreeSet> byProject;
+
+    private DueDateIndex(LongTreeSet global, LongTrie<LongTreeSet> byProject) {
+        this.global = global;
+        this.byProject = byProject;
+    }
+
+    DueDateIndex with(Long projectId, LocalDate dueDate, long taskId, Edit edit) {
+        long key = key(dueDate, taskId);
+        LongTrie<LongTreeSet> projects = byProject;
+        if (projectId != null) {
+            projects = projects.put(projectId, project(projectId).with(key, edit), edit);
+        }
+        return new DueDateIndex(global.with(key, edit), projects);
+    }
+
+    DueDateIndex without(Long projectId, LocalDate dueDate, long taskId, Edit edit) {
+        long key = key(dueDate, taskId);
+        LongTrie<LongTreeSet> projects = byProject;
+        if (projectId != null) {
+            LongTreeSet keys = project(projectId).without(key, edit);
+            projects = keys.isEmpty() ? projects.remove(projectId, edit) : projects.put(projectId, keys, edit);
+        }
+        return new DueDateIndex(global.without(key, edit), projects);
+    }
+
+    DueDateIndex withoutProject(long projectId, Edit edit) {
+        LongTreeSet keys = byProject.get(projectId);
+        if (keys == null) {
+            return this;
+        }
+        LongTreeSet remaining = global;
+        for (PrimitiveIterator.OfLong it = keys.iterator(); it.hasNext(); ) {
+            remaining = remaining.without(it.nextLong(), edit);
+        }
+        return new DueDateIndex(remaining, byProject.remove(projectId, edit));
+    }
+
+    /**
+     * Ids of open tasks due in [from, to), in due date order, read as they are iterated.
+     * A null bound leaves that side of the range open; a null projectId means all projects.
+     */
+    PrimitiveIterator.OfLong ids(Long projectId, LocalDate from, LocalDate to) {
+        return new KeyRange(keys(projectId).iterator(from == null ? 0 : key(from, 0)),
+                to == null ? Long.MAX_VALUE : key(to, 0));
+    }
+
+    /**
+     * Number of open tasks due in [from, to), counted from ranks without visiting them
+     */
+    long count(Long projectId, LocalDate from, LocalDate to) {
+        LongTreeSet keys = keys(projectId);
+        long end = to == null ? keys.size() : keys.rank(key(to, 0));
+        long start = from == null ? 0 : keys.rank(key(from, 0));
+        return Math.max(0, end - start);
+    }
+
+    /**
+     * Number of open tasks with a due date, over all projects
+     */
+    int size() {
+        return global.size();
+    }
+
+    /**
+     * Number of open tasks due before the given day; a null projectId means all projects
+     */
+    long countDueBefore(Long projectId, LocalDate day) {
+        return keys(projectId).rank(key(day, 0));
+    }
+
+    private LongTreeSet keys(Long projectId) {
+        return projectId == null ? global : project(projectId);
+    }
+
+    private LongTreeSet project(long projectId) {
+        LongTreeSet keys = byProject.get(projectId);
+        return keys == null ? LongTreeSet.empty() : keys;
+    }
+
+    private static long key(LocalDate day, long taskId) {
+        long days = Math.max(0, Math.min(MAX_DAY, day.toEpochDay() + DAY_OFFSET));
+        return days << ID_BITS | taskId;
+    }
+
+    /**
+     * Task ids of the keys before end
+     */
+    private static final class KeyRange implements PrimitiveIterator.OfLong {
+        private final PrimitiveIterator.OfLong keys;
+        private final long end;
+        private long next;
+        private boolean hasNext;
+
+        KeyRange(PrimitiveIterator.OfLong keys, long end) {
+            this.keys = keys;
+            this.end = end;
+            advance();
+        }
+
+        private void advance() {
+            if (keys.hasNext()) {
+                next = keys.nextLong();
+                hasNext = next < end;
+            } else {
+                hasNext = false;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            long taskId = next & ID_MASK;
+            advance();
+            return taskId;
+        }
+    }
+}
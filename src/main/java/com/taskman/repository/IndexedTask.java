@@ -0,0 +1,21 @@
+package com.taskman.repository;
+
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import java.time.LocalDate;
+
+/**
+ * The fields of a task the secondary indexes and counters depend on, and
+ * what task change listeners receive
+ */
+public record IndexedTask(Long projectId, TaskPriority priority, boolean done, LocalDate dueDate) {
+
+    static IndexedTask of(Task task) {
+        return new IndexedTask(task.getProjectId(), task.getPriority(), task.isDone(), task.getDueDate());
+    }
+
+    // Open with a due date, i.e. tracked by the due date index
+    public boolean isScheduled() {
+        return !done && dueDate != null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.taskman.repository;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs each mutation on the calling thread under one monitor, publishing after each
+ */
+final class LockingWriter implements RepositoryWriter {
+
+    private final Runnable publish;
+    // Nesting depth of execute() on the thread holding the monitor
+    private int depth;
+
+    LockingWriter(Runnable publish) {
+        this.publish = publish;
+    }
+
+    @Override
+    public synchronized <R> R execute(Supplier<R> mutation) {
+        depth++;
+        try {
+            return mutation.get();
+        } finally {
+            if (--depth == 0) {
+                publish.run();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        // Nothing to stop
+    }
+}
@@ -0,0 +1,267 @@
+package com.taskman.repository;
+
+import com.taskman.collection.Edit;
+import com.taskman.collection.LongTrie;
+import com.taskman.model.Task;
+import com.taskman.persistence.TaskColumns.MappedTaskSnapshot;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Task storage as plain objects in a persistent trie keyed by id. The
+ * stored instances are private copies of what was saved and never leave
+ * the store: readers get a copy of each task, as the columnar store builds
+ * a new object per read, so changing one cannot touch the published state
+ * or the previous values put() diffs the indexes against. A mapped snapshot
+ * stays the base layer: its rows are decoded each time they are read until
+ * a write replaces or deletes them.
+ */
+final class ObjectTaskStore implements TaskStore {
+
+    // Marks a mapped row that has been deleted
+    private static final Task DELETED = new Task();
+
+    // Tasks written since the snapshot was loaded, plus DELETED markers
+    private LongTrie<Task> tasks = LongTrie.empty();
+    private MappedTaskSnapshot mapped;
+    private int size;
+    // Trie nodes created under this token belong to the current batch and may be written in place
+    private Edit edit = new Edit();
+
+    @Override
+    public void load(MappedTaskSnapshot snapshot) {
+        mapped = snapshot;
+        size = snapshot.size();
+    }
+
+    @Override
+    public Task get(Long id) {
+        return id == null ? null : copyOf(find(tasks, mapped, id));
+    }
+
+    @Override
+    public boolean contains(Long id) {
+        return id != null && find(tasks, mapped, id) != null;
+    }
+
+    @Override
+    public int versionOf(Long id) {
+        Task task = id == null ? null : find(tasks, mapped, id);
+        return task == null ? -1 : task.getVersion();
+    }
+
+    @Override
+    public IndexedTask put(Task task) {
+        IndexedTask previous = stateOf(task.getId());
+        if (previous == null) {
+            size++;
+        }
+        tasks = tasks.put(task.getId(), copyOf(task), edit);
+        return previous;
+    }
+
+    @Override
+    public IndexedTask remove(Long id) {
+        IndexedTask previous = id == null ? null : stateOf(id);
+        if (previous == null) {
+            return null;
+        }
+        tasks = mappedRow(id) >= 0 ? tasks.put(id, DELETED, edit) : tasks.remove(id, edit);
+        size--;
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long maxId() {
+        long[] maxId = {0};
+        forEachState((id, state) -> maxId[0] = Math.max(maxId[0], id));
+        return maxId[0];
+    }
+
+    @Override
+    public void forEachState(BiConsumer<Long, IndexedTask> action) {
+        tasks.forEachEntry((id, task) -> {
+            if (task != DELETED) {
+                action.accept(id, IndexedTask.of(task));
+            }
+        });
+        if (mapped != null) {
+            for (int row = 0; row < mapped.size(); row++) {
+                if (!tasks.containsKey(mapped.id(row))) {
+                    action.accept(mapped.id(row), new IndexedTask(mapped.projectId(row), mapped.priority(row),
+                            mapped.isDone(row), mapped.dueDate(row)));
+                }
+            }
+        }
+    }
+
+    @Override
+    public TaskStore.Version publish() {
+        Version version = new Version(tasks, mapped, size);
+        edit = new Edit();
+        return version;
+    }
+
+    private IndexedTask stateOf(long id) {
+        Task task = find(tasks, mapped, id);
+        return task == null ? null : IndexedTask.of(task);
+    }
+
+    private int mappedRow(long id) {
+        return mapped == null ? -1 : mapped.rowOf(id);
+    }
+
+    private static Task find(LongTrie<Task> tasks, MappedTaskSnapshot mapped, long id) {
+        Task task = tasks.get(id);
+        if (task != null) {
+            return task == DELETED ? null : task;
+        }
+        int row = mapped == null ? -1 : mapped.rowOf(id);
+        return row < 0 ? null : mapped.materialize(row);
+    }
+
+    private static Task copyOf(Task task) {
+        if (task == null) {
+            return null;
+        }
+        Task copy = new Task(task.getProjectId(), task.getTitle(), task.getPriority(), task.getDueDate(), task.getNotes());
+        copy.setId(task.getId());
+        copy.setDone(task.isDone());
+        copy.setVersion(task.getVersion());
+        return copy;
+    }
+
+    private record Version(LongTrie<Task> tasks, MappedTaskSnapshot mapped, int size) implements TaskStore.Version {
+
+        @Override
+        public Task get(Long id) {
+            return id == null ? null : copyOf(find(tasks, mapped, id));
+        }
+
+        /**
+         * Without a mapped snapshot index access goes down the trie; with one it walks the merged rows
+         */
+        @Override
+        public List<Task> all() {
+            if (mapped == null) {
+                List<Task> stored = tasks.asList();
+                return new AbstractList<>() {
+                    @Override
+                    public Task get(int index) {
+                        return copyOf(stored.get(index));
+                    }
+
+                    @Override
+                    public int size() {
+                        return stored.size();
+                    }
+
+                    @Override
+                    public Iterator<Task> iterator() {
+                        Iterator<Task> rows = stored.iterator();
+                        return new Iterator<>() {
+                            @Override
+                            public boolean hasNext() {
+                                return rows.hasNext();
+                            }
+
+                            @Override
+                            public Task next() {
+                                return copyOf(rows.next());
+                            }
+                        };
+                    }
+                };
+            }
+            return new AbstractList<>() {
+                @Override
+                public Task get(int index) {
+                    if (index < 0 || index >= size) {
+                        throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+                    }
+                    Iterator<Task> rows = iterator();
+                    for (int i = 0; i < index; i++) {
+                        rows.next();
+                    }
+                    return rows.next();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Task> iterator() {
+                    return new MergedRows(tasks, mapped);
+                }
+            };
+        }
+    }
+
+    /**
+     * Mapped rows and written tasks merged in id order; written tasks win, as copies, and DELETED hides a row
+     */
+    private static final class MergedRows implements Iterator<Task> {
+        private final Iterator<Task> written;
+        private final MappedTaskSnapshot mapped;
+        private final LongTrie<Task> tasks;
+        private Task nextWritten;
+        private int row;
+        private Task next;
+
+        MergedRows(LongTrie<Task> tasks, MappedTaskSnapshot mapped) {
+            this.tasks = tasks;
+            this.mapped = mapped;
+            written = tasks.iterator();
+            nextWritten = nextWritten();
+            next = advance();
+        }
+
+        private Task nextWritten() {
+            while (written.hasNext()) {
+                Task task = written.next();
+                if (task != DELETED) {
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        private Task advance() {
+            while (row < mapped.size() && tasks.containsKey(mapped.id(row))) {
+                row++;
+            }
+            long mappedId = row < mapped.size() ? mapped.id(row) : Long.MAX_VALUE;
+            if (nextWritten != null && nextWritten.getId() < mappedId) {
+                Task task = nextWritten;
+                nextWritten = nextWritten();
+                return copyOf(task);
+            }
+            return row < mapped.size() ? mapped.materialize(row++) : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Task next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Task task = next;
+            next = advance();
+            return task;
+        }
+    }
+}
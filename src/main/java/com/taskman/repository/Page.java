@@ -0,0 +1,31 @@
+package com.taskman.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * A page of rows from Paging, with the number of rows read to build it
+ */
+final class Page<T> extends ArrayList<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private long scanned;
+
+    Page(int capacity) {
+        super(capacity);
+    }
+
+    Page(Collection<? extends T> rows) {
+        super(rows);
+    }
+
+    long scanned() {
+        return scanned;
+    }
+
+    Page<T> scanned(long scanned) {
+        this.scanned = scanned;
+        return this;
+    }
+}
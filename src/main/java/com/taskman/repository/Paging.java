@@ -0,0 +1,87 @@
+package com.taskman.repository;
+
+import com.taskman.metrics.Tracer;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Offset and keyset (seek) paging over in-memory rows.
+ * Sorted pages keep only offset + limit rows in a bounded heap instead of
+ * sorting every match; keyset pages keep only limit rows.
+ * Pages know how many rows were read to build them; those and the rows
+ * returned also go to the current trace span, if any.
+ */
+final class Paging {
+
+    private Paging() {
+    }
+
+    /**
+     * Matching rows [offset, offset + limit) in the given order
+     */
+    static <T> Page<T> page(Iterable<T> rows, Predicate<? super T> filter, Comparator<T> order,
+                            int offset, int limit) {
+        if (limit <= 0 || offset < 0) {
+            return new Page<>(0);
+        }
+        int keep = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        PriorityQueue<T> heap = new PriorityQueue<>(Math.min(keep, 256), order.reversed());
+        long scanned = 0;
+        for (T row : rows) {
+            scanned++;
+            if (!filter.test(row)) {
+                continue;
+            }
+            if (heap.size() < keep) {
+                heap.add(row);
+            } else if (order.compare(row, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(row);
+            }
+        }
+        List<T> sorted = new ArrayList<>(heap);
+        sorted.sort(order);
+        if (offset >= sorted.size()) {
+            Tracer.rows(scanned, 0);
+            return new Page<T>(0).scanned(scanned);
+        }
+        Tracer.rows(scanned, sorted.size() - offset);
+        return new Page<T>(sorted.subList(offset, sorted.size())).scanned(scanned);
+    }
+
+    /**
+     * First limit matching rows that sort strictly after the cursor row
+     */
+    static <T> Page<T> pageAfter(Iterable<T> rows, Predicate<? super T> filter, Comparator<T> order,
+                                 T after, int limit) {
+        return page(rows, row -> filter.test(row) && order.compare(row, after) > 0, order, 0, limit);
+    }
+
+    /**
+     * Page over rows that are already in the requested order; stops as soon as the page is full
+     */
+    static <T> Page<T> pageOrdered(Iterable<T> rows, Predicate<? super T> filter, int offset, int limit) {
+        Page<T> page = new Page<>(Math.max(0, Math.min(limit, 256)));
+        if (limit <= 0 || offset < 0) {
+            return page;
+        }
+        int skipped = 0;
+        long scanned = 0;
+        for (T row : rows) {
+            scanned++;
+            if (!filter.test(row)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            page.add(row);
+            if (page.size() == limit) {
+                break;
+            }
+        }
+        Tracer.rows(scanned, page.size());
+        return page.scanned(scanned);
+    }
+}
@@ -1,25 +1,161 @@
 package com.taskman.repository;
 
+import com.taskman.collection.Edit;
+import com.taskman.collection.LongList;
+import com.taskman.collection.LongTrie;
+import com.taskman.metrics.RepositoryMutationEvent;
+import com.taskman.metrics.RepositoryQueryEvent;
+import com.taskman.metrics.Timed;
 import com.taskman.model.Project;
 import com.taskman.model.ProjectStatus;
+import com.taskman.persistence.EntityCodec;
+import com.taskman.persistence.Journal;
+import com.taskman.persistence.PersistenceSettings;
+import com.taskman.persistence.ProjectColumns;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
- * In-memory repository for Project entities
+ * In-memory repository for Project entities.
+ *
+ * Queries run against an immutable State published at the end of each
+ * writer batch, like TaskRepository. The stored projects are private copies
+ * of what was saved and never leave the repository: queries return copies,
+ * so a caller changing a project it read changes nothing until it saves
+ * it, and a save that fails leaves the stored project as it was. Versions work as
+ * in TaskRepository: every save bumps them, and save(project, expectedVersion)
+ * rejects changes to a project someone else changed first.
+ *
+ * The ids matching a search term and status are cached until the next
+ * project write, so the count and every page and sort order of the same
+ * search share one lookup.
  */
+@Timed
 @ApplicationScoped
 public class ProjectRepository {
+
+    private static final Logger LOGGER = Logger.getLogger(ProjectRepository.class.getName());
     
-    private final Map<Long, Project> projects = new HashMap<>();
+    // Expected version of unconditional writes
+    private static final int ANY_VERSION = Integer.MIN_VALUE;
+
+    // Writer's working versions; readers get them through a State
+    private LongTrie<Project> projects = LongTrie.empty();
     private final AtomicLong idGenerator = new AtomicLong(1);
 
+    // Unique name index: name key -> project id. Written by the repository writer, read lock-free
+    private final Map<String, Long> idsByName = new ConcurrentHashMap<>();
+    // Name key each project was indexed under, so renames can release the old key; writer only
+    private final Map<Long, String> indexedNames = new HashMap<>();
+
+    // Accent-insensitive trigram index over name and owner for the search box
+    private ProjectSearchIndex searchIndex = ProjectSearchIndex.EMPTY;
+
+    // Nodes created under this token belong to the current batch and may be written in place
+    private Edit edit = new Edit();
+
+    // Number of writes applied; any write invalidates every cached search
+    private long writeStamp;
+
+    // Ids of the projects matching a search, in id order
+    private final QueryCache<SearchKey, LongList> searchCache = QueryCache.create("projects", LongList::size);
+
+    // Notified by the writer of every saved or deleted project
+    private final List<ChangeListener<Project>> listeners = new ArrayList<>();
+
+    // What readers see; replaced by publish() after every writer batch
+    private volatile State published = new State(projects, searchIndex, 0);
+
+    // When enabled, names differing only in case or whitespace count as duplicates
+    private final boolean normalizedNames = Boolean.getBoolean("taskman.projectNames.normalized");
+
+    // Write-ahead log and snapshots; null when persistence is disabled
+    private Journal<Project> journal;
+
+    // Applies every mutation on one thread, then publishes the new state
+    private final RepositoryWriter writer = RepositoryWriter.create("projects", this::publish);
+
     @PostConstruct
     public void init() {
+        if (PersistenceSettings.isEnabled()) {
+            journal = Journal.open(PersistenceSettings.dataDirectory(), "projects", EntityCodec.PROJECTS, new ProjectColumns());
+            Journal.Recovery recovery = journal.recover(new Journal.Replay<>() {
+                @Override
+                public void save(Project project) {
+                    store(project);
+                }
+
+                @Override
+                public void delete(long id) {
+                    removeProject(id);
+                }
+
+                @Override
+                public void deleteByOwner(long ownerId) {
+                    // Projects have no owning entity
+                }
+            });
+            if (recovery.found()) {
+                long maxId = projects.isEmpty() ? 0 : projects.select(projects.size() - 1).getId();
+                idGenerator.set(Math.max(recovery.nextId(), maxId + 1));
+                publish();
+            } else {
+                seed();
+                publish();
+                snapshot();
+            }
+            journal.scheduleSnapshots(PersistenceSettings.snapshotIntervalSeconds(), this::snapshot);
+        } else {
+            seed();
+            publish();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (journal != null) {
+            // A periodic snapshot still running would race the final one
+            journal.stopSnapshots();
+        }
+        writer.close();
+        if (journal != null) {
+            if (journal.hasChangesSinceCheckpoint()) {
+                journal.writeSnapshot(materialize(checkpoint()));
+            }
+            journal.close();
+        }
+    }
+
+    /**
+     * Writes a compacted snapshot and drops the log it replaces
+     */
+    public void snapshot() {
+        if (journal == null) {
+            return;
+        }
+        journal.writeSnapshot(materialize(writer.execute(this::checkpoint)));
+    }
+
+    // Runs on the writer: publishing first freezes every write logged before the rotation
+    private Journal.Checkpoint<Project> checkpoint() {
+        publish();
+        return journal.checkpoint(idGenerator.get(), published.projects().asList());
+    }
+
+    private static Journal.Checkpoint<Project> materialize(Journal.Checkpoint<Project> checkpoint) {
+        return new Journal.Checkpoint<>(checkpoint.generation(), checkpoint.nextId(),
+                new ArrayList<>(checkpoint.entities()));
+    }
+
+    private void seed() {
         // Seed data
         createProject("Sistema de Gestión de Inventarios", "Juan Pérez", 
                      "Desarrollo de un sistema completo para la gestión de inventarios de la empresa", 
@@ -38,20 +174,53 @@ public class ProjectRepository {
                      ProjectStatus.DONE);
     }
 
+    /**
+     * Every project in id order: a read-only view of the current state, taken
+     * in O(1), that copies each project as it is read
+     */
     public List<Project> findAll() {
-        return new ArrayList<>(projects.values());
+        List<Project> stored = state().projects().asList();
+        return new AbstractList<>() {
+            @Override
+            public Project get(int index) {
+                return copyOf(stored.get(index));
+            }
+
+            @Override
+            public int size() {
+                return stored.size();
+            }
+
+            @Override
+            public Iterator<Project> iterator() {
+                Iterator<Project> rows = stored.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return rows.hasNext();
+                    }
+
+                    @Override
+                    public Project next() {
+                        return copyOf(rows.next());
+                    }
+                };
+            }
+        };
     }
 
     public Optional<Project> findById(Long id) {
-        return Optional.ofNullable(projects.get(id));
+        Project project = id == null ? null : state().projects().get(id);
+        return Optional.ofNullable(project == null ? null : copyOf(project));
     }
 
     public List<Project> findByNameContaining(String name) {
         if (name == null || name.trim().isEmpty()) {
             return findAll();
         }
-        return projects.values().stream()
+        return state().projects().asList().stream()
                 .filter(project -> project.getName().toLowerCase().contains(name.toLowerCase()))
+                .map(ProjectRepository::copyOf)
                 .collect(Collectors.toList());
     }
 
@@ -59,67 +228,231 @@ public class ProjectRepository {
         if (owner == null || owner.trim().isEmpty()) {
             return findAll();
         }
-        return projects.values().stream()
+        return state().projects().asList().stream()
                 .filter(project -> project.getOwner().toLowerCase().contains(owner.toLowerCase()))
+                .map(ProjectRepository::copyOf)
                 .collect(Collectors.toList());
     }
 
     public List<Project> findByStatus(ProjectStatus status) {
-        if (status == null) {
-            return findAll();
-        }
-        return projects.values().stream()
-                .filter(project -> project.getStatus() == status)
-                .collect(Collectors.toList());
+        return findByNameOrOwnerContainingAndStatus(null, status);
     }
 
     public List<Project> findByNameOrOwnerContaining(String searchTerm) {
-        if (searchTerm == null || searchTerm.trim().isEmpty()) {
-            return findAll();
-        }
-        String lowerSearchTerm = searchTerm.toLowerCase();
-        return projects.values().stream()
-                .filter(project -> 
-                    project.getName().toLowerCase().contains(lowerSearchTerm) ||
-                    project.getOwner().toLowerCase().contains(lowerSearchTerm))
-                .collect(Collectors.toList());
+        return findByNameOrOwnerContainingAndStatus(searchTerm, null);
     }
 
     public List<Project> findByNameOrOwnerContainingAndStatus(String searchTerm, ProjectStatus status) {
-        List<Project> filteredByNameOrOwner = findByNameOrOwnerContaining(searchTerm);
-        if (status == null) {
-            return filteredByNameOrOwner;
+        State state = state();
+        List<Project> result = new ArrayList<>();
+        searchRows(state, searchTerm, status).forEach(project -> result.add(copyOf(project)));
+        return result;
+    }
+
+    public long countByNameOrOwnerContainingAndStatus(String searchTerm, ProjectStatus status) {
+        if (isBlank(searchTerm) && status == null) {
+            return count();
         }
-        return filteredByNameOrOwner.stream()
-                .filter(project -> project.getStatus() == status)
-                .collect(Collectors.toList());
+        return matchingIds(state(), searchTerm, status).size();
+    }
+
+    /**
+     * One page of the search results, sorted; sortField null means id order
+     */
+    public List<Project> findPage(String searchTerm, ProjectStatus status,
+                                  String sortField, boolean ascending, int offset, int limit) {
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        event.begin();
+        Iterable<Project> rows = searchRows(state(), searchTerm, status);
+        Page<Project> page = sortField == null && ascending
+                ? Paging.pageOrdered(rows, project -> true, offset, limit)
+                : Paging.page(rows, project -> true, projectOrder(sortField, ascending), offset, limit);
+        event.finish("projects", "findPage", null, null, page.scanned(), page.size());
+        page.replaceAll(ProjectRepository::copyOf);
+        return page;
+    }
+
+    /**
+     * Keyset variant of findPage: the page that follows the given row
+     */
+    public List<Project> findPageAfter(String searchTerm, ProjectStatus status,
+                                       String sortField, boolean ascending, Project after, int limit) {
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        event.begin();
+        Page<Project> page;
+        if (isBlank(searchTerm) && sortField == null && ascending) {
+            // Id order: seek straight to the cursor
+            LongTrie<Project> rows = state().projects();
+            page = Paging.pageOrdered(() -> rows.iterator(after.getId() + 1),
+                    project -> hasStatus(project, status), 0, limit);
+        } else {
+            page = Paging.pageAfter(searchRows(state(), searchTerm, status), project -> true,
+                    projectOrder(sortField, ascending), after, limit);
+        }
+        event.finish("projects", "findPageAfter", null, null, page.scanned(), page.size());
+        page.replaceAll(ProjectRepository::copyOf);
+        return page;
+    }
+
+    /**
+     * Hits, misses and evictions of the search cache
+     */
+    public CacheStats cacheStats() {
+        return searchCache.stats();
+    }
+
+    /**
+     * Number of trigrams in the name and owner search index
+     */
+    public int searchIndexSize() {
+        return state().search().trigramCount();
+    }
+
+    /**
+     * Registers a listener for saved and deleted projects. It first receives
+     * every existing project as a creation, on the writer, so no write falls
+     * between what it has replayed and what it is notified of. The projects
+     * it is handed are the stored ones and must not be modified.
+     */
+    public void subscribe(ChangeListener<Project> listener) {
+        writer.execute(() -> {
+            replayTo(listener);
+            listeners.add(listener);
+            return null;
+        });
+        ReadScope.release(this);
+    }
+
+    /**
+     * Registers a listener for the writes from now on, without the replay of subscribe()
+     */
+    public void addListener(ChangeListener<Project> listener) {
+        writer.execute(() -> listeners.add(listener));
+        ReadScope.release(this);
+    }
+
+    /**
+     * Hands every existing project to the listener as a creation, on the
+     * writer, without registering it; for listeners that need to look at
+     * the whole set again. Must not be called from a listener.
+     */
+    public void replay(ChangeListener<Project> listener) {
+        writer.execute(() -> {
+            replayTo(listener);
+            return null;
+        });
+        ReadScope.release(this);
+    }
+
+    private void replayTo(ChangeListener<Project> listener) {
+        projects.forEachEntry((id, project) -> listener.changed(id, null, project));
     }
 
     public boolean existsByName(String name) {
-        return projects.values().stream()
-                .anyMatch(project -> project.getName().equals(name));
+        String key = nameKey(name);
+        return key != null && idsByName.containsKey(key);
     }
 
     public boolean existsByNameAndIdNot(String name, Long id) {
-        return projects.values().stream()
-                .anyMatch(project -> project.getName().equals(name) && !project.getId().equals(id));
+        String key = nameKey(name);
+        if (key == null) {
+            return false;
+        }
+        Long ownerId = idsByName.get(key);
+        return ownerId != null && !ownerId.equals(id);
     }
 
+    /**
+     * Saves the project, checking name uniqueness atomically with the write
+     *
+     * @throws IllegalArgumentException if another project already uses the name
+     */
     public Project save(Project project) {
+        return write(project, ANY_VERSION);
+    }
+
+    /**
+     * Saves changes to a stored project only if it is still at the version the caller read
+     *
+     * @throws ConcurrentUpdateException if the project was changed or deleted since
+     * @throws IllegalArgumentException if another project already uses the name
+     */
+    public Project save(Project project, int expectedVersion) {
         if (project.getId() == null) {
-            project.setId(idGenerator.getAndIncrement());
-            project.setCreatedAt(LocalDateTime.now());
+            throw new IllegalArgumentException("Only stored projects can be updated conditionally");
         }
-        projects.put(project.getId(), project);
+        return write(project, expectedVersion);
+    }
+
+    private Project write(Project project, int expectedVersion) {
+        RepositoryMutationEvent event = new RepositoryMutationEvent();
+        event.begin();
+        long seq = writer.execute(() -> {
+            int version = -1;
+            if (project.getId() != null) {
+                Project current = projects.get(project.getId());
+                version = current == null ? -1 : current.getVersion();
+                if (expectedVersion != ANY_VERSION && version != expectedVersion) {
+                    throw new ConcurrentUpdateException("Project", project.getId(), expectedVersion, version);
+                }
+            }
+            if (existsByNameAndIdNot(project.getName(), project.getId())) {
+                throw new IllegalArgumentException("Project name must be unique");
+            }
+            if (project.getId() == null) {
+                project.setId(idGenerator.getAndIncrement());
+                project.setCreatedAt(LocalDateTime.now());
+            }
+            project.setVersion(version + 1);
+            long logged = journal == null ? 0 : journal.logSave(project);
+            store(copyOf(project));
+            return logged;
+        });
+        ReadScope.release(this);
+        awaitDurable(seq);
+        event.finish("projects", "save", project.getId());
         return project;
     }
 
     public void deleteById(Long id) {
-        projects.remove(id);
+        RepositoryMutationEvent event = new RepositoryMutationEvent();
+        event.begin();
+        long seq = writer.execute(() -> {
+            if (id == null || !projects.containsKey(id)) {
+                return 0L;
+            }
+            long logged = journal == null ? 0 : journal.logDelete(id);
+            removeProject(id);
+            return logged;
+        });
+        ReadScope.release(this);
+        awaitDurable(seq);
+        event.finish("projects", "delete", id);
+    }
+
+    private void awaitDurable(long seq) {
+        // Waiting after the writer has moved on lets concurrent writes share one fsync
+        if (seq > 0) {
+            journal.awaitDurable(seq);
+        }
+    }
+
+    private void removeProject(Long id) {
+        Project previous = projects.get(id);
+        if (previous != null) {
+            writeStamp++;
+            projects = projects.remove(id, edit);
+            String key = indexedNames.remove(id);
+            if (key != null) {
+                idsByName.remove(key, id);
+            }
+            searchIndex = searchIndex.without(id, edit);
+            notifyListeners(id, previous, null);
+        }
     }
 
     public long count() {
-        return projects.size();
+        return state().projects().size();
     }
 
     private void createProject(String name, String owner, String description, ProjectStatus status) {
@@ -130,6 +463,169 @@ public class ProjectRepository {
         project.setDescription(description);
         project.setStatus(status);
         project.setCreatedAt(LocalDateTime.now().minusDays(new Random().nextInt(30)));
-        projects.put(project.getId(), project);
+        store(project);
+    }
+
+    private void store(Project project) {
+        writeStamp++;
+        Long id = project.getId();
+        Project previous = projects.get(id);
+        projects = projects.put(id, project, edit);
+
+        String key = nameKey(project.getName());
+        String previousKey = key == null ? indexedNames.remove(id) : indexedNames.put(id, key);
+        if (previousKey != null && !previousKey.equals(key)) {
+            idsByName.remove(previousKey, id);
+        }
+        if (key != null) {
+            idsByName.put(key, id);
+        }
+        searchIndex = searchIndex.with(id, project.getName(), project.getOwner(), edit);
+        notifyListeners(id, previous, project);
+    }
+
+    // The write is applied and logged by now, so a failing listener must not fail it
+    private void notifyListeners(long id, Project previous, Project current) {
+        for (ChangeListener<Project> listener : listeners) {
+            try {
+                listener.changed(id, previous, current);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Change listener failed for project " + id, e);
+            }
+        }
+    }
+
+    /**
+     * Freezes the writer's projects and search index for readers; runs after every writer batch
+     */
+    private void publish() {
+        published = new State(projects, searchIndex, writeStamp);
+        edit = new Edit();
+    }
+
+    /**
+     * The state this thread reads: pinned by its ReadScope, or else the latest
+     */
+    private State state() {
+        return ReadScope.pin(this, published);
+    }
+
+    private static Project copyOf(Project project) {
+        Project copy = new Project(project.getName(), project.getOwner(), project.getDescription());
+        copy.setId(project.getId());
+        copy.setStatus(project.getStatus());
+        copy.setCreatedAt(project.getCreatedAt());
+        copy.setVersion(project.getVersion());
+        return copy;
+    }
+
+    /**
+     * Projects matching the search term and status, in id order
+     */
+    private Iterable<Project> searchRows(State state, String searchTerm, ProjectStatus status) {
+        if (isBlank(searchTerm) && status == null) {
+            return state.projects();
+        }
+        return rowsOf(state, matchingIds(state, searchTerm, status));
+    }
+
+    /**
+     * Ids of the projects matching the search term and status, from the cache if no project changed since
+     */
+    private LongList matchingIds(State state, String searchTerm, ProjectStatus status) {
+        SearchKey key = new SearchKey(isBlank(searchTerm) ? "" : ProjectSearchIndex.normalize(searchTerm.trim()), status);
+        LongList cached = searchCache.get(key, state.stamp());
+        if (cached != null) {
+            return cached;
+        }
+        LongList ids = new LongList();
+        if (key.term().isEmpty()) {
+            state.projects().forEachEntry((id, project) -> {
+                if (project.getStatus() == status) {
+                    ids.add(id);
+                }
+            });
+        } else {
+            LongList found = state.search().search(searchTerm);
+            for (int i = 0; i < found.size(); i++) {
+                if (hasStatus(state.projects().get(found.get(i)), status)) {
+                    ids.add(found.get(i));
+                }
+            }
+        }
+        if (state == published) {
+            searchCache.put(key, state.stamp(), ids);
+        }
+        return ids;
+    }
+
+    /**
+     * Projects of the given ids, looked up as they are iterated
+     */
+    private static Iterable<Project> rowsOf(State state, LongList ids) {
+        return () -> new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < ids.size();
+            }
+
+            @Override
+            public Project next() {
+                if (next >= ids.size()) {
+                    throw new NoSuchElementException();
+                }
+                return state.projects().get(ids.get(next++));
+            }
+        };
+    }
+
+    private static boolean hasStatus(Project project, ProjectStatus status) {
+        return status == null || project.getStatus() == status;
+    }
+
+    private static boolean isBlank(String text) {
+        return text == null || text.trim().isEmpty();
+    }
+
+    private static Comparator<Project> projectOrder(String sortField, boolean ascending) {
+        Comparator<Project> order = switch (sortField == null ? "id" : sortField) {
+            case "name" -> Comparator.comparing(Project::getName,
+                    Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+            case "owner" -> Comparator.comparing(Project::getOwner,
+                    Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+            case "status" -> Comparator.comparing(Project::getStatus,
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            case "createdAt" -> Comparator.comparing(Project::getCreatedAt,
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            default -> Comparator.comparing(Project::getId);
+        };
+        if (!ascending) {
+            order = order.reversed();
+        }
+        return order.thenComparing(Project::getId);
+    }
+
+    private String nameKey(String name) {
+        if (name == null) {
+            return null;
+        }
+        if (!normalizedNames) {
+            return name;
+        }
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Everything a reader sees, frozen at the end of a writer batch
+     */
+    private record State(LongTrie<Project> projects, ProjectSearchIndex search, long stamp) {
+    }
+
+    /**
+     * A search as cached: the normalized term, empty for none, and the status or null for any
+     */
+    private record SearchKey(String term, ProjectStatus status) {
     }
 }
@@ -0,0 +1,141 @@
+package com.taskman.repository;
+
+import com.taskman.collection.Edit;
+import com.taskman.collection.LongList;
+import com.taskman.collection.LongTreeSet;
+import com.taskman.collection.LongTrie;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Trigram inverted index over the normalized name and owner of each project.
+ * Text is lower-cased and stripped of accents, so "perez" finds "Juan Pérez".
+ * Substring queries intersect the posting lists of the term's trigrams and
+ * then verify the remaining candidates against the normalized text.
+ *
+ * Immutable: updates return a new index sharing everything they did not
+ * change, and only write in place what was created under the same Edit.
+ */
+final class ProjectSearchIndex {
+
+    static final ProjectSearchIndex EMPTY = new ProjectSearchIndex(LongTrie.empty(), LongTrie.empty());
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final int GRAM = 3;
+    // Separates name and owner so a term never matches across the two fields
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    private final LongTrie<String> textById;
+    // Trigram -> ids of the projects containing it
+    private final LongTrie<LongTreeSet> postings;
+
+    private ProjectSearchIndex(LongTrie<String> textById, LongTrie<LongTreeSet> postings) {
+        this.textById = textById;
+        this.postings = postings;
+    }
+
+    /**
+     * This index with the project's name and owner (re)indexed
+     */
+    ProjectSearchIndex with(long id, String name, String owner, Edit edit) {
+        ProjectSearchIndex index = without(id, edit);
+        String normalizedName = normalize(name);
+        String normalizedOwner = normalize(owner);
+        LongTrie<LongTreeSet> grams = index.postings;
+        LongList trigrams = trigrams(normalizedName, normalizedOwner);
+        for (int i = 0; i < trigrams.size(); i++) {
+            LongTreeSet ids = grams.get(trigrams.get(i));
+            grams = grams.put(trigrams.get(i), (ids == null ? LongTreeSet.empty() : ids).with(id, edit), edit);
+        }
+        return new ProjectSearchIndex(
+                index.textById.put(id, normalizedName + FIELD_SEPARATOR + normalizedOwner, edit), grams);
+    }
+
+    ProjectSearchIndex without(long id, Edit edit) {
+        String text = textById.get(id);
+        if (text == null) {
+            return this;
+        }
+        int separator = text.indexOf(FIELD_SEPARATOR);
+        LongTrie<LongTreeSet> grams = postings;
+        LongList trigrams = trigrams(text.substring(0, separator), text.substring(separator + 1));
+        for (int i = 0; i < trigrams.size(); i++) {
+            LongTreeSet ids = grams.get(trigrams.get(i));
+            if (ids != null) {
+                ids = ids.without(id, edit);
+                grams = ids.isEmpty() ? grams.remove(trigrams.get(i), edit) : grams.put(trigrams.get(i), ids, edit);
+            }
+        }
+        return new ProjectSearchIndex(textById.remove(id, edit), grams);
+    }
+
+    /**
+     * Ids of projects whose name or owner contains the term, in id order
+     */
+    LongList search(String term) {
+        String query = normalize(term.trim());
+        LongList matches = new LongList();
+        if (query.length() < GRAM) {
+            // Too short to have a trigram: scan the pre-normalized text, which allocates nothing per row
+            textById.forEachEntry((id, text) -> {
+                if (text.contains(query)) {
+                    matches.add(id);
+                }
+            });
+            return matches;
+        }
+        List<LongTreeSet> sets = new ArrayList<>();
+        LongList grams = trigrams(query);
+        for (int i = 0; i < grams.size(); i++) {
+            LongTreeSet ids = postings.get(grams.get(i));
+            if (ids == null) {
+                return matches;
+            }
+            sets.add(ids);
+        }
+        sets.sort(Comparator.comparingInt(LongTreeSet::size));
+        // Walking the smallest set in id order keeps the result sorted
+        sets.get(0).forEach(id -> {
+            if (inAll(sets, id) && textById.get(id).contains(query)) {
+                matches.add(id);
+            }
+        });
+        return matches;
+    }
+
+    /**
+     * Number of distinct trigrams, each with its posting list
+     */
+    int trigramCount() {
+        return postings.size();
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean inAll(List<LongTreeSet> sets, long id) {
+        for (int i = 1; i < sets.size(); i++) {
+            if (!sets.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static LongList trigrams(String... fields) {
+        LongList grams = new LongList();
+        for (String field : fields) {
+            for (int i = 0; i + GRAM <= field.length(); i++) {
+                grams.add(((long) field.charAt(i) << 32) | ((long) field.charAt(i + 1) << 16) | field.charAt(i + 2));
+            }
+        }
+        grams.sortUnique();
+        return grams;
+    }
+}
@@ -0,0 +1,123 @@
+package com.taskman.repository;
+
+import com.taskman.collection.Edit;
+import com.taskman.collection.LongBitmap;
+import com.taskman.model.TaskPriority;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Bitmaps over the task ids of one project: all of its tasks, the done ones
+ * and one per priority. Task ids are handed out in sequence, so they serve
+ * directly as the dense row numbers the bitmaps are keyed by. Priority and
+ * done filters become ORs and ANDs of these, and their counts popcounts.
+ *
+ * The stamp is the repository's write count at the last change to any task
+ * of the project, so cached results for the project stay valid until it moves.
+ *
+ * Immutable; TaskRepository replaces it on every write. The bitmaps behind
+ * it follow the Edit rules, so a writer batch updates them in place.
+ */
+final class ProjectTaskBitmaps {
+
+    static final ProjectTaskBitmaps EMPTY = new ProjectTaskBitmaps(LongBitmap.empty(), LongBitmap.empty(),
+            Collections.nCopies(TaskPriority.values().length, LongBitmap.empty()).toArray(LongBitmap[]::new), 0);
+
+    private final LongBitmap all;
+    private final LongBitmap done;
+    // Indexed by priority ordinal; tasks without a priority are in none of them
+    private final LongBitmap[] byPriority;
+    private final long stamp;
+
+    private ProjectTaskBitmaps(LongBitmap all, LongBitmap done, LongBitmap[] byPriority, long stamp) {
+        this.all = all;
+        this.done = done;
+        this.byPriority = byPriority;
+        this.stamp = stamp;
+    }
+
+    ProjectTaskBitmaps with(long taskId, IndexedTask task, long stamp, Edit edit) {
+        LongBitmap[] priorities = byPriority.clone();
+        if (task.priority() != null) {
+            int ordinal = task.priority().ordinal();
+            priorities[ordinal] = priorities[ordinal].with(taskId, edit);
+        }
+        return new ProjectTaskBitmaps(all.with(taskId, edit), task.done() ? done.with(taskId, edit) : done,
+                priorities, stamp);
+    }
+
+    ProjectTaskBitmaps without(long taskId, IndexedTask task, long stamp, Edit edit) {
+        LongBitmap[] priorities = byPriority.clone();
+        if (task.priority() != null) {
+            int ordinal = task.priority().ordinal();
+            priorities[ordinal] = priorities[ordinal].without(taskId, edit);
+        }
+        return new ProjectTaskBitmaps(all.without(taskId, edit), done.without(taskId, edit), priorities, stamp);
+    }
+
+    /**
+     * The same bitmaps after a change to a task that none of them track, such as its title
+     */
+    ProjectTaskBitmaps stamped(long stamp) {
+        return stamp == this.stamp ? this : new ProjectTaskBitmaps(all, done, byPriority, stamp);
+    }
+
+    long stamp() {
+        return stamp;
+    }
+
+    boolean isEmpty() {
+        return all.isEmpty();
+    }
+
+    LongBitmap all() {
+        return all;
+    }
+
+    long total() {
+        return all.cardinality();
+    }
+
+    long done() {
+        return done.cardinality();
+    }
+
+    long open() {
+        return all.cardinality() - done.cardinality();
+    }
+
+    /**
+     * Ids of the tasks with any of the priorities and the given done flag;
+     * an empty set or a null flag accepts any
+     */
+    LongBitmap matching(Set<TaskPriority> priorities, Boolean isDone) {
+        LongBitmap candidates = withPriorities(priorities);
+        if (isDone == null) {
+            return candidates;
+        }
+        return isDone ? candidates.and(done) : candidates.andNot(done);
+    }
+
+    /**
+     * Size of matching(), with the done flag applied as a popcount of the AND
+     */
+    long count(Set<TaskPriority> priorities, Boolean isDone) {
+        LongBitmap candidates = withPriorities(priorities);
+        if (isDone == null) {
+            return candidates.cardinality();
+        }
+        long doneCount = candidates == all ? done.cardinality() : candidates.andCardinality(done);
+        return isDone ? doneCount : candidates.cardinality() - doneCount;
+    }
+
+    private LongBitmap withPriorities(Set<TaskPriority> priorities) {
+        if (priorities.isEmpty()) {
+            return all;
+        }
+        LongBitmap union = LongBitmap.empty();
+        for (TaskPriority priority : priorities) {
+            union = union.or(byPriority[priority.ordinal()]);
+        }
+        return union;
+    }
+}
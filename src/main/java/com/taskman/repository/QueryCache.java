@@ -0,0 +1,138 @@
+package com.taskman.repository;
+
+import com.taskman.metrics.QueryCacheEvent;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded cache of query results. Every entry carries the stamp of the
+ * data it was computed from, and a lookup with any other stamp is a miss:
+ * writes invalidate exactly the entries whose stamps they move, without
+ * the cache having to be told. Lookups are reported as JFR QueryCacheEvents
+ * under the cache's name.
+ *
+ * Lookups and inserts take no lock. Eviction is approximate LRU: once
+ * either the entry count or the total weight, the rows the results hold,
+ * exceeds its bound, one thread at a time drops the least recently used
+ * entries until both are back under 7/8 of their bounds, so the sort
+ * behind it runs once per batch of inserts rather than on each.
+ */
+final class QueryCache<K, V> {
+
+    private final String name;
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ToIntFunction<V> weigher;
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>(64);
+    // Sum of the weights of the entries in the map; whoever removes or replaces an entry subtracts its weight
+    private final AtomicLong weight = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    QueryCache(String name, int maxEntries, long maxWeight, ToIntFunction<V> weigher) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Bounds from the taskman.queryCache.entries and taskman.queryCache.rows
+     * system properties; either one set to 0 disables caching
+     */
+    static <K, V> QueryCache<K, V> create(String name, ToIntFunction<V> weigher) {
+        return new QueryCache<>(name, Integer.getInteger("taskman.queryCache.entries", 1024),
+                Long.getLong("taskman.queryCache.rows", 200_000), weigher);
+    }
+
+    /**
+     * The cached result for the key if it was computed at the given stamp, else null
+     */
+    V get(K key, long stamp) {
+        Entry<V> entry = entries.get(key);
+        boolean wasStale = false;
+        if (entry != null && entry.stamp != stamp) {
+            if (entries.remove(key, entry)) {
+                weight.addAndGet(-entry.weight);
+            }
+            stale.increment();
+            entry = null;
+            wasStale = true;
+        }
+        if (entry != null) {
+            entry.lastUsed = System.nanoTime();
+        }
+        (entry == null ? misses : hits).increment();
+        new QueryCacheEvent().finish(name, entry != null, wasStale);
+        return entry == null ? null : entry.value;
+    }
+
+    void put(K key, long stamp, V value) {
+        int entryWeight = weigher.applyAsInt(value) + 1;
+        if (maxEntries <= 0 || entryWeight > maxWeight) {
+            return;
+        }
+        Entry<V> previous = entries.put(key, new Entry<>(value, stamp, entryWeight));
+        long total = weight.addAndGet(entryWeight - (previous == null ? 0 : previous.weight));
+        if (entries.size() > maxEntries || total > maxWeight) {
+            evict();
+        }
+    }
+
+    CacheStats stats() {
+        int size = entries.size();
+        return new CacheStats(hits.sum(), misses.sum(), stale.sum(), evictions.sum(), size,
+                Math.max(0, weight.get() - size));
+    }
+
+    private void evict() {
+        synchronized (evictionLock) {
+            if (entries.size() <= maxEntries && weight.get() <= maxWeight) {
+                // Another thread evicted while this one waited
+                return;
+            }
+            int targetEntries = maxEntries - maxEntries / 8;
+            long targetWeight = maxWeight - maxWeight / 8;
+            // Access times are copied first: readers keep moving them while the list is sorted
+            List<Candidate<K, V>> byAge = new ArrayList<>(entries.size());
+            entries.forEach((key, entry) -> byAge.add(new Candidate<>(key, entry, entry.lastUsed)));
+            byAge.sort(Comparator.comparingLong(Candidate::lastUsed));
+            for (Candidate<K, V> eldest : byAge) {
+                if (entries.size() <= targetEntries && weight.get() <= targetWeight) {
+                    return;
+                }
+                if (entries.remove(eldest.key(), eldest.entry())) {
+                    weight.addAndGet(-eldest.entry().weight);
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long stamp;
+        final int weight;
+        // Set on every hit; eviction only needs a recent value, so racing writes are harmless
+        volatile long lastUsed = System.nanoTime();
+
+        Entry(V value, long stamp, int weight) {
+            this.value = value;
+            this.stamp = stamp;
+            this.weight = weight;
+        }
+    }
+
+    private record Candidate<K, V>(K key, Entry<V> entry, long lastUsed) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.taskman.repository;
+
+import java.util.List;
+
+/**
+ * How a query is run, as reported by TaskRepository.explain()
+ *
+ * @param access        where the candidate rows come from: an index or a full scan
+ * @param estimatedRows candidate rows the access yields before filtering
+ * @param filters       predicates checked on each candidate row
+ * @param order         the requested order
+ * @param ordered       true if the candidates already come in that order, so the scan stops once the page is full
+ * @param offset        matches skipped before the page
+ * @param limit         page size
+ */
+public record QueryPlan(String access, long estimatedRows, List<String> filters,
+                        String order, boolean ordered, int offset, int limit) {
+
+    @Override
+    public String toString() {
+        StringBuilder plan = new StringBuilder(access).append(" (~").append(estimatedRows).append(" rows)");
+        plan.append(filters.isEmpty() ? " -> no filter" : " -> filter " + String.join(" and ", filters));
+        plan.append(ordered ? " -> already in " : " -> sort by ").append(order);
+        if (offset > 0) {
+            plan.append(" -> skip ").append(offset);
+        }
+        if (limit != TaskQuery.NO_LIMIT) {
+            plan.append(ordered ? " -> stop after " : " -> keep top ").append(limit);
+        }
+        return plan.toString();
+    }
+}
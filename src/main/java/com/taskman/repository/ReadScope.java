@@ -0,0 +1,61 @@
+package com.taskman.repository;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Pins the published version of each repository for a unit of work on the
+ * current thread, usually one page render, so all of its queries see the
+ * same point in time: dashboard counters always agree with the tables
+ * below them. A repository is pinned on its first read inside the scope.
+ * A write by the same thread drops that repository's pin, so the thread
+ * goes on to read its own write. Opening a scope inside another one joins it.
+ */
+public final class ReadScope implements AutoCloseable {
+
+    private static final ThreadLocal<ReadScope> CURRENT = new ThreadLocal<>();
+    private static final ReadScope JOINED = new ReadScope(null);
+
+    // Repository -> pinned state; null for a scope that joined an outer one
+    private final Map<Object, Object> pinned;
+
+    private ReadScope(Map<Object, Object> pinned) {
+        this.pinned = pinned;
+    }
+
+    public static ReadScope open() {
+        if (CURRENT.get() != null) {
+            return JOINED;
+        }
+        ReadScope scope = new ReadScope(new IdentityHashMap<>(4));
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    @Override
+    public void close() {
+        if (pinned != null && CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * The state to read: the one pinned for the repository, or else the given latest one, pinning it
+     */
+    @SuppressWarnings("unchecked")
+    static <S> S pin(Object repository, S latest) {
+        ReadScope scope = CURRENT.get();
+        if (scope == null) {
+            return latest;
+        }
+        Object state = scope.pinned.putIfAbsent(repository, latest);
+        return state == null ? latest : (S) state;
+    }
+
+    static void release(Object repository) {
+        ReadScope scope = CURRENT.get();
+        if (scope != null) {
+            scope.pinned.remove(repository);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.taskman.repository;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs the mutations of one repository one at a time, so its maps and
+ * indexes only ever have a single writer and readers can go without locks.
+ * After each batch of mutations the writer calls the repository's publish
+ * hook, which freezes the new state for readers. A mutation may call
+ * execute() again; the nested call runs inline.
+ */
+interface RepositoryWriter extends AutoCloseable {
+
+    /**
+     * Writer selected by the taskman.repository.writes system property:
+     * pipeline (default) or synchronized
+     */
+    static RepositoryWriter create(String name, Runnable publish) {
+        String mode = System.getProperty("taskman.repository.writes", "pipeline").trim();
+        return "synchronized".equalsIgnoreCase(mode) ? new LockingWriter(publish) : new RingBufferWriter(name, publish);
+    }
+
+    /**
+     * Applies the mutation and returns its result, rethrowing whatever it threw.
+     * The mutation is published by the time this returns.
+     */
+    <R> R execute(Supplier<R> mutation);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,189 @@
+package com.taskman.repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Single-writer mutation pipeline in the style of a disruptor. Callers claim
+ * a sequence number with a CAS and publish their mutation into the matching
+ * slot of a ring. Whichever caller then takes the writer role drains every
+ * published slot in sequence order, applies the batch, and completes all of
+ * its callers; the others wait for their slot to be completed. Only one
+ * thread applies mutations at a time, and in sequence order, but no thread
+ * is dedicated to it, so an uncontended write costs no hand-off. Each batch
+ * is published once, after its last mutation and before any caller returns.
+ */
+final class RingBufferWriter implements RepositoryWriter {
+
+    private static final int CAPACITY = 1024;
+    private static final int MASK = CAPACITY - 1;
+    // Busy-wait rounds before parking; a batch usually completes within them
+    private static final int SPINS = 64;
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Request[].class);
+
+    private final String name;
+    private final Runnable publish;
+    private final Request<?>[] slots = new Request<?>[CAPACITY];
+    // Next sequence to claim; the CLOSED bit is set once no more may be claimed
+    private final AtomicLong claimed = new AtomicLong();
+    // Sequences below this have been taken by a writer, so their slots are free again
+    private volatile long consumed;
+    // Thread holding the writer role, if any
+    private final AtomicReference<Thread> writer = new AtomicReference<>();
+    private final Request<?>[] batch = new Request<?>[CAPACITY];
+
+    RingBufferWriter(String name, Runnable publish) {
+        this.name = name;
+        this.publish = publish;
+    }
+
+    @Override
+    public <R> R execute(Supplier<R> mutation) {
+        if (writer.get() == Thread.currentThread()) {
+            return mutation.get();
+        }
+        long seq = claimed.getAndUpdate(next -> next < 0 ? next : next + 1);
+        if (seq < 0) {
+            throw new IllegalStateException("Repository writer " + name + " is closed");
+        }
+        Request<R> request = new Request<>(mutation);
+        while (seq - CAPACITY >= consumed) {
+            // Ring full: help drain the lap ahead of us
+            if (!tryDrain()) {
+                LockSupport.parkNanos(1_000);
+            }
+        }
+        SLOTS.setVolatile(slots, (int) (seq & MASK), request);
+        int spins = 0;
+        boolean interrupted = false;
+        while (!request.done) {
+            if (tryDrain()) {
+                continue;
+            }
+            if (spins++ < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.park(this);
+                interrupted |= Thread.interrupted();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return request.result();
+    }
+
+    /**
+     * Stops accepting mutations and waits until the ones already claimed are applied
+     */
+    @Override
+    public void close() {
+        long last = claimed.updateAndGet(next -> next | CLOSED) & ~CLOSED;
+        while (consumed < last) {
+            if (!tryDrain()) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Applies one batch if no other thread holds the writer role
+     *
+     * @return false if another thread is writing
+     */
+    private boolean tryDrain() {
+        Thread current = Thread.currentThread();
+        if (writer.get() != null || !writer.compareAndSet(null, current)) {
+            return false;
+        }
+        try {
+            drainBatch();
+        } finally {
+            writer.set(null);
+        }
+        // A slot published while we held the role may have found it taken: wake that caller to write
+        Request<?> pending = slotAt(consumed);
+        if (pending != null) {
+            LockSupport.unpark(pending.caller);
+        }
+        return true;
+    }
+
+    private void drainBatch() {
+        long next = consumed;
+        int count = 0;
+        Request<?> request;
+        while (count < CAPACITY && (request = slotAt(next)) != null) {
+            SLOTS.setRelease(slots, (int) (next & MASK), null);
+            batch[count++] = request;
+            next++;
+        }
+        consumed = next;
+        if (count == 0) {
+            return;
+        }
+        try {
+            for (int i = 0; i < count; i++) {
+                batch[i].apply();
+            }
+            publish.run();
+        } finally {
+            // The batch is fully applied and published before any of its callers returns
+            for (int i = 0; i < count; i++) {
+                batch[i].complete();
+                batch[i] = null;
+            }
+        }
+    }
+
+    private Request<?> slotAt(long seq) {
+        return (Request<?>) SLOTS.getVolatile(slots, (int) (seq & MASK));
+    }
+
+    private static final class Request<R> {
+
+        private final Supplier<R> mutation;
+        private final Thread caller = Thread.currentThread();
+        private R result;
+        private Throwable failure;
+        private volatile boolean done;
+
+        Request(Supplier<R> mutation) {
+            this.mutation = mutation;
+        }
+
+        void apply() {
+            try {
+                result = mutation.get();
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+
+        void complete() {
+            done = true;
+            if (caller != Thread.currentThread()) {
+                LockSupport.unpark(caller);
+            }
+        }
+
+        R result() {
+            if (failure instanceof RuntimeException e) {
+                throw e;
+            }
+            if (failure instanceof Error e) {
+                throw e;
+            }
+            if (failure != null) {
+                throw new IllegalStateException(failure);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.taskman.repository;
+
+/**
+ * Task counts over all projects; per project they come from ProjectTaskBitmaps.
+ * Immutable; TaskRepository replaces them on every write so reads are O(1).
+ */
+final class TaskCounters {
+
+    static final TaskCounters EMPTY = new TaskCounters(0, 0);
+
+    private final long total;
+    private final long done;
+
+    private TaskCounters(long total, long done) {
+        this.total = total;
+        this.done = done;
+    }
+
+    TaskCounters add(boolean isDone, int delta) {
+        return new TaskCounters(total + delta, isDone ? done + delta : done);
+    }
+
+    long getTotal() {
+        return total;
+    }
+
+    long getDone() {
+        return done;
+    }
+
+    long getOpen() {
+        return total - done;
+    }
+
+    boolean isEmpty() {
+        return total == 0;
+    }
+}
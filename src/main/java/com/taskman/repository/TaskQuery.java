@@ -0,0 +1,101 @@
+package com.taskman.repository;
+
+import com.taskman.model.TaskPriority;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Criteria of a task search. Every filter is optional and all of them have
+ * to match: project, any of the priorities, done flag, due date between two
+ * days inclusive, and text contained in the title or notes, ignoring case.
+ * The sort field is one of id, title, priority, dueDate or done, null meaning id.
+ *
+ * Immutable: the with methods return a changed copy. Serializable, so view
+ * scoped beans can keep one.
+ */
+public record TaskQuery(Long projectId, Set<TaskPriority> priorities, Boolean done,
+                        LocalDate dueFrom, LocalDate dueTo, String text,
+                        String sortField, boolean ascending, int offset, int limit) implements Serializable {
+
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private static final TaskQuery ALL = new TaskQuery(null, Set.of(), null, null, null, null, null, true, 0, NO_LIMIT);
+
+    public TaskQuery {
+        priorities = priorities == null || priorities.isEmpty() ? Set.of()
+                : Collections.unmodifiableSet(EnumSet.copyOf(priorities));
+        text = text == null || text.trim().isEmpty() ? null : text.trim();
+        if (dueFrom != null && dueTo != null && dueTo.isBefore(dueFrom)) {
+            throw new IllegalArgumentException("End date cannot be before start date");
+        }
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit cannot be negative");
+        }
+    }
+
+    public static TaskQuery all() {
+        return ALL;
+    }
+
+    /**
+     * Tasks of one project; a null projectId means all projects
+     */
+    public static TaskQuery forProject(Long projectId) {
+        return ALL.withProject(projectId);
+    }
+
+    public TaskQuery withProject(Long projectId) {
+        return new TaskQuery(projectId, priorities, done, dueFrom, dueTo, text, sortField, ascending, offset, limit);
+    }
+
+    /**
+     * Only tasks of the given priority; null accepts any
+     */
+    public TaskQuery withPriority(TaskPriority priority) {
+        return withPriorities(priority == null ? Set.of() : EnumSet.of(priority));
+    }
+
+    /**
+     * Only tasks of any of the given priorities; an empty set accepts any
+     */
+    public TaskQuery withPriorities(Set<TaskPriority> priorities) {
+        return new TaskQuery(projectId, priorities, done, dueFrom, dueTo, text, sortField, ascending, offset, limit);
+    }
+
+    public TaskQuery withDone(Boolean done) {
+        return new TaskQuery(projectId, priorities, done, dueFrom, dueTo, text, sortField, ascending, offset, limit);
+    }
+
+    /**
+     * Only tasks due between both days inclusive; a null bound leaves that side open
+     */
+    public TaskQuery withDueBetween(LocalDate from, LocalDate to) {
+        return new TaskQuery(projectId, priorities, done, from, to, text, sortField, ascending, offset, limit);
+    }
+
+    public TaskQuery withText(String text) {
+        return new TaskQuery(projectId, priorities, done, dueFrom, dueTo, text, sortField, ascending, offset, limit);
+    }
+
+    public TaskQuery sortedBy(String sortField, boolean ascending) {
+        return new TaskQuery(projectId, priorities, done, dueFrom, dueTo, text, sortField, ascending, offset, limit);
+    }
+
+    public TaskQuery withPage(int offset, int limit) {
+        return new TaskQuery(projectId, priorities, done, dueFrom, dueTo, text, sortField, ascending, offset, limit);
+    }
+
+    public TaskQuery withLimit(int limit) {
+        return withPage(offset, limit);
+    }
+
+    /**
+     * True if a due date bound is set
+     */
+    public boolean hasDueRange() {
+        return dueFrom != null || dueTo != null;
+    }
+}
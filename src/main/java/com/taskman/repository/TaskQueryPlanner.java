@@ -0,0 +1,226 @@
+package com.taskman.repository;
+
+import com.taskman.collection.LongBitmap;
+import com.taskman.model.Task;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * Picks how TaskRepository runs a TaskQuery. The candidates are a full scan,
+ * the project's bitmaps, combined with AND and OR when priorities or the
+ * done flag are set, and, for open tasks with a due date bound, the due
+ * date index. Each reports its exact size up front, so the planner takes the
+ * smallest and checks the remaining criteria on each row in one pass. When
+ * the access already yields rows in the requested order the page is cut as
+ * soon as it is full; otherwise a bounded heap keeps the best rows.
+ */
+final class TaskQueryPlanner {
+
+    private TaskQueryPlanner() {
+    }
+
+    static Plan plan(TaskRepository.State state, TaskQuery query) {
+        return plan(state, query, 0);
+    }
+
+    /**
+     * Plan for keyset paging: in id order, the project access seeks straight to fromId
+     */
+    static Plan plan(TaskRepository.State state, TaskQuery query, long fromId) {
+        String sortField = query.sortField() == null ? "id" : query.sortField();
+        boolean idOrder = query.ascending() && "id".equals(sortField);
+        boolean dueOrder = query.ascending() && "dueDate".equals(sortField);
+        long seekId = idOrder ? fromId : 0;
+        LongFunction<Task> rowById = id -> state.tasks().get(id);
+
+        Access access = new Access("full scan", state.tasks().size(), state.tasks().all(), idOrder,
+                false, false, false, false);
+        if (query.projectId() != null) {
+            ProjectTaskBitmaps bitmaps = state.project(query.projectId());
+            boolean filtered = !query.priorities().isEmpty() || query.done() != null;
+            LongBitmap taskIds = bitmaps.matching(query.priorities(), query.done());
+            access = cheaper(access, new Access((filtered ? "project bitmaps(" : "project index(") + query.projectId()
+                    + bitmapFilters(query) + ")", taskIds.cardinality(), () -> rows(taskIds.iterator(seekId), rowById),
+                    idOrder, true, true, true, false));
+        }
+        if (Boolean.FALSE.equals(query.done()) && query.hasDueRange()) {
+            // The due date index holds open tasks only, keyed by [from, to + 1)
+            LocalDate from = query.dueFrom();
+            LocalDate to = query.dueTo() == null ? null : query.dueTo().plusDays(1);
+            DueDateIndex dueDates = state.dueDates();
+            access = cheaper(access, new Access("due date index(" + (query.projectId() == null ? "all" : query.projectId())
+                    + ", " + bound(from) + ".." + bound(query.dueTo()) + ")", dueDates.count(query.projectId(), from, to),
+                    () -> rows(dueDates.ids(query.projectId(), from, to), rowById), dueOrder,
+                    query.projectId() != null, false, true, true));
+        }
+
+        List<String> filters = new ArrayList<>();
+        Predicate<Task> filter = task -> true;
+        if (query.projectId() != null && !access.coversProject()) {
+            Long projectId = query.projectId();
+            filters.add("project = " + projectId);
+            filter = filter.and(task -> Objects.equals(task.getProjectId(), projectId));
+        }
+        if (!query.priorities().isEmpty() && !access.coversPriority()) {
+            filters.add("priority in " + query.priorities());
+            filter = filter.and(task -> query.priorities().contains(task.getPriority()));
+        }
+        if (query.done() != null && !access.coversDone()) {
+            boolean done = query.done();
+            filters.add("done = " + done);
+            filter = filter.and(task -> task.isDone() == done);
+        }
+        if (query.hasDueRange() && !access.coversDue()) {
+            LocalDate from = query.dueFrom();
+            LocalDate to = query.dueTo();
+            filters.add("due in " + bound(from) + ".." + bound(to));
+            filter = filter.and(task -> task.getDueDate() != null
+                    && (from == null || !task.getDueDate().isBefore(from))
+                    && (to == null || !task.getDueDate().isAfter(to)));
+        }
+        if (query.text() != null) {
+            String text = query.text();
+            filters.add("text contains '" + text + "'");
+            filter = filter.and(task -> containsIgnoreCase(task.getTitle(), text) || containsIgnoreCase(task.getNotes(), text));
+        }
+
+        QueryPlan explained = new QueryPlan(access.description(), access.estimate(), List.copyOf(filters),
+                sortField + (query.ascending() ? " asc" : " desc"), access.ordered(), query.offset(), query.limit());
+        return new Plan(explained, access.rows(), filter, order(sortField, query.ascending()));
+    }
+
+    /**
+     * Number of matches without building rows where counters, bitmap popcounts or index ranks answer it
+     */
+    static long count(TaskRepository.State state, TaskQuery query) {
+        if (query.text() == null && !query.hasDueRange()) {
+            if (query.projectId() != null) {
+                return state.project(query.projectId()).count(query.priorities(), query.done());
+            }
+            if (query.priorities().isEmpty()) {
+                TaskCounters totals = state.totals();
+                return query.done() == null ? totals.getTotal() : query.done() ? totals.getDone() : totals.getOpen();
+            }
+        }
+        if (query.text() == null && query.priorities().isEmpty() && Boolean.FALSE.equals(query.done())) {
+            return state.dueDates().count(query.projectId(), query.dueFrom(),
+                    query.dueTo() == null ? null : query.dueTo().plusDays(1));
+        }
+        return plan(state, query).count();
+    }
+
+    static Comparator<Task> order(String sortField, boolean ascending) {
+        Comparator<Task> order = switch (sortField == null ? "id" : sortField) {
+            case "title" -> Comparator.comparing(Task::getTitle,
+                    Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+            case "priority" -> Comparator.comparing(Task::getPriority,
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            case "dueDate" -> Comparator.comparing(Task::getDueDate,
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            case "done" -> Comparator.comparing(Task::isDone);
+            default -> Comparator.comparing(Task::getId);
+        };
+        if (!ascending) {
+            order = order.reversed();
+        }
+        return order.thenComparing(Task::getId);
+    }
+
+    private static Access cheaper(Access current, Access candidate) {
+        if (candidate.estimate() < current.estimate()
+                || candidate.estimate() == current.estimate() && candidate.ordered() && !current.ordered()) {
+            return candidate;
+        }
+        return current;
+    }
+
+    private static String bitmapFilters(TaskQuery query) {
+        String filters = query.priorities().isEmpty() ? "" : ", priority in " + query.priorities();
+        return query.done() == null ? filters : filters + ", done = " + query.done();
+    }
+
+    private static String bound(LocalDate day) {
+        return day == null ? "" : day.toString();
+    }
+
+    private static boolean containsIgnoreCase(String value, String text) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0, last = value.length() - text.length(); i <= last; i++) {
+            if (value.regionMatches(true, i, text, 0, text.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tasks of the given ids, looked up as they are iterated
+     */
+    private static Iterator<Task> rows(PrimitiveIterator.OfLong ids, LongFunction<Task> rowById) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return ids.hasNext();
+            }
+
+            @Override
+            public Task next() {
+                if (!ids.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return rowById.apply(ids.nextLong());
+            }
+        };
+    }
+
+    /**
+     * A source of candidate rows. The covers flags tell which criteria it already guarantees.
+     */
+    private record Access(String description, long estimate, Iterable<Task> rows, boolean ordered,
+                          boolean coversProject, boolean coversPriority, boolean coversDone, boolean coversDue) {
+    }
+
+    /**
+     * A planned query, ready to run against the state it was planned on
+     */
+    record Plan(QueryPlan explained, Iterable<Task> rows, Predicate<Task> filter, Comparator<Task> order) {
+
+        Page<Task> page() {
+            if (explained.ordered()) {
+                return Paging.pageOrdered(rows, filter, explained.offset(), explained.limit());
+            }
+            return Paging.page(rows, filter, order, explained.offset(), explained.limit());
+        }
+
+        /**
+         * First rows of the page that sort strictly after the cursor row
+         */
+        Page<Task> pageAfter(Task after) {
+            Predicate<Task> afterCursor = task -> filter.test(task) && order.compare(task, after) > 0;
+            if (explained.ordered()) {
+                return Paging.pageOrdered(rows, afterCursor, 0, explained.limit());
+            }
+            return Paging.page(rows, afterCursor, order, 0, explained.limit());
+        }
+
+        long count() {
+            long count = 0;
+            for (Task task : rows) {
+                if (filter.test(task)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -1,25 +1,186 @@
 package com.taskman.repository;
 
+import com.taskman.collection.Edit;
+import com.taskman.collection.LongList;
+import com.taskman.collection.LongTrie;
+import com.taskman.metrics.RepositoryMutationEvent;
+import com.taskman.metrics.RepositoryQueryEvent;
+import com.taskman.metrics.Timed;
+import com.taskman.metrics.Tracer;
 import com.taskman.model.Task;
 import com.taskman.model.TaskPriority;
+import com.taskman.persistence.EntityCodec;
+import com.taskman.persistence.Journal;
+import com.taskman.persistence.PersistenceSettings;
+import com.taskman.persistence.SnapshotView;
+import com.taskman.persistence.TaskColumns;
+import com.taskman.persistence.TaskColumns.MappedTaskSnapshot;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
- * In-memory repository for Task entities
+ * In-memory repository for Task entities.
+ *
+ * Readers never see the writer at work: every query runs against an
+ * immutable State, published at the end of each writer batch in O(1) by
+ * freezing the persistent store and indexes. Inside a ReadScope all queries
+ * of a thread share one State.
+ *
+ * Results of find() are cached per query. Each carries the write stamp of
+ * the project it read, or of all tasks for queries across projects, so a
+ * write only invalidates what it could have changed.
+ *
+ * Every save bumps the task's version. Updates made from a form use the
+ * conditional save(task, expectedVersion) and compareAndToggle, which
+ * reject the write if someone else changed the task first. Versions only
+ * live in memory: they guard edits made within one run of the application.
  */
+@Timed
 @ApplicationScoped
 public class TaskRepository {
     
-    private final Map<Long, Task> tasks = new HashMap<>();
+    private static final Logger LOGGER = Logger.getLogger(TaskRepository.class.getName());
+
+    // Expected version of unconditional writes
+    private static final int ANY_VERSION = Integer.MIN_VALUE;
+
+    // Queries slower than this are logged with their plan; 0 disables the log
+    private static final long SLOW_QUERY_MICROS = Long.getLong("taskman.query.slowMillis", 100) * 1_000;
+
+    // Columnar by default; see TaskStore.create()
+    private final TaskStore tasks = TaskStore.create();
     private final AtomicLong idGenerator = new AtomicLong(1);
 
+    // The indexes below are the writer's working versions; readers get them through a State
+
+    // Secondary index: projectId -> bitmaps of its tasks by priority and done flag
+    private LongTrie<ProjectTaskBitmaps> bitmapsByProject = LongTrie.empty();
+
+    // Open tasks ordered by due date, for overdue and date-range queries
+    private DueDateIndex dueDateIndex = DueDateIndex.EMPTY;
+
+    // Counts over all projects; per project they are the bitmaps' cardinalities
+    private TaskCounters totals = TaskCounters.EMPTY;
+
+    // Number of writes applied; stamps the cached results, per project through the bitmaps
+    private long writeStamp;
+
+    // Notified by the writer of every saved or deleted task
+    private final List<ChangeListener<IndexedTask>> listeners = new ArrayList<>();
+
+    // Ids of the tasks find() returned, valid while the stamp of what they read is unchanged
+    private final QueryCache<TaskQuery, LongList> resultCache = QueryCache.create("tasks", LongList::size);
+
+    // False after loading a mapped snapshot, until the secondary indexes are built on first use
+    private boolean indexed = true;
+
+    // Index nodes created under this token belong to the current batch and may be written in place
+    private Edit edit = new Edit();
+
+    // What readers see; replaced by publish() after every writer batch
+    private volatile State published = freeze();
+
+    // Overdue queries are relative to this day, refreshed once it has passed
+    private volatile Today today = Today.of(LocalDate.now());
+
+    // Write-ahead log and snapshots; null when persistence is disabled
+    private Journal<Task> journal;
+
+    // Applies every mutation on one thread, then publishes the new state
+    private final RepositoryWriter writer = RepositoryWriter.create("tasks", this::publish);
+
     @PostConstruct
     public void init() {
+        if (PersistenceSettings.isEnabled()) {
+            journal = Journal.open(PersistenceSettings.dataDirectory(), "tasks", EntityCodec.TASKS, new TaskColumns());
+            Journal.Recovery recovery = journal.recover(new Journal.Replay<>() {
+                @Override
+                public void save(Task task) {
+                    store(task);
+                }
+
+                @Override
+                public void delete(long id) {
+                    removeTask(id);
+                }
+
+                @Override
+                public void deleteByOwner(long projectId) {
+                    removeProjectTasks(projectId);
+                }
+
+                @Override
+                public void load(SnapshotView<Task> snapshot) {
+                    if (snapshot instanceof MappedTaskSnapshot columns) {
+                        tasks.load(columns);
+                        indexed = false;
+                    } else {
+                        Journal.Replay.super.load(snapshot);
+                    }
+                }
+            });
+            if (recovery.found()) {
+                idGenerator.set(Math.max(recovery.nextId(), tasks.maxId() + 1));
+                publish();
+            } else {
+                seed();
+                publish();
+                snapshot();
+            }
+            journal.scheduleSnapshots(PersistenceSettings.snapshotIntervalSeconds(), this::snapshot);
+        } else {
+            seed();
+            publish();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (journal != null) {
+            // A periodic snapshot still running would race the final one
+            journal.stopSnapshots();
+        }
+        writer.close();
+        if (journal != null) {
+            if (journal.hasChangesSinceCheckpoint()) {
+                journal.writeSnapshot(materialize(checkpoint()));
+            }
+            journal.close();
+        }
+    }
+
+    /**
+     * Writes a compacted snapshot and drops the log it replaces. Mutations
+     * only wait while the log is rotated: the state published at that point
+     * is a frozen copy already, decoded afterwards.
+     */
+    public void snapshot() {
+        if (journal == null) {
+            return;
+        }
+        journal.writeSnapshot(materialize(writer.execute(this::checkpoint)));
+    }
+
+    // Runs on the writer: publishing first freezes every write logged before the rotation
+    private Journal.Checkpoint<Task> checkpoint() {
+        publish();
+        return journal.checkpoint(idGenerator.get(), published.tasks().all());
+    }
+
+    private static Journal.Checkpoint<Task> materialize(Journal.Checkpoint<Task> checkpoint) {
+        // Snapshot writers index into the list, so decode the frozen rows once
+        return new Journal.Checkpoint<>(checkpoint.generation(), checkpoint.nextId(),
+                new ArrayList<>(checkpoint.entities()));
+    }
+
+    private void seed() {
         // Seed data for projects 1, 2, 3, 4
         createTask(1L, "Diseñar base de datos", TaskPriority.HIGH, 
                   LocalDate.now().plusDays(5), "Crear el modelo de datos para inventarios");
@@ -56,78 +217,357 @@ public class TaskRepository {
     }
 
     public List<Task> findAll() {
-        return new ArrayList<>(tasks.values());
+        return state().tasks().all();
     }
 
     public Optional<Task> findById(Long id) {
-        return Optional.ofNullable(tasks.get(id));
+        return Optional.ofNullable(state().tasks().get(id));
     }
 
     public List<Task> findByProjectId(Long projectId) {
         if (projectId == null) {
             return findAll();
         }
-        return tasks.values().stream()
-                .filter(task -> task.getProjectId().equals(projectId))
-                .collect(Collectors.toList());
+        return find(TaskQuery.forProject(projectId));
     }
 
-    public List<Task> findByProjectIdAndPriority(Long projectId, TaskPriority priority) {
-        List<Task> projectTasks = findByProjectId(projectId);
-        if (priority == null) {
-            return projectTasks;
-        }
-        return projectTasks.stream()
-                .filter(task -> task.getPriority() == priority)
-                .collect(Collectors.toList());
+    /**
+     * Overdue tasks, oldest due date first: open and due before today
+     */
+    public List<Task> findOverdueTasks(Long projectId) {
+        return find(TaskQuery.forProject(projectId).withDone(false)
+                .withDueBetween(null, today().minusDays(1)).sortedBy("dueDate", true));
     }
 
-    public List<Task> findByProjectIdAndDone(Long projectId, Boolean done) {
-        List<Task> projectTasks = findByProjectId(projectId);
-        if (done == null) {
-            return projectTasks;
+    /**
+     * Tasks matching the query, as the page it asks for. The cache keeps
+     * only the ids, so every call returns tasks of the caller's own.
+     */
+    public List<Task> find(TaskQuery query) {
+        State state = indexedState();
+        long stamp = state.stamp(query.projectId());
+        LongList cached = resultCache.get(query, stamp);
+        if (cached != null) {
+            Tracer.attribute("cache", "hit");
+            List<Task> page = new ArrayList<>(cached.size());
+            cached.forEach(id -> page.add(state.tasks().get(id)));
+            return page;
+        }
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        event.begin();
+        long started = System.nanoTime();
+        TaskQueryPlanner.Plan plan = TaskQueryPlanner.plan(state, query);
+        Tracer.attribute("cache", "miss");
+        Tracer.attribute("plan", plan.explained());
+        Page<Task> rows = plan.page();
+        event.finish("tasks", "find", query.projectId(), plan.explained(), rows.scanned(), rows.size());
+        logIfSlow(plan, started);
+        if (state == published) {
+            LongList ids = new LongList(rows.size());
+            for (Task task : rows) {
+                ids.add(task.getId());
+            }
+            resultCache.put(query, stamp, ids);
         }
-        return projectTasks.stream()
-                .filter(task -> task.isDone() == done)
-                .collect(Collectors.toList());
+        return rows;
     }
 
-    public List<Task> findOverdueTasks(Long projectId) {
-        LocalDate today = LocalDate.now();
-        return findByProjectId(projectId).stream()
-                .filter(task -> !task.isDone() && task.getDueDate().isBefore(today))
-                .collect(Collectors.toList());
+    /**
+     * Keyset variant of find: the page that follows the given row in the query's order
+     */
+    public List<Task> findAfter(TaskQuery query, Task after) {
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        event.begin();
+        long started = System.nanoTime();
+        TaskQueryPlanner.Plan plan = TaskQueryPlanner.plan(indexedState(), query, after.getId() + 1);
+        Tracer.attribute("plan", plan.explained());
+        Page<Task> page = plan.pageAfter(after);
+        event.finish("tasks", "findAfter", query.projectId(), plan.explained(), page.scanned(), page.size());
+        logIfSlow(plan, started);
+        return page;
+    }
+
+    /**
+     * Number of tasks matching the query, ignoring its paging
+     */
+    public long count(TaskQuery query) {
+        return TaskQueryPlanner.count(indexedState(), query);
+    }
+
+    /**
+     * Hits, misses and evictions of the find() result cache
+     */
+    public CacheStats cacheStats() {
+        return resultCache.stats();
+    }
+
+    /**
+     * Number of projects in the task index; 0 until the index is built after loading a snapshot
+     */
+    public int indexedProjectCount() {
+        return state().bitmapsByProject().size();
+    }
+
+    /**
+     * Number of open tasks in the due-date index; 0 until the index is built after loading a snapshot
+     */
+    public int dueDateIndexSize() {
+        return state().dueDates().size();
+    }
+
+    /**
+     * Registers a listener for every saved and deleted task. It first
+     * receives every existing task as a creation, on the writer, so no write
+     * falls between what it has replayed and what it is notified of. A save
+     * that changes none of the indexed fields, such as a new title, arrives
+     * with equal previous and current values.
+     */
+    public void subscribe(ChangeListener<IndexedTask> listener) {
+        writer.execute(() -> {
+            tasks.forEachState((taskId, state) -> listener.changed(taskId, null, state));
+            listeners.add(listener);
+            return null;
+        });
+        ReadScope.release(this);
+    }
+
+    /**
+     * Registers a listener for the writes from now on, without the replay of subscribe()
+     */
+    public void addListener(ChangeListener<IndexedTask> listener) {
+        writer.execute(() -> listeners.add(listener));
+        ReadScope.release(this);
+    }
+
+    /**
+     * How find() would run the query: the index it reads, the filters left and whether it can stop early
+     */
+    public QueryPlan explain(TaskQuery query) {
+        return TaskQueryPlanner.plan(indexedState(), query).explained();
+    }
+
+    /**
+     * Current day as seen by the overdue queries; cheap enough to call per row
+     */
+    public LocalDate today() {
+        Today current = today;
+        if (System.currentTimeMillis() >= current.validUntil()) {
+            current = Today.of(LocalDate.now());
+            today = current;
+        }
+        return current.date();
     }
 
     public long countByProjectId(Long projectId) {
-        return findByProjectId(projectId).size();
+        if (projectId == null) {
+            return count();
+        }
+        return indexedState().project(projectId).total();
     }
 
     public long countByProjectIdAndDone(Long projectId, boolean done) {
-        return findByProjectIdAndDone(projectId, done).size();
+        if (projectId == null) {
+            return countByDone(done);
+        }
+        ProjectTaskBitmaps bitmaps = indexedState().project(projectId);
+        return done ? bitmaps.done() : bitmaps.open();
+    }
+
+    public long countOverdueByProjectId(Long projectId) {
+        if (projectId == null) {
+            return countOverdue();
+        }
+        return indexedState().dueDates().countDueBefore(projectId, today());
+    }
+
+    public long countByDone(boolean done) {
+        TaskCounters totals = indexedState().totals();
+        return done ? totals.getDone() : totals.getOpen();
+    }
+
+    public long countOverdue() {
+        return indexedState().dueDates().countDueBefore(null, today());
     }
 
     public Task save(Task task) {
+        return write(task, ANY_VERSION);
+    }
+
+    /**
+     * Saves changes to a stored task only if it is still at the version the
+     * caller read; the check and the write are one step on the writer
+     *
+     * @throws ConcurrentUpdateException if the task was changed or deleted since
+     */
+    public Task save(Task task, int expectedVersion) {
         if (task.getId() == null) {
-            task.setId(idGenerator.getAndIncrement());
+            throw new IllegalArgumentException("Only stored tasks can be updated conditionally");
         }
-        tasks.put(task.getId(), task);
+        return write(task, expectedVersion);
+    }
+
+    /**
+     * Flips the done flag of a task in a single write, so concurrent toggles never undo each other
+     *
+     * @return the updated task, or empty if it does not exist
+     */
+    public Optional<Task> toggleDone(Long id) {
+        return Optional.ofNullable(toggle(id, ANY_VERSION));
+    }
+
+    /**
+     * Flips the done flag only if the task is still at the given version. The
+     * writer compares and flips in one step, so callers never hold a lock
+     * between reading the task and changing it.
+     *
+     * @return the updated task
+     * @throws ConcurrentUpdateException if the task was changed or deleted since
+     */
+    public Task compareAndToggle(Long id, int expectedVersion) {
+        if (id == null) {
+            throw new IllegalArgumentException("Task ID cannot be null");
+        }
+        return toggle(id, expectedVersion);
+    }
+
+    private Task write(Task task, int expectedVersion) {
+        RepositoryMutationEvent event = new RepositoryMutationEvent();
+        event.begin();
+        long seq = writer.execute(() -> {
+            if (task.getId() == null) {
+                task.setId(idGenerator.getAndIncrement());
+            }
+            task.setVersion(checkVersion(task.getId(), expectedVersion) + 1);
+            long logged = journal == null ? 0 : journal.logSave(task);
+            store(task);
+            return logged;
+        });
+        ReadScope.release(this);
+        awaitDurable(seq);
+        event.finish("tasks", "save", task.getId());
         return task;
     }
 
+    private Task toggle(Long id, int expectedVersion) {
+        record Toggled(Task task, long seq) {
+        }
+        RepositoryMutationEvent event = new RepositoryMutationEvent();
+        event.begin();
+        Toggled toggled = writer.execute(() -> {
+            int version = checkVersion(id, expectedVersion);
+            if (version < 0) {
+                return new Toggled(null, 0);
+            }
+            Task task = copyOf(tasks.get(id));
+            task.setDone(!task.isDone());
+            task.setVersion(version + 1);
+            long logged = journal == null ? 0 : journal.logSave(task);
+            store(task);
+            return new Toggled(task, logged);
+        });
+        ReadScope.release(this);
+        awaitDurable(toggled.seq());
+        if (toggled.task() != null) {
+            event.finish("tasks", "toggle", id);
+        }
+        return toggled.task();
+    }
+
+    /**
+     * Current version of the task, -1 if absent; throws unless it is the expected one or any will do
+     */
+    private int checkVersion(Long id, int expectedVersion) {
+        int version = tasks.versionOf(id);
+        if (expectedVersion != ANY_VERSION && version != expectedVersion) {
+            throw new ConcurrentUpdateException("Task", id, expectedVersion, version);
+        }
+        return version;
+    }
+
     public void deleteById(Long id) {
-        tasks.remove(id);
+        RepositoryMutationEvent event = new RepositoryMutationEvent();
+        event.begin();
+        long seq = writer.execute(() -> {
+            if (!tasks.contains(id)) {
+                return 0L;
+            }
+            long logged = journal == null ? 0 : journal.logDelete(id);
+            removeTask(id);
+            return logged;
+        });
+        ReadScope.release(this);
+        awaitDurable(seq);
+        event.finish("tasks", "delete", id);
     }
 
     public void deleteByProjectId(Long projectId) {
-        List<Long> taskIdsToDelete = findByProjectId(projectId).stream()
-                .map(Task::getId)
-                .collect(Collectors.toList());
-        taskIdsToDelete.forEach(tasks::remove);
+        if (projectId == null) {
+            return;
+        }
+        indexedState();
+        RepositoryMutationEvent event = new RepositoryMutationEvent();
+        event.begin();
+        long seq = writer.execute(() -> {
+            if (!bitmapsByProject.containsKey(projectId)) {
+                return 0L;
+            }
+            long logged = journal == null ? 0 : journal.logDeleteByOwner(projectId);
+            removeProjectTasks(projectId);
+            return logged;
+        });
+        ReadScope.release(this);
+        awaitDurable(seq);
+        event.finish("tasks", "deleteByProject", projectId);
+    }
+
+    private void awaitDurable(long seq) {
+        // Waiting after the writer has moved on lets concurrent writes share one fsync
+        if (seq > 0) {
+            journal.awaitDurable(seq);
+        }
+    }
+
+    private void removeTask(Long id) {
+        writeStamp++;
+        IndexedTask previous = tasks.remove(id);
+        if (previous != null) {
+            if (indexed) {
+                unindex(id, previous);
+            }
+            notifyListeners(id, previous, null);
+        }
+    }
+
+    private void removeProjectTasks(Long projectId) {
+        writeStamp++;
+        if (!indexed) {
+            // Replaying the log before the indexes exist: scan instead
+            LongList taskIds = new LongList();
+            tasks.forEachState((taskId, state) -> {
+                if (projectId.equals(state.projectId())) {
+                    taskIds.add(taskId);
+                }
+            });
+            taskIds.forEach(taskId -> notifyListeners(taskId, tasks.remove(taskId), null));
+            return;
+        }
+        ProjectTaskBitmaps bitmaps = bitmapsByProject.get(projectId);
+        if (bitmaps == null) {
+            return;
+        }
+        bitmaps.all().forEach(taskId -> {
+            IndexedTask state = tasks.remove(taskId);
+            if (state != null) {
+                totals = totals.add(state.done(), -1);
+                notifyListeners(taskId, state, null);
+            }
+        });
+        bitmapsByProject = bitmapsByProject.remove(projectId, edit);
+        dueDateIndex = dueDateIndex.withoutProject(projectId, edit);
     }
 
     public long count() {
-        return tasks.size();
+        return state().tasks().size();
     }
 
     private void createTask(Long projectId, String title, TaskPriority priority, 
@@ -140,6 +580,145 @@ public class TaskRepository {
         task.setDueDate(dueDate);
         task.setNotes(notes);
         task.setDone(new Random().nextBoolean()); // Random completion status for seed data
-        tasks.put(task.getId(), task);
+        store(task);
+    }
+
+    /**
+     * Freezes the writer's store and indexes for readers; runs after every writer batch
+     */
+    private void publish() {
+        published = freeze();
+        edit = new Edit();
+    }
+
+    private State freeze() {
+        return new State(tasks.publish(), bitmapsByProject, dueDateIndex, totals, indexed, writeStamp);
+    }
+
+    /**
+     * The state this thread reads: pinned by its ReadScope, or else the latest
+     */
+    private State state() {
+        return ReadScope.pin(this, published);
+    }
+
+    private void logIfSlow(TaskQueryPlanner.Plan plan, long started) {
+        long micros = (System.nanoTime() - started) / 1_000;
+        if (SLOW_QUERY_MICROS > 0 && micros >= SLOW_QUERY_MICROS) {
+            LOGGER.log(Level.WARNING, "Slow task query ({0} us): {1}", new Object[]{micros, plan.explained()});
+        }
+    }
+
+    private static Task copyOf(Task task) {
+        Task copy = new Task(task.getProjectId(), task.getTitle(), task.getPriority(), task.getDueDate(), task.getNotes());
+        copy.setId(task.getId());
+        copy.setDone(task.isDone());
+        copy.setVersion(task.getVersion());
+        return copy;
+    }
+
+    private void store(Task task) {
+        writeStamp++;
+        IndexedTask previous = tasks.put(task);
+        IndexedTask current = IndexedTask.of(task);
+        if (indexed) {
+            index(task.getId(), previous, current);
+            ProjectTaskBitmaps bitmaps = task.getProjectId() == null ? null : bitmapsByProject.get(task.getProjectId());
+            if (bitmaps != null && bitmaps.stamp() != writeStamp) {
+                // A change the indexes do not track still invalidates the project's cached results
+                bitmapsByProject = bitmapsByProject.put(task.getProjectId(), bitmaps.stamped(writeStamp), edit);
+            }
+        }
+        notifyListeners(task.getId(), previous, current);
+    }
+
+    // The write is applied and logged by now, so a failing listener must not fail it
+    private void notifyListeners(long taskId, IndexedTask previous, IndexedTask current) {
+        for (ChangeListener<IndexedTask> listener : listeners) {
+            try {
+                listener.changed(taskId, previous, current);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Change listener failed for task " + taskId, e);
+            }
+        }
+    }
+
+    /**
+     * The state to read, after building the secondary indexes if a mapped
+     * snapshot was loaded and no query has needed them yet. They are built
+     * from the stored states, without building Task objects.
+     */
+    private State indexedState() {
+        State state = state();
+        if (state.indexed()) {
+            return state;
+        }
+        writer.execute(() -> {
+            if (!indexed) {
+                writeStamp++;
+                tasks.forEachState((taskId, taskState) -> index(taskId, null, taskState));
+                indexed = true;
+            }
+            return null;
+        });
+        ReadScope.release(this);
+        return state();
+    }
+
+    private void index(Long taskId, IndexedTask previous, IndexedTask current) {
+        if (current.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            unindex(taskId, previous);
+        }
+        totals = totals.add(current.done(), 1);
+        if (current.isScheduled()) {
+            dueDateIndex = dueDateIndex.with(current.projectId(), current.dueDate(), taskId, edit);
+        }
+        if (current.projectId() != null) {
+            ProjectTaskBitmaps bitmaps = bitmapsByProject.get(current.projectId());
+            bitmaps = (bitmaps == null ? ProjectTaskBitmaps.EMPTY : bitmaps).with(taskId, current, writeStamp, edit);
+            bitmapsByProject = bitmapsByProject.put(current.projectId(), bitmaps, edit);
+        }
+    }
+
+    private void unindex(Long taskId, IndexedTask previous) {
+        totals = totals.add(previous.done(), -1);
+        if (previous.isScheduled()) {
+            dueDateIndex = dueDateIndex.without(previous.projectId(), previous.dueDate(), taskId, edit);
+        }
+        if (previous.projectId() != null) {
+            ProjectTaskBitmaps bitmaps = bitmapsByProject.get(previous.projectId())
+                    .without(taskId, previous, writeStamp, edit);
+            bitmapsByProject = bitmaps.isEmpty() ? bitmapsByProject.remove(previous.projectId(), edit)
+                    : bitmapsByProject.put(previous.projectId(), bitmaps, edit);
+        }
+    }
+
+    /**
+     * Everything a reader sees, frozen at the end of a writer batch
+     */
+    record State(TaskStore.Version tasks, LongTrie<ProjectTaskBitmaps> bitmapsByProject, DueDateIndex dueDates,
+                 TaskCounters totals, boolean indexed, long stamp) {
+
+        /**
+         * Stamp of the tasks a query reads: those of one project, or all of them
+         */
+        long stamp(Long projectId) {
+            return projectId == null ? stamp : project(projectId).stamp();
+        }
+
+        ProjectTaskBitmaps project(Long projectId) {
+            ProjectTaskBitmaps bitmaps = bitmapsByProject.get(projectId);
+            return bitmaps == null ? ProjectTaskBitmaps.EMPTY : bitmaps;
+        }
+    }
+
+    private record Today(LocalDate date, long validUntil) {
+
+        static Today of(LocalDate date) {
+            return new Today(date, date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
     }
 }
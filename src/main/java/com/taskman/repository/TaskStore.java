@@ -0,0 +1,82 @@
+package com.taskman.repository;
+
+import com.taskman.model.Task;
+import com.taskman.persistence.TaskColumns.MappedTaskSnapshot;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Primary storage of TaskRepository. put() and remove() report the state a
+ * task had before, which is what the secondary indexes are diffed against.
+ * The store itself belongs to the repository's single writer; readers only
+ * ever see the immutable versions returned by publish().
+ */
+interface TaskStore {
+
+    /**
+     * Engine selected by the taskman.tasks.storage system property:
+     * columnar (default) or objects
+     */
+    static TaskStore create() {
+        String engine = System.getProperty("taskman.tasks.storage", "columnar").trim();
+        return "objects".equalsIgnoreCase(engine) ? new ObjectTaskStore() : new ColumnarTaskStore();
+    }
+
+    /**
+     * Takes over the rows of a snapshot; only called on an empty store
+     */
+    void load(MappedTaskSnapshot snapshot);
+
+    /**
+     * Current task with the given id, as an object of the caller's own
+     */
+    Task get(Long id);
+
+    boolean contains(Long id);
+
+    /**
+     * Stored version of the task with the given id, or -1 if there is none
+     */
+    int versionOf(Long id);
+
+    /**
+     * Inserts or replaces a task, returning its previous state or null if it is new.
+     * The store keeps its own copy, so the caller may go on changing the task.
+     */
+    IndexedTask put(Task task);
+
+    /**
+     * Removes a task, returning its previous state or null if it did not exist
+     */
+    IndexedTask remove(Long id);
+
+    int size();
+
+    long maxId();
+
+    /**
+     * Visits the indexed state of every task without building Task objects
+     */
+    void forEachState(BiConsumer<Long, IndexedTask> action);
+
+    /**
+     * Freezes everything written so far into a version readers can share.
+     * Costs no copy: later writes copy the parts they change.
+     */
+    Version publish();
+
+    /**
+     * Point-in-time view of the store that never changes
+     */
+    interface Version {
+
+        Task get(Long id);
+
+        int size();
+
+        /**
+         * Every task in id order, as a read-only list built while it is iterated
+         */
+        List<Task> all();
+    }
+}
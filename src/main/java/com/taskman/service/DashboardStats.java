@@ -0,0 +1,188 @@
+package com.taskman.service;
+
+import com.taskman.model.Project;
+import com.taskman.model.ProjectStatus;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Global figures for the dashboard, read from DashboardStatsService at one
+ * moment. Immutable.
+ */
+public final class DashboardStats {
+
+    private final long projectCount;
+    private final long taskCount;
+    private final long completedTaskCount;
+    private final long overdueTaskCount;
+    private final List<Share> projectsByStatus;
+    private final List<Share> tasksByPriority;
+    private final List<OwnerWorkload> busiestOwners;
+    private final List<RecentProject> recentProjects;
+
+    DashboardStats(long projectCount, long taskCount, long completedTaskCount, long overdueTaskCount,
+                   List<Share> projectsByStatus, List<Share> tasksByPriority,
+                   List<OwnerWorkload> busiestOwners, List<RecentProject> recentProjects) {
+        this.projectCount = projectCount;
+        this.taskCount = taskCount;
+        this.completedTaskCount = completedTaskCount;
+        this.overdueTaskCount = overdueTaskCount;
+        this.projectsByStatus = List.copyOf(projectsByStatus);
+        this.tasksByPriority = List.copyOf(tasksByPriority);
+        this.busiestOwners = List.copyOf(busiestOwners);
+        this.recentProjects = List.copyOf(recentProjects);
+    }
+
+    public long getProjectCount() {
+        return projectCount;
+    }
+
+    public long getTaskCount() {
+        return taskCount;
+    }
+
+    public long getCompletedTaskCount() {
+        return completedTaskCount;
+    }
+
+    public long getOpenTaskCount() {
+        return taskCount - completedTaskCount;
+    }
+
+    public long getOverdueTaskCount() {
+        return overdueTaskCount;
+    }
+
+    /**
+     * One entry per project status, in declaration order; projects without a status are in none
+     */
+    public List<Share> getProjectsByStatus() {
+        return projectsByStatus;
+    }
+
+    /**
+     * One entry per priority, in declaration order; tasks without a priority are in none
+     */
+    public List<Share> getTasksByPriority() {
+        return tasksByPriority;
+    }
+
+    /**
+     * Owners with the most open tasks first
+     */
+    public List<OwnerWorkload> getBusiestOwners() {
+        return busiestOwners;
+    }
+
+    /**
+     * Most recently created projects first
+     */
+    public List<RecentProject> getRecentProjects() {
+        return recentProjects;
+    }
+
+    /**
+     * A count out of a total, such as the projects in one status
+     */
+    public static final class Share {
+
+        private final String label;
+        private final long count;
+        private final long total;
+
+        Share(String label, long count, long total) {
+            this.label = label;
+            this.count = count;
+            this.total = total;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Share of the total as a whole percentage, 0 when the total is
+         */
+        public int getPercent() {
+            return total <= 0 ? 0 : (int) Math.round(100.0 * count / total);
+        }
+    }
+
+    /**
+     * The projects of one owner and the tasks in them
+     */
+    public static final class OwnerWorkload {
+
+        private final String owner;
+        private final long projectCount;
+        private final long taskCount;
+        private final long openTaskCount;
+
+        OwnerWorkload(String owner, long projectCount, long taskCount, long openTaskCount) {
+            this.owner = owner;
+            this.projectCount = projectCount;
+            this.taskCount = taskCount;
+            this.openTaskCount = openTaskCount;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public long getProjectCount() {
+            return projectCount;
+        }
+
+        public long getTaskCount() {
+            return taskCount;
+        }
+
+        public long getOpenTaskCount() {
+            return openTaskCount;
+        }
+    }
+
+    /**
+     * What the dashboard shows of one recent project, copied when the project was saved
+     */
+    public static final class RecentProject {
+
+        private final long id;
+        private final String name;
+        private final String owner;
+        private final ProjectStatus status;
+        private final LocalDateTime createdAt;
+
+        RecentProject(Project project) {
+            this.id = project.getId();
+            this.name = project.getName();
+            this.owner = project.getOwner();
+            this.status = project.getStatus();
+            this.createdAt = project.getCreatedAt();
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public ProjectStatus getStatus() {
+            return status;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+    }
+}
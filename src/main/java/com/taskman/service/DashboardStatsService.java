@@ -0,0 +1,315 @@
+package com.taskman.service;
+
+import com.taskman.metrics.Timed;
+import com.taskman.model.Project;
+import com.taskman.model.ProjectStatus;
+import com.taskman.model.TaskPriority;
+import com.taskman.repository.IndexedTask;
+import com.taskman.repository.ProjectRepository;
+import com.taskman.repository.TaskRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Global figures for the dashboard, kept up to date from the repositories'
+ * change listeners instead of being computed per request: every write
+ * adjusts a few counters in O(1), and reading them scans nothing but the
+ * owners. Overdue tasks depend on the day rather than on writes, so they
+ * come from the due date index, whose count is a rank lookup.
+ *
+ * Each counter is exact once the writers are idle; a read taken during a
+ * write may see some of its counters moved and not others.
+ */
+@Timed
+@ApplicationScoped
+public class DashboardStatsService {
+
+    // Projects shown in "Proyectos Recientes", and twice that kept so deletes rarely leave a gap
+    private static final int RECENT_PROJECTS = 10;
+
+    private static final Comparator<DashboardStats.RecentProject> NEWEST_FIRST = Comparator
+            .comparing(DashboardStats.RecentProject::getCreatedAt,
+                    Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(DashboardStats.RecentProject::getId)
+            .reversed();
+
+    private static final Comparator<DashboardStats.OwnerWorkload> BUSIEST_FIRST = Comparator
+            .comparingLong(DashboardStats.OwnerWorkload::getOpenTaskCount)
+            .thenComparingLong(DashboardStats.OwnerWorkload::getTaskCount)
+            .reversed()
+            .thenComparing(DashboardStats.OwnerWorkload::getOwner);
+
+    @Inject
+    private TaskRepository taskRepository;
+
+    @Inject
+    private ProjectRepository projectRepository;
+
+    // Moved by the task writer
+    private final LongAdder tasks = new LongAdder();
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder[] tasksByPriority = adders(TaskPriority.values().length);
+
+    // Moved by the project writer
+    private final LongAdder projects = new LongAdder();
+    private final LongAdder[] projectsByStatus = adders(ProjectStatus.values().length);
+    private final RecentProjects recentProjects = new RecentProjects(2 * RECENT_PROJECTS);
+
+    // Where both writers meet: the owner and task counts of each project, and their sums per owner
+    private final Map<Long, ProjectLoad> loadByProject = new ConcurrentHashMap<>();
+    private final Map<String, Workload> workloadByOwner = new ConcurrentHashMap<>();
+
+    public DashboardStatsService() {
+    }
+
+    /**
+     * For use outside the container, such as in the benchmarks; call init() before reading
+     */
+    public DashboardStatsService(TaskRepository taskRepository, ProjectRepository projectRepository) {
+        this.taskRepository = taskRepository;
+        this.projectRepository = projectRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        projectRepository.subscribe(this::projectChanged);
+        taskRepository.subscribe(this::taskChanged);
+    }
+
+    /**
+     * Creates the service with the application, so the first dashboard
+     * request does not pay for replaying the repositories
+     */
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        // Nothing to do; observing the event is what creates the bean
+    }
+
+    /**
+     * Current figures, with the given number of busiest owners
+     */
+    public DashboardStats getStats(int owners) {
+        if (owners < 0) {
+            throw new IllegalArgumentException("Owner count cannot be negative");
+        }
+        long projectCount = projects.sum();
+        List<DashboardStats.Share> byStatus = new ArrayList<>();
+        for (ProjectStatus status : ProjectStatus.values()) {
+            byStatus.add(new DashboardStats.Share(status.getDisplayName(),
+                    projectsByStatus[status.ordinal()].sum(), projectCount));
+        }
+        long taskCount = tasks.sum();
+        List<DashboardStats.Share> byPriority = new ArrayList<>();
+        for (TaskPriority priority : TaskPriority.values()) {
+            byPriority.add(new DashboardStats.Share(priority.getDisplayName(),
+                    tasksByPriority[priority.ordinal()].sum(), taskCount));
+        }
+        return new DashboardStats(projectCount, taskCount, completedTasks.sum(), taskRepository.countOverdue(),
+                byStatus, byPriority, busiestOwners(owners), recentProjects(RECENT_PROJECTS));
+    }
+
+    /**
+     * Owners with the most open tasks first, skipping those left without projects or tasks
+     */
+    private List<DashboardStats.OwnerWorkload> busiestOwners(int limit) {
+        List<DashboardStats.OwnerWorkload> owners = new ArrayList<>();
+        workloadByOwner.forEach((owner, workload) -> {
+            long projectCount = workload.projects.sum();
+            long taskCount = workload.tasks.sum();
+            if (projectCount > 0 || taskCount > 0) {
+                owners.add(new DashboardStats.OwnerWorkload(owner, projectCount, taskCount, workload.openTasks.sum()));
+            }
+        });
+        owners.sort(BUSIEST_FIRST);
+        return owners.subList(0, Math.min(limit, owners.size()));
+    }
+
+    /**
+     * The newest projects, refilling the kept list from the repository if
+     * deletes have left it shorter than the projects there are
+     */
+    private List<DashboardStats.RecentProject> recentProjects(int limit) {
+        if (recentProjects.size() < Math.min(recentProjects.capacity, projects.sum())) {
+            projectRepository.replay((id, previous, project) -> recentProjects.offer(project));
+        }
+        return recentProjects.newest(limit);
+    }
+
+    private void taskChanged(long id, IndexedTask previous, IndexedTask current) {
+        if (current != null && current.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            count(previous, -1);
+        }
+        if (current != null) {
+            count(current, 1);
+        }
+    }
+
+    private void count(IndexedTask task, int delta) {
+        tasks.add(delta);
+        if (task.done()) {
+            completedTasks.add(delta);
+        }
+        if (task.priority() != null) {
+            tasksByPriority[task.priority().ordinal()].add(delta);
+        }
+        if (task.projectId() == null) {
+            return;
+        }
+        int open = task.done() ? 0 : delta;
+        while (true) {
+            ProjectLoad load = loadByProject.computeIfAbsent(task.projectId(), projectId -> new ProjectLoad());
+            synchronized (load) {
+                if (load.discarded) {
+                    continue;
+                }
+                load.tasks += delta;
+                load.openTasks += open;
+                if (load.owner != null) {
+                    workload(load.owner).add(0, delta, open);
+                }
+                discardIfUnused(task.projectId(), load);
+                return;
+            }
+        }
+    }
+
+    private void projectChanged(long id, Project previous, Project current) {
+        if (previous != null) {
+            projects.decrement();
+            if (previous.getStatus() != null) {
+                projectsByStatus[previous.getStatus().ordinal()].decrement();
+            }
+        }
+        if (current != null) {
+            projects.increment();
+            if (current.getStatus() != null) {
+                projectsByStatus[current.getStatus().ordinal()].increment();
+            }
+        }
+        String owner = current == null ? null : current.getOwner();
+        while (true) {
+            ProjectLoad load = loadByProject.computeIfAbsent(id, projectId -> new ProjectLoad());
+            synchronized (load) {
+                if (load.discarded) {
+                    continue;
+                }
+                if (load.owner != null) {
+                    workload(load.owner).add(-1, -load.tasks, -load.openTasks);
+                }
+                if (owner != null) {
+                    workload(owner).add(1, load.tasks, load.openTasks);
+                }
+                load.owner = owner;
+                discardIfUnused(id, load);
+                break;
+            }
+        }
+        recentProjects.changed(id, current);
+    }
+
+    // Called holding the load's lock; whoever finds it discarded starts over with a new one
+    private void discardIfUnused(long projectId, ProjectLoad load) {
+        if (load.owner == null && load.tasks == 0) {
+            load.discarded = true;
+            loadByProject.remove(projectId, load);
+        }
+    }
+
+    private Workload workload(String owner) {
+        return workloadByOwner.computeIfAbsent(owner, key -> new Workload());
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Owner and task counts of one project; guarded by its own lock. Tasks
+     * may be counted before their project is, in which case the owner is null.
+     */
+    private static final class ProjectLoad {
+        String owner;
+        long tasks;
+        long openTasks;
+        boolean discarded;
+    }
+
+    private static final class Workload {
+        final LongAdder projects = new LongAdder();
+        final LongAdder tasks = new LongAdder();
+        final LongAdder openTasks = new LongAdder();
+
+        void add(long projectDelta, long taskDelta, long openDelta) {
+            projects.add(projectDelta);
+            tasks.add(taskDelta);
+            openTasks.add(openDelta);
+        }
+    }
+
+    /**
+     * The newest projects, up to a fixed capacity, kept sorted newest
+     * first as rows copied from the projects offered, never the repository's
+     * own instances. A delete leaves a gap the list cannot fill by itself;
+     * the reader refills it by offering every project again.
+     */
+    private static final class RecentProjects {
+
+        final int capacity;
+        private final List<DashboardStats.RecentProject> newest = new ArrayList<>();
+
+        RecentProjects(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void changed(long id, Project current) {
+            if (current != null) {
+                offer(current);
+            } else {
+                newest.removeIf(row -> row.getId() == id);
+            }
+        }
+
+        /**
+         * Adds the project if it is among the newest, replacing any older copy of it
+         */
+        synchronized void offer(Project project) {
+            DashboardStats.RecentProject row = new DashboardStats.RecentProject(project);
+            newest.removeIf(kept -> kept.getId().equals(row.getId()));
+            int index = 0;
+            while (index < newest.size() && NEWEST_FIRST.compare(newest.get(index), row) < 0) {
+                index++;
+            }
+            if (index >= capacity) {
+                return;
+            }
+            newest.add(index, row);
+            if (newest.size() > capacity) {
+                newest.remove(newest.size() - 1);
+            }
+        }
+
+        synchronized int size() {
+            return newest.size();
+        }
+
+        synchronized List<DashboardStats.RecentProject> newest(int limit) {
+            return new ArrayList<>(newest.subList(0, Math.min(limit, newest.size())));
+        }
+    }
+}
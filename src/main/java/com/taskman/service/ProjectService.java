@@ -1,7 +1,11 @@
 package com.taskman.service;
 
+import com.taskman.metrics.Timed;
+import com.taskman.metrics.ValidationEvent;
 import com.taskman.model.Project;
 import com.taskman.model.ProjectStatus;
+import com.taskman.repository.CacheStats;
+import com.taskman.repository.ConcurrentUpdateException;
 import com.taskman.repository.ProjectRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -11,12 +15,23 @@ import java.util.Optional;
 /**
  * Service layer for Project business logic
  */
+@Timed
 @ApplicationScoped
 public class ProjectService {
 
     @Inject
     private ProjectRepository projectRepository;
 
+    public ProjectService() {
+    }
+
+    /**
+     * For use outside the container, such as in the benchmarks
+     */
+    public ProjectService(ProjectRepository projectRepository) {
+        this.projectRepository = projectRepository;
+    }
+
     public List<Project> getAllProjects() {
         return projectRepository.findAll();
     }
@@ -35,14 +50,36 @@ public class ProjectService {
         }
     }
 
+    public long countProjects(String searchTerm, ProjectStatus status) {
+        return projectRepository.countByNameOrOwnerContainingAndStatus(searchTerm, status);
+    }
+
+    public List<Project> getProjectPage(String searchTerm, ProjectStatus status,
+                                        String sortField, boolean ascending, int offset, int limit) {
+        return projectRepository.findPage(searchTerm, status, sortField, ascending, offset, limit);
+    }
+
+    public List<Project> getProjectPageAfter(String searchTerm, ProjectStatus status,
+                                             String sortField, boolean ascending, Project after, int limit) {
+        return projectRepository.findPageAfter(searchTerm, status, sortField, ascending, after, limit);
+    }
+
     public Project createProject(Project project) {
         validateProject(project);
         return projectRepository.save(project);
     }
 
+    /**
+     * Saves the changes only if nobody else changed the project since it was read, as of project.getVersion()
+     *
+     * @throws ConcurrentUpdateException if the project was changed or deleted in the meantime
+     */
     public Project updateProject(Project project) {
         validateProject(project);
-        return projectRepository.save(project);
+        if (project.getId() == null) {
+            throw new IllegalArgumentException("Project ID cannot be null");
+        }
+        return projectRepository.save(project, project.getVersion());
     }
 
     public void deleteProject(Long id) {
@@ -68,7 +105,29 @@ public class ProjectService {
         return projectRepository.count();
     }
 
+    /**
+     * Effectiveness of the project search cache: hits, misses and evictions since startup
+     */
+    public CacheStats getSearchCacheStats() {
+        return projectRepository.cacheStats();
+    }
+
+    /**
+     * Checks the project, reporting the check as a JFR ValidationEvent
+     */
     private void validateProject(Project project) {
+        ValidationEvent event = new ValidationEvent();
+        event.begin();
+        try {
+            checkProject(project);
+        } catch (IllegalArgumentException e) {
+            event.finish("ProjectService.validateProject", e.getMessage());
+            throw e;
+        }
+        event.finish("ProjectService.validateProject", null);
+    }
+
+    private void checkProject(Project project) {
         if (project == null) {
             throw new IllegalArgumentException("Project cannot be null");
         }
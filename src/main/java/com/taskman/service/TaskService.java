@@ -1,8 +1,13 @@
 package com.taskman.service;
 
+import com.taskman.metrics.Timed;
+import com.taskman.metrics.ValidationEvent;
 import com.taskman.model.Task;
-import com.taskman.model.TaskPriority;
+import com.taskman.repository.CacheStats;
+import com.taskman.repository.ConcurrentUpdateException;
 import com.taskman.repository.ProjectRepository;
+import com.taskman.repository.QueryPlan;
+import com.taskman.repository.TaskQuery;
 import com.taskman.repository.TaskRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -13,6 +18,7 @@ import java.util.Optional;
 /**
  * Service layer for Task business logic
  */
+@Timed
 @ApplicationScoped
 public class TaskService {
 
@@ -22,6 +28,17 @@ public class TaskService {
     @Inject
     private ProjectRepository projectRepository;
 
+    public TaskService() {
+    }
+
+    /**
+     * For use outside the container, such as in the benchmarks
+     */
+    public TaskService(TaskRepository taskRepository, ProjectRepository projectRepository) {
+        this.taskRepository = taskRepository;
+        this.projectRepository = projectRepository;
+    }
+
     public List<Task> getAllTasks() {
         return taskRepository.findAll();
     }
@@ -33,18 +50,76 @@ public class TaskService {
         return taskRepository.findByProjectId(projectId);
     }
 
-    public List<Task> getTasksByProjectIdAndPriority(Long projectId, TaskPriority priority) {
-        return taskRepository.findByProjectIdAndPriority(projectId, priority);
+    /**
+     * Tasks matching every criterion of the query, as the page it asks for
+     */
+    public List<Task> findTasks(TaskQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+        return taskRepository.find(query);
+    }
+
+    /**
+     * The page of matches that follows the given row, in the query's order
+     */
+    public List<Task> findTasksAfter(TaskQuery query, Task after) {
+        if (query == null || after == null) {
+            throw new IllegalArgumentException("Query and cursor row are required");
+        }
+        return taskRepository.findAfter(query, after);
+    }
+
+    public long countTasks(TaskQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+        return taskRepository.count(query);
+    }
+
+    /**
+     * How the query would run, for diagnosing slow searches
+     */
+    public QueryPlan explainQuery(TaskQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+        return taskRepository.explain(query);
     }
 
-    public List<Task> getTasksByProjectIdAndDone(Long projectId, Boolean done) {
-        return taskRepository.findByProjectIdAndDone(projectId, done);
+    /**
+     * Effectiveness of the task list cache: hits, misses and evictions since startup
+     */
+    public CacheStats getQueryCacheStats() {
+        return taskRepository.cacheStats();
     }
 
     public List<Task> getOverdueTasks(Long projectId) {
         return taskRepository.findOverdueTasks(projectId);
     }
 
+    public List<Task> getTasksDueWithinDays(Long projectId, int days) {
+        if (days < 0) {
+            throw new IllegalArgumentException("Days cannot be negative");
+        }
+        LocalDate today = taskRepository.today();
+        return getTasksDueBetween(projectId, today, today.plusDays(days));
+    }
+
+    /**
+     * Open tasks due between both dates inclusive, ordered by due date
+     */
+    public List<Task> getTasksDueBetween(Long projectId, LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Date range bounds are required");
+        }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("End date cannot be before start date");
+        }
+        return taskRepository.find(TaskQuery.forProject(projectId).withDone(false)
+                .withDueBetween(from, to).sortedBy("dueDate", true));
+    }
+
     public Optional<Task> getTaskById(Long id) {
         return taskRepository.findById(id);
     }
@@ -54,9 +129,17 @@ public class TaskService {
         return taskRepository.save(task);
     }
 
+    /**
+     * Saves the changes only if nobody else changed the task since it was read, as of task.getVersion()
+     *
+     * @throws ConcurrentUpdateException if the task was changed or deleted in the meantime
+     */
     public Task updateTask(Task task) {
         validateTask(task);
-        return taskRepository.save(task);
+        if (task.getId() == null) {
+            throw new IllegalArgumentException("Task ID cannot be null");
+        }
+        return taskRepository.save(task, task.getVersion());
     }
 
     public void deleteTask(Long id) {
@@ -74,20 +157,27 @@ public class TaskService {
     }
 
     public Task toggleTaskCompletion(Long taskId) {
-        Optional<Task> taskOpt = taskRepository.findById(taskId);
-        if (taskOpt.isPresent()) {
-            Task task = taskOpt.get();
-            task.setDone(!task.isDone());
-            return taskRepository.save(task);
+        return taskRepository.toggleDone(taskId)
+                .orElseThrow(() -> new IllegalArgumentException("Task not found with ID: " + taskId));
+    }
+
+    /**
+     * Toggles the task only if it is still at the version the caller saw
+     *
+     * @throws ConcurrentUpdateException if the task was changed or deleted in the meantime
+     */
+    public Task toggleTaskCompletion(Long taskId, int expectedVersion) {
+        if (taskId == null) {
+            throw new IllegalArgumentException("Task ID cannot be null");
         }
-        throw new IllegalArgumentException("Task not found with ID: " + taskId);
+        return taskRepository.compareAndToggle(taskId, expectedVersion);
     }
 
     public boolean isTaskOverdue(Task task) {
         if (task == null || task.isDone()) {
             return false;
         }
-        return task.getDueDate() != null && task.getDueDate().isBefore(LocalDate.now());
+        return task.getDueDate() != null && task.getDueDate().isBefore(taskRepository.today());
     }
 
     public long getTaskCountByProjectId(Long projectId) {
@@ -98,11 +188,38 @@ public class TaskService {
         return taskRepository.countByProjectIdAndDone(projectId, done);
     }
 
+    public long getOverdueTaskCountByProjectId(Long projectId) {
+        return taskRepository.countOverdueByProjectId(projectId);
+    }
+
     public long getTotalTaskCount() {
         return taskRepository.count();
     }
 
+    public long getTaskCountByDone(boolean done) {
+        return taskRepository.countByDone(done);
+    }
+
+    public long getOverdueTaskCount() {
+        return taskRepository.countOverdue();
+    }
+
+    /**
+     * Checks the task, reporting the check as a JFR ValidationEvent
+     */
     private void validateTask(Task task) {
+        ValidationEvent event = new ValidationEvent();
+        event.begin();
+        try {
+            checkTask(task);
+        } catch (IllegalArgumentException e) {
+            event.finish("TaskService.validateTask", e.getMessage());
+            throw e;
+        }
+        event.finish("TaskService.validateTask", null);
+    }
+
+    private void checkTask(Task task) {
         if (task == null) {
             throw new IllegalArgumentException("Task cannot be null");
         }
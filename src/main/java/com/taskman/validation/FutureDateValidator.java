@@ -1,5 +1,6 @@
 package com.taskman.validation;
 
+import com.taskman.metrics.ValidationEvent;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.component.UIComponent;
 import jakarta.faces.context.FacesContext;
@@ -16,6 +17,18 @@ public class FutureDateValidator implements Validator {
 
     @Override
     public void validate(FacesContext context, UIComponent component, Object value) throws ValidatorException {
+        ValidationEvent event = new ValidationEvent();
+        event.begin();
+        try {
+            check(component, value);
+        } catch (ValidatorException e) {
+            event.finish("futureDateValidator", e.getFacesMessage().getSummary());
+            throw e;
+        }
+        event.finish("futureDateValidator", null);
+    }
+
+    private void check(UIComponent component, Object value) {
         if (value == null) {
             return; // Let required validation handle null values
         }
@@ -1,5 +1,6 @@
 package com.taskman.validation;
 
+import com.taskman.metrics.ValidationEvent;
 import com.taskman.service.ProjectService;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.component.UIComponent;
@@ -12,7 +13,7 @@ import jakarta.inject.Inject;
 /**
  * Custom validator to ensure project names are unique
  */
-@FacesValidator("uniqueProjectNameValidator")
+@FacesValidator(value = "uniqueProjectNameValidator", managed = true)
 public class UniqueProjectNameValidator implements Validator {
 
     @Inject
@@ -20,6 +21,18 @@ public class UniqueProjectNameValidator implements Validator {
 
     @Override
     public void validate(FacesContext context, UIComponent component, Object value) throws ValidatorException {
+        ValidationEvent event = new ValidationEvent();
+        event.begin();
+        try {
+            check(component, value);
+        } catch (ValidatorException e) {
+            event.finish("uniqueProjectNameValidator", e.getFacesMessage().getSummary());
+            throw e;
+        }
+        event.finish("uniqueProjectNameValidator", null);
+    }
+
+    private void check(UIComponent component, Object value) {
         if (value == null || value.toString().trim().isEmpty()) {
             return; // Let required validation handle empty values
         }
@@ -270,3 +270,195 @@ $(document).ready(function() {
     initializeResponsive();
     initializeDataTables();
 });
+
+/*
+ * Live updates pushed over f:websocket by LiveUpdatePusher. Changed rows
+ * are patched in place and deleted ones removed; created rows may belong
+ * on any page of a sorted, filtered table, so they only offer a refresh.
+ */
+
+/**
+ * Override the version parameter of a row button with the row's current
+ * version, which live updates keep in its .row-version element
+ */
+function withRowVersion(cfg) {
+    var source = typeof cfg.source === 'string' ? document.getElementById(cfg.source) : cfg.source;
+    var $version = $(source).closest('tr').find('.row-version');
+    if ($version.length && cfg.params) {
+        $.each(cfg.params, function(i, param) {
+            if (param.name === 'version') {
+                param.value = $version.attr('data-version');
+            }
+        });
+    }
+    return true;
+}
+
+/**
+ * Apply a batch of task changes to the open project's table and counters
+ */
+function applyTaskChanges(message) {
+    var $table = $('.tasks-table');
+    $.each(message.tasks, function(i, change) {
+        var $row = findRow($table, change.id);
+        if (change.op === 'created') {
+            showLiveNotice($table, 'Hay tareas nuevas en este proyecto.', 'refreshTasksTable');
+        } else if (change.op === 'deleted') {
+            removeRow($row);
+        } else if ($row.length && isNewerVersion($row, change.version)) {
+            patchTaskRow($row, change);
+        }
+    });
+    updateStats($('.task-stats'), message.stats);
+}
+
+/**
+ * Apply the row a toggle, edit or delete returned in place of re-rendering
+ * the table. A task this user created may belong on any page of the table,
+ * so the table is reloaded for it instead.
+ */
+function applyTaskResponse(message) {
+    var created = $.grep(message.tasks, function(change) {
+        return change.op === 'created';
+    });
+    if (created.length) {
+        refreshTasksTable();
+        message.tasks = $.grep(message.tasks, function(change) {
+            return change.op !== 'created';
+        });
+    }
+    applyTaskChanges(message);
+}
+
+/**
+ * Apply a batch of project changes to the projects table and header count
+ */
+function applyProjectChanges(message) {
+    var $table = $('.projects-table');
+    $.each(message.projects, function(i, change) {
+        var $row = findRow($table, change.id);
+        if (change.op === 'created') {
+            showLiveNotice($table, 'Hay proyectos nuevos.', 'refreshProjectsTable');
+        } else if (change.op === 'deleted') {
+            removeRow($row);
+        } else if ($row.length && isNewerVersion($row, change.version)) {
+            patchProjectRow($row, change);
+        }
+    });
+    $('.live-project-count').text(message.count);
+}
+
+/**
+ * Apply new global figures to the dashboard's stat cards
+ */
+function applyDashboardChanges(message) {
+    updateStats($('.stats-content'), message);
+}
+
+/**
+ * The table row of an entity, found through the id on its .row-version element
+ */
+function findRow($table, id) {
+    return $table.find('.row-version[data-id="' + id + '"]').closest('tr');
+}
+
+/**
+ * True unless the row already shows this version or a later one, as it
+ * does when its own response arrived before the push of the same change
+ */
+function isNewerVersion($row, version) {
+    var shown = parseInt($row.find('.row-version').attr('data-version'), 10);
+    return isNaN(shown) || version > shown;
+}
+
+/**
+ * Patch a task row's cells, toggle button and overdue marker from a change
+ */
+function patchTaskRow($row, change) {
+    if (change.title !== undefined) {
+        $row.find('.task-title').text(change.title);
+        $row.find('.task-priority').text(change.priorityLabel || '')
+            .attr('class', 'task-priority priority-badge priority-' + (change.priority || ''));
+        $row.find('.task-due').text(change.due || '');
+        setPlaceholderText($row.find('.task-notes'), change.notes, 'Sin notas');
+    }
+    $row.find('.task-title').css({
+        'text-decoration': change.done ? 'line-through' : 'none',
+        'color': change.done ? '#6c757d' : 'inherit'
+    });
+    $row.find('.task-status').text(change.done ? 'Completada' : 'Pendiente')
+        .toggleClass('status-done', change.done)
+        .toggleClass('status-active', !change.done);
+    var $toggle = $row.find('.task-toggle');
+    $toggle.toggleClass('ui-button-warning', change.done).toggleClass('ui-button-success', !change.done);
+    $toggle.find('.ui-button-text').text(change.done ? 'Reabrir' : 'Completar');
+    $toggle.find('.ui-button-icon-left').toggleClass('fa-undo', change.done).toggleClass('fa-check', !change.done);
+    $row.find('.task-overdue-icon').css('display', change.overdue ? 'inline' : 'none');
+    $row.toggleClass('row-danger', change.overdue);
+    markRowUpdated($row, change.version);
+}
+
+/**
+ * Patch a project row's cells from a change
+ */
+function patchProjectRow($row, change) {
+    $row.find('.project-name').text(change.name);
+    $row.find('.project-owner').text(change.owner);
+    $row.find('.project-status').text(change.statusLabel)
+        .attr('class', 'project-status status-badge status-' + change.status);
+    setPlaceholderText($row.find('.project-description'), change.description, 'Sin descripción');
+    markRowUpdated($row, change.version);
+}
+
+/**
+ * Set an element's text, or the placeholder in italics when there is none
+ */
+function setPlaceholderText($element, text, placeholder) {
+    var empty = !text;
+    $element.text(empty ? placeholder : text).toggleClass('text-placeholder', empty);
+}
+
+/**
+ * Store the row's new version and flash it
+ */
+function markRowUpdated($row, version) {
+    $row.find('.row-version').attr('data-version', version);
+    $row.removeClass('row-updated');
+    // Reflow so the highlight animation restarts on repeated updates
+    void $row[0].offsetWidth;
+    $row.addClass('row-updated');
+}
+
+/**
+ * Fade out and remove a deleted row
+ */
+function removeRow($row) {
+    $row.fadeOut(300, function() {
+        $(this).remove();
+    });
+}
+
+/**
+ * Set the counters marked with data-stat inside the container
+ */
+function updateStats($container, stats) {
+    $.each(stats, function(key, value) {
+        $container.find('[data-stat="' + key + '"]').text(value);
+    });
+}
+
+/**
+ * Show, once, a notice above the table offering to reload it with the given remote command
+ */
+function showLiveNotice($table, text, refreshCommand) {
+    if ($table.prev('.live-notice').length) {
+        return;
+    }
+    var $notice = $('<div class="live-notice"><span></span><a>Actualizar</a></div>');
+    $notice.find('span').text(text);
+    $notice.find('a').on('click', function() {
+        $notice.remove();
+        window[refreshCommand]();
+    });
+    $table.before($notice);
+}
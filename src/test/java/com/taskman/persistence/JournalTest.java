@@ -0,0 +1,88 @@
+package com.taskman.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void anOlderCheckpointFinishingLastKeepsTheNewerSnapshot() {
+        try (Journal<Task> journal = open()) {
+            journal.recover(new Recorder());
+            journal.awaitDurable(journal.logSave(task(1)));
+            Journal.Checkpoint<Task> older = journal.checkpoint(2, List.of(task(1)));
+            journal.awaitDurable(journal.logSave(task(2)));
+            Journal.Checkpoint<Task> newer = journal.checkpoint(3, List.of(task(1), task(2)));
+
+            journal.writeSnapshot(newer);
+            journal.writeSnapshot(older);
+        }
+
+        Recorder recovered = new Recorder();
+        try (Journal<Task> journal = open()) {
+            journal.recover(recovered);
+        }
+        assertEquals(List.of(1L, 2L), recovered.ids);
+    }
+
+    @Test
+    void theNextIdSkipsIdsDeletedSinceTheSnapshot() {
+        try (Journal<Task> journal = open()) {
+            journal.recover(new Recorder());
+            long seq = 0;
+            for (long id = 1; id <= 5; id++) {
+                seq = journal.logSave(task(id));
+            }
+            seq = journal.logDelete(5);
+            journal.awaitDurable(seq);
+        }
+
+        Recorder recovered = new Recorder();
+        Journal.Recovery recovery;
+        try (Journal<Task> journal = open()) {
+            recovery = journal.recover(recovered);
+        }
+        assertEquals(List.of(1L, 2L, 3L, 4L), recovered.ids);
+        assertEquals(6, recovery.nextId());
+    }
+
+    private Journal<Task> open() {
+        return Journal.open(directory, "tasks", EntityCodec.TASKS);
+    }
+
+    private static Task task(long id) {
+        Task task = new Task(7L, "Tarea " + id, TaskPriority.MEDIUM, LocalDate.of(2026, 1, 1), null);
+        task.setId(id);
+        return task;
+    }
+
+    private static final class Recorder implements Journal.Replay<Task> {
+
+        final List<Long> ids = new ArrayList<>();
+
+        @Override
+        public void save(Task task) {
+            ids.add(task.getId());
+        }
+
+        @Override
+        public void delete(long id) {
+            ids.remove(Long.valueOf(id));
+        }
+
+        @Override
+        public void deleteByOwner(long ownerId) {
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.taskman.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.taskman.model.Task;
+import com.taskman.model.TaskPriority;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversFromAZeroFilledTail() throws IOException {
+        writeTasks(5);
+        appendToNewestLog(new byte[4096]);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), recoveredIds());
+    }
+
+    @Test
+    void recoversFromALengthPastTheEndOfTheFile() throws IOException {
+        writeTasks(5);
+        appendToNewestLog(ByteBuffer.allocate(16).putInt(Integer.MAX_VALUE - 8).putInt(0).array());
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), recoveredIds());
+    }
+
+    @Test
+    void recoversFromARecordThatPassesItsChecksumButDoesNotDecode() throws IOException {
+        writeTasks(5);
+        // A save operation byte with no entity after it
+        byte[] payload = {1};
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        appendToNewestLog(ByteBuffer.allocate(9).putInt(1).putInt((int) crc.getValue()).put(payload).array());
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), recoveredIds());
+    }
+
+    @Test
+    void recoversFromAGarbageTail() throws IOException {
+        writeTasks(5);
+        byte[] garbage = new byte[4096];
+        new Random(42).nextBytes(garbage);
+        appendToNewestLog(garbage);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), recoveredIds());
+    }
+
+    private void writeTasks(int count) {
+        try (Journal<Task> journal = Journal.open(directory, "tasks", EntityCodec.TASKS)) {
+            journal.recover(new Recorder());
+            long seq = 0;
+            for (long id = 1; id <= count; id++) {
+                Task task = new Task(7L, "Tarea " + id, TaskPriority.MEDIUM, LocalDate.of(2026, 1, 1), null);
+                task.setId(id);
+                seq = journal.logSave(task);
+            }
+            journal.awaitDurable(seq);
+        }
+    }
+
+    private void appendToNewestLog(byte[] bytes) throws IOException {
+        List<Integer> gens = WriteAheadLog.generations(directory, "tasks");
+        Path newest = WriteAheadLog.file(directory, "tasks", gens.get(gens.size() - 1));
+        Files.write(newest, bytes, StandardOpenOption.APPEND);
+    }
+
+    private List<Long> recoveredIds() {
+        Recorder recorder = new Recorder();
+        try (Journal<Task> journal = Journal.open(directory, "tasks", EntityCodec.TASKS)) {
+            journal.recover(recorder);
+        }
+        return recorder.ids;
+    }
+
+    private static final class Recorder implements Journal.Replay<Task> {
+
+        final List<Long> ids = new ArrayList<>();
+
+        @Override
+        public void save(Task task) {
+            ids.add(task.getId());
+        }
+
+        @Override
+        public void delete(long id) {
+            ids.remove(Long.valueOf(id));
+        }
+
+        @Override
+        public void deleteByOwner(long ownerId) {
+        }
+    }
+}